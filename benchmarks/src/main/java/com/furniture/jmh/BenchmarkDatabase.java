@@ -0,0 +1,61 @@
+package com.furniture.jmh;
+
+import com.furniture.db.IndexRegistry;
+import com.furniture.db.MongoDBService;
+import com.furniture.model.Customer;
+import com.furniture.model.Furniture;
+import com.furniture.model.Order;
+import com.furniture.repository.CustomerRepository;
+import com.furniture.repository.FurnitureRepository;
+import com.furniture.repository.OrderRepository;
+
+import java.util.List;
+
+/**
+ * The database the benchmarks that need a mongod read from, furniture_benchmark unless the
+ * fork is pointed elsewhere. If its orders collection is empty it is filled with synthetic
+ * data first (20 000 orders of 2 000 customers); otherwise the data already there is used as is.
+ */
+final class BenchmarkDatabase {
+    static final String JVM_ARGS = "-Dfurniture.mongo.database=furniture_benchmark";
+    
+    private static final int CUSTOMERS = 2_000;
+    private static final int CATALOG = 300;
+    private static final int ORDERS = 20_000;
+    
+    private BenchmarkDatabase() {
+    }
+    
+    /**
+     * Creates the indexes, seeds an empty database and returns the number of orders.
+     */
+    static long prepare() {
+        MongoDBService mongoDBService = MongoDBService.getInstance();
+        IndexRegistry indexRegistry = new IndexRegistry();
+        CustomerRepository.declareIndexes(indexRegistry);
+        OrderRepository.declareIndexes(indexRegistry);
+        FurnitureRepository.declareIndexes(indexRegistry);
+        mongoDBService.ensureIndexes(indexRegistry);
+        
+        OrderRepository orderRepository = new OrderRepository();
+        if (orderRepository.countOrders() == 0) {
+            seed(orderRepository);
+        }
+        long orders = orderRepository.countOrders();
+        if (orders == 0) {
+            throw new IllegalStateException("No orders in " + mongoDBService.getConfig().getDatabaseName()
+                    + ", is mongod running?");
+        }
+        return orders;
+    }
+    
+    private static void seed(OrderRepository orderRepository) {
+        SyntheticData data = new SyntheticData(42);
+        List<Customer> customers = data.customers(CUSTOMERS);
+        List<Furniture> catalog = data.catalog(CATALOG);
+        System.out.println(new CustomerRepository().addAll(customers));
+        System.out.println(new FurnitureRepository().addAll(catalog));
+        List<Order> orders = data.orders(ORDERS, customers, catalog);
+        System.out.println(orderRepository.addAll(orders));
+    }
+}
\ No newline at end of file
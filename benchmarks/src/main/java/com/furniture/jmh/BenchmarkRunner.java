@@ -0,0 +1,29 @@
+package com.furniture.jmh;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of benchmarks.jar: the usual JMH command line, with the gc profiler always
+ * on, so every result comes with its allocation rate (gc.alloc.rate.norm, bytes per operation).
+ *
+ * Usage: java -jar benchmarks/target/benchmarks.jar [JMH options] [benchmark regexp], e.g.
+ *   java -jar benchmarks/target/benchmarks.jar CodecBenchmark -p itemsPerOrder=5
+ *   java -jar benchmarks/target/benchmarks.jar RepositoryReadBenchmark -rf json
+ */
+public class BenchmarkRunner {
+    
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        Options options = new OptionsBuilder()
+                .parent(commandLine)
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,164 @@
+package com.furniture.jmh;
+
+import com.furniture.db.codec.ModelCodecs;
+import com.furniture.model.Customer;
+import com.furniture.model.Furniture;
+import com.furniture.model.FurnitureDetails;
+import com.furniture.model.Material;
+import com.furniture.model.Order;
+import com.furniture.model.OrderSummary;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.io.BasicOutputBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping of the model classes to and from BSON with the codecs the repositories use,
+ * the way the driver calls them, without a database.
+ *
+ * An order carries the given number of items; the OrderSummary decode reads the same
+ * order bytes and skips the items, as the list projection would not even send them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+    @Param({"1", "5", "20"})
+    private int itemsPerOrder;
+    
+    private Codec<Order> orderCodec;
+    private Codec<OrderSummary> orderSummaryCodec;
+    private Codec<Customer> customerCodec;
+    private Codec<Furniture> furnitureCodec;
+    private Codec<Material> materialCodec;
+    private Codec<FurnitureDetails> detailsCodec;
+    
+    private Order order;
+    private Customer customer;
+    private Furniture furniture;
+    private Material material;
+    private FurnitureDetails details;
+    
+    private byte[] orderBytes;
+    private byte[] customerBytes;
+    private byte[] furnitureBytes;
+    private byte[] materialBytes;
+    private byte[] detailsBytes;
+    
+    @Setup
+    public void setUp() {
+        CodecRegistry registry = ModelCodecs.createRegistry();
+        orderCodec = registry.get(Order.class);
+        orderSummaryCodec = registry.get(OrderSummary.class);
+        customerCodec = registry.get(Customer.class);
+        furnitureCodec = registry.get(Furniture.class);
+        materialCodec = registry.get(Material.class);
+        detailsCodec = registry.get(FurnitureDetails.class);
+        
+        SyntheticData data = new SyntheticData(42);
+        List<Customer> customers = data.customers(10);
+        List<Furniture> catalog = data.catalog(50);
+        List<Material> materials = data.materials(20);
+        order = data.order(customers, catalog, itemsPerOrder);
+        customer = customers.get(0);
+        furniture = catalog.get(0);
+        material = materials.get(0);
+        details = data.details(furniture, materials, 6);
+        
+        orderBytes = encode(orderCodec, order);
+        customerBytes = encode(customerCodec, customer);
+        furnitureBytes = encode(furnitureCodec, furniture);
+        materialBytes = encode(materialCodec, material);
+        detailsBytes = encode(detailsCodec, details);
+    }
+    
+    private static <T> byte[] encode(Codec<T> codec, T entity) {
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        try (BsonBinaryWriter writer = new BsonBinaryWriter(buffer)) {
+            codec.encode(writer, entity, EncoderContext.builder().build());
+        }
+        return buffer.toByteArray();
+    }
+    
+    private static <T> T decode(Codec<T> codec, byte[] bytes) {
+        try (BsonBinaryReader reader = new BsonBinaryReader(ByteBuffer.wrap(bytes))) {
+            return codec.decode(reader, DecoderContext.builder().build());
+        }
+    }
+    
+    @Benchmark
+    public byte[] encodeOrder() {
+        return encode(orderCodec, order);
+    }
+    
+    @Benchmark
+    public Order decodeOrder() {
+        return decode(orderCodec, orderBytes);
+    }
+    
+    @Benchmark
+    public OrderSummary decodeOrderSummary() {
+        return decode(orderSummaryCodec, orderBytes);
+    }
+    
+    @Benchmark
+    public byte[] encodeCustomer() {
+        return encode(customerCodec, customer);
+    }
+    
+    @Benchmark
+    public Customer decodeCustomer() {
+        return decode(customerCodec, customerBytes);
+    }
+    
+    @Benchmark
+    public byte[] encodeFurniture() {
+        return encode(furnitureCodec, furniture);
+    }
+    
+    @Benchmark
+    public Furniture decodeFurniture() {
+        return decode(furnitureCodec, furnitureBytes);
+    }
+    
+    @Benchmark
+    public byte[] encodeMaterial() {
+        return encode(materialCodec, material);
+    }
+    
+    @Benchmark
+    public Material decodeMaterial() {
+        return decode(materialCodec, materialBytes);
+    }
+    
+    @Benchmark
+    public byte[] encodeFurnitureDetails() {
+        return encode(detailsCodec, details);
+    }
+    
+    @Benchmark
+    public FurnitureDetails decodeFurnitureDetails() {
+        return decode(detailsCodec, detailsBytes);
+    }
+}
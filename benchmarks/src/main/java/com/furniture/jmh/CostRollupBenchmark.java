@@ -0,0 +1,83 @@
+package com.furniture.jmh;
+
+import com.furniture.model.FurnitureDetails.MaterialUsage;
+import com.furniture.planning.CostRollup;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Re-costing a synthetic catalog (no database needed) after the price of one material
+ * changed, against computing every unit cost from scratch.
+ *
+ * The catalog uses 2 000 materials with up to 12 per furniture item, so a price change
+ * touches a small share of the items.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CostRollupBenchmark {
+    private static final int MATERIALS = 2_000;
+    private static final int MAX_USAGES_PER_FURNITURE = 12;
+    
+    @Param({"10000", "100000"})
+    private int furniture;
+    
+    private CostRollup rollup;
+    private ObjectId[] materials;
+    private Random random;
+    
+    @Setup
+    public void setUp() {
+        random = new Random(42);
+        rollup = new CostRollup();
+        materials = new ObjectId[MATERIALS];
+        for (int i = 0; i < MATERIALS; i++) {
+            materials[i] = new ObjectId();
+            rollup.setMaterialCost(materials[i], randomCost());
+        }
+        for (int i = 0; i < furniture; i++) {
+            int usageCount = 1 + random.nextInt(MAX_USAGES_PER_FURNITURE);
+            List<MaterialUsage> usages = new ArrayList<>(usageCount);
+            for (int j = 0; j < usageCount; j++) {
+                usages.add(new MaterialUsage(materials[random.nextInt(MATERIALS)], 0.5 + random.nextInt(20) / 2.0));
+            }
+            rollup.setBillOfMaterials(new ObjectId(), new ObjectId(), usages);
+        }
+    }
+    
+    private double randomCost() {
+        return 1 + random.nextInt(10_000) / 100.0;
+    }
+    
+    @Benchmark
+    public void recomputeAll() {
+        rollup.recomputeAll();
+    }
+    
+    /**
+     * A new price for a random material, as a change event from the materials collection applies it.
+     */
+    @Benchmark
+    public Set<ObjectId> singlePriceChange() {
+        return rollup.setMaterialCost(materials[random.nextInt(MATERIALS)], randomCost());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,72 @@
+package com.furniture.jmh;
+
+import com.furniture.db.MongoDBService;
+import com.furniture.io.ExportResult;
+import com.furniture.io.Exports;
+import com.furniture.io.StreamingExporter;
+import com.furniture.model.OrderSummary;
+import com.furniture.repository.CustomerRepository;
+import com.furniture.repository.OrderRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streaming all orders of the benchmark database (see {@link BenchmarkDatabase}) into a
+ * temporary file with the orders export, in each format and cursor batch size.
+ *
+ * The gc profiler's bytes per operation show whether the export allocates in proportion
+ * to the batch rather than to the number of orders.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = BenchmarkDatabase.JVM_ARGS)
+public class ExportBenchmark {
+    @Param({"csv", "jsonl"})
+    private String format;
+    
+    @Param({"100", "1000", "2000", "10000"})
+    private int batchSize;
+    
+    private StreamingExporter<OrderSummary> exporter;
+    private Path directory;
+    private Path file;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        BenchmarkDatabase.prepare();
+        exporter = Exports.orders(new OrderRepository(), new CustomerRepository()).withBatchSize(batchSize);
+        directory = Files.createTempDirectory("export-benchmark");
+        file = directory.resolve("orders." + format);
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(directory);
+        MongoDBService.getInstance().close();
+    }
+    
+    @Benchmark
+    public ExportResult exportOrders() throws IOException {
+        return exporter.export(file, records -> { });
+    }
+}
\ No newline at end of file
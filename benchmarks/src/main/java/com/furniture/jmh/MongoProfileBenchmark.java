@@ -0,0 +1,149 @@
+package com.furniture.jmh;
+
+import com.furniture.db.MongoConfig;
+import com.furniture.db.codec.ModelCodecs;
+import com.furniture.model.Customer;
+import com.furniture.model.Furniture;
+import com.furniture.model.Order;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.WriteModel;
+import org.bson.RawBsonDocument;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The client profiles against the configured server, best run against a database on the
+ * network the profiles are meant for (-Dfurniture.mongo.uri=...).
+ *
+ * Every profile gets its own client and runs a workload shaped like the application's:
+ * bulk inserts of orders with the bulk write concern, point reads by id from several
+ * threads sharing the pool, and a full scan with the report read preference. The orders
+ * go to scratch collections of the benchmark database that are dropped afterwards.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = BenchmarkDatabase.JVM_ARGS)
+public class MongoProfileBenchmark {
+    private static final String ORDERS_COLLECTION = "profileBenchmarkOrders";
+    private static final String INSERTS_COLLECTION = "profileBenchmarkInserts";
+    private static final int BATCH_SIZE = 1000;
+    
+    @Param({"LOCAL", "LAN", "WAN"})
+    private MongoConfig.Profile profile;
+    
+    @Param({"50000"})
+    private int orders;
+    
+    private MongoConfig config;
+    private MongoClient client;
+    private MongoCollection<Order> orderCollection;
+    private MongoCollection<Order> insertCollection;
+    private List<ObjectId> ids;
+    private List<Order> batch;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        config = MongoConfig.load(profile);
+        client = MongoClients.create(config.toClientSettings());
+        MongoDatabase database = client.getDatabase(config.getDatabaseName()).withCodecRegistry(ModelCodecs.createRegistry());
+        orderCollection = database.getCollection(ORDERS_COLLECTION, Order.class);
+        insertCollection = database.getCollection(INSERTS_COLLECTION, Order.class)
+                .withWriteConcern(config.getBulkWriteConcern());
+        orderCollection.drop();
+        
+        SyntheticData data = new SyntheticData(42);
+        List<Customer> customers = data.customers(1_000);
+        List<Furniture> catalog = data.catalog(300);
+        ids = new ArrayList<>(orders);
+        for (int inserted = 0; inserted < orders; inserted += BATCH_SIZE) {
+            List<Order> chunk = data.orders(Math.min(BATCH_SIZE, orders - inserted), customers, catalog);
+            for (Order order : chunk) {
+                ids.add(order.getId());
+            }
+            insert(orderCollection.withWriteConcern(config.getBulkWriteConcern()), chunk);
+        }
+        batch = data.orders(BATCH_SIZE, customers, catalog);
+        System.out.println(config);
+    }
+    
+    @TearDown(Level.Iteration)
+    public void dropInserts() {
+        insertCollection.drop();
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        orderCollection.drop();
+        client.close();
+    }
+    
+    private static void insert(MongoCollection<Order> collection, List<Order> orders) {
+        List<WriteModel<Order>> models = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            models.add(new InsertOneModel<>(order));
+        }
+        collection.bulkWrite(models, new BulkWriteOptions().ordered(false));
+    }
+    
+    /**
+     * One batch of 1 000 orders, as an import or the data generator writes them.
+     */
+    @Benchmark
+    public void insertBatch() {
+        // New ids, so the same orders can be inserted again
+        for (Order order : batch) {
+            order.setId(null);
+        }
+        insert(insertCollection, batch);
+    }
+    
+    /**
+     * Point reads of random orders from several threads, as concurrent panels would.
+     */
+    @Benchmark
+    @Threads(16)
+    public Order readById() {
+        ObjectId id = ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+        return orderCollection.find(Filters.eq("_id", id)).first();
+    }
+    
+    /**
+     * Returns the scanned bytes, which is what the compression is about.
+     */
+    @Benchmark
+    public long scan() {
+        long bytes = 0;
+        for (RawBsonDocument document : orderCollection.withDocumentClass(RawBsonDocument.class)
+                .withReadPreference(config.getReportReadPreference()).find()) {
+            bytes += document.getByteBuffer().remaining();
+        }
+        return bytes;
+    }
+}
\ No newline at end of file
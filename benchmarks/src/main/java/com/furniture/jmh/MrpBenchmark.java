@@ -0,0 +1,97 @@
+package com.furniture.jmh;
+
+import com.furniture.planning.MrpEngine;
+import com.furniture.planning.PlanningData;
+import com.furniture.planning.ShortageReport;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The MRP explosion of a synthetic planning snapshot (no database needed) with the given
+ * number of worker threads, to see how it scales with the cores.
+ *
+ * The snapshot has 2 000 materials and 5 000 furniture items with up to 12 materials each;
+ * every order has up to 5 lines.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MrpBenchmark {
+    private static final int MATERIALS = 2_000;
+    private static final int FURNITURE = 5_000;
+    private static final int MAX_USAGES_PER_FURNITURE = 12;
+    private static final int MAX_LINES_PER_ORDER = 5;
+    
+    @Param({"200000"})
+    private int orders;
+    
+    @Param({"1", "2", "4", "8"})
+    private int parallelism;
+    
+    private PlanningData data;
+    private ForkJoinPool pool;
+    private MrpEngine engine;
+    
+    @Setup
+    public void setUp() {
+        data = generate(new Random(42));
+        pool = new ForkJoinPool(parallelism);
+        engine = new MrpEngine(pool);
+    }
+    
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+    
+    @Benchmark
+    public ShortageReport plan() {
+        return engine.plan(data);
+    }
+    
+    private PlanningData generate(Random random) {
+        PlanningData.Builder builder = new PlanningData.Builder();
+        ObjectId[] materials = new ObjectId[MATERIALS];
+        for (int i = 0; i < MATERIALS; i++) {
+            materials[i] = new ObjectId();
+            builder.addMaterial(materials[i], "Материал " + i, "шт", random.nextInt(10_000));
+        }
+        
+        ObjectId[] furniture = new ObjectId[FURNITURE];
+        for (int i = 0; i < FURNITURE; i++) {
+            furniture[i] = new ObjectId();
+            builder.startBillOfMaterials(furniture[i]);
+            int usages = 1 + random.nextInt(MAX_USAGES_PER_FURNITURE);
+            for (int j = 0; j < usages; j++) {
+                builder.addUsage(materials[random.nextInt(MATERIALS)], 0.5 + random.nextInt(20) / 2.0);
+            }
+        }
+        
+        for (int i = 0; i < orders; i++) {
+            builder.addOrder();
+            int lines = 1 + random.nextInt(MAX_LINES_PER_ORDER);
+            for (int j = 0; j < lines; j++) {
+                builder.addLine(furniture[random.nextInt(FURNITURE)], 1 + random.nextInt(10));
+            }
+        }
+        return builder.build();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,117 @@
+package com.furniture.jmh;
+
+import com.furniture.db.KeysetPage;
+import com.furniture.db.MongoDBService;
+import com.furniture.model.Customer;
+import com.furniture.model.Order;
+import com.furniture.model.OrderSummary;
+import com.furniture.repository.CustomerRepository;
+import com.furniture.repository.OrderRepository;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end reads through the repositories against a local mongod.
+ *
+ * The fork uses its own database, furniture_benchmark, so the data of the application is
+ * never touched; see {@link BenchmarkDatabase}. Point it elsewhere with
+ * -Dfurniture.mongo.uri=... as for the application.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = BenchmarkDatabase.JVM_ARGS)
+public class RepositoryReadBenchmark {
+    private static final int PAGE_SIZE = 500;
+    
+    private OrderRepository orderRepository;
+    private CustomerRepository customerRepository;
+    private List<ObjectId> customerIds;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        long orders = BenchmarkDatabase.prepare();
+        orderRepository = new OrderRepository();
+        customerRepository = new CustomerRepository();
+        customerIds = new ArrayList<>();
+        for (Customer customer : customerRepository.getAllCustomers()) {
+            customerIds.add(customer.getId());
+        }
+        System.out.println("Benchmark data: " + orders + " orders, " + customerIds.size() + " customers");
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        MongoDBService.getInstance().close();
+    }
+    
+    /**
+     * Full documents with their items, as the panels loaded them before summaries.
+     */
+    @Benchmark
+    public List<Order> getAllOrders() {
+        return orderRepository.getAllOrders();
+    }
+    
+    /**
+     * All orders as list summaries, streamed in batches as the orders tab loads them.
+     */
+    @Benchmark
+    public void streamOrderSummaries(Blackhole blackhole) {
+        orderRepository.streamOrderSummaries(PAGE_SIZE, blackhole::consume);
+    }
+    
+    /**
+     * First page of the orders tab sorted by date, newest first.
+     */
+    @Benchmark
+    public KeysetPage<OrderSummary> firstOrderPage() {
+        return orderRepository.getOrderSummariesPage("orderDate", false, null, 0, PAGE_SIZE);
+    }
+    
+    /**
+     * Batched customer lookup for one page of orders, as the ReferenceResolver issues it,
+     * with the customer cache emptied first so every id goes to the server.
+     */
+    @Benchmark
+    public Map<ObjectId, Customer> customersOfPageCold() {
+        CustomerRepository.getCache().invalidateAll();
+        return customerRepository.getCustomersByIds(pageOfCustomerIds());
+    }
+    
+    /**
+     * The same lookup when the page was shown before and all customers are cached.
+     */
+    @Benchmark
+    public Map<ObjectId, Customer> customersOfPageCached() {
+        return customerRepository.getCustomersByIds(pageOfCustomerIds());
+    }
+    
+    private List<ObjectId> pageOfCustomerIds() {
+        return customerIds.subList(0, Math.min(PAGE_SIZE, customerIds.size()));
+    }
+    
+    @Benchmark
+    public List<Customer> findCustomersByName() {
+        return customerRepository.findCustomersByName("Клиент 1");
+    }
+}
\ No newline at end of file
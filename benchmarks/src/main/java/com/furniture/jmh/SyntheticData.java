@@ -0,0 +1,115 @@
+package com.furniture.jmh;
+
+import com.furniture.model.Customer;
+import com.furniture.model.Furniture;
+import com.furniture.model.FurnitureDetails;
+import com.furniture.model.FurnitureDetails.MaterialUsage;
+import com.furniture.model.Material;
+import com.furniture.model.Order;
+import com.furniture.model.Order.OrderItem;
+import org.bson.types.ObjectId;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Entities with realistic field sizes for the benchmarks, the same for every run of a seed.
+ */
+final class SyntheticData {
+    private static final String[] STATUSES = {"Ожидается", "В процессе", "Завершен", "Отменен"};
+    private static final String[] CATEGORIES = {"Стулья", "Столы", "Шкафы", "Диваны", "Кровати", "Полки"};
+    private static final String[] MATERIAL_TYPES = {"Дерево", "Металл", "Ткань", "Стекло", "Пластик"};
+    private static final String[] UNITS = {"м", "кг", "м²", "шт"};
+    private static final long DAY_MILLIS = 86_400_000L;
+    
+    private final Random random;
+    private final long now = System.currentTimeMillis();
+    
+    SyntheticData(long seed) {
+        random = new Random(seed);
+    }
+    
+    Customer customer(int number) {
+        Customer customer = new Customer("Клиент " + number, "client" + number + "@example.com",
+                "+7 9" + (100_000_000 + random.nextInt(900_000_000)), "г. Москва, ул. Лесная, д. " + (1 + random.nextInt(200)));
+        customer.setId(new ObjectId());
+        return customer;
+    }
+    
+    Furniture furniture(int number) {
+        Furniture furniture = new Furniture("Изделие " + number, CATEGORIES[random.nextInt(CATEGORIES.length)],
+                1_000 + random.nextInt(99_000), random.nextInt(500));
+        furniture.setId(new ObjectId());
+        return furniture;
+    }
+    
+    Material material(int number) {
+        Material material = new Material("Материал " + number, MATERIAL_TYPES[random.nextInt(MATERIAL_TYPES.length)],
+                10 + random.nextInt(5_000) / 10.0, UNITS[random.nextInt(UNITS.length)], random.nextInt(10_000));
+        material.setId(new ObjectId());
+        return material;
+    }
+    
+    FurnitureDetails details(Furniture furniture, List<Material> materials, int usages) {
+        List<MaterialUsage> materialUsages = new ArrayList<>(usages);
+        for (int i = 0; i < usages; i++) {
+            materialUsages.add(new MaterialUsage(materials.get(random.nextInt(materials.size())).getId(),
+                    1 + random.nextInt(100) / 10.0));
+        }
+        FurnitureDetails details = new FurnitureDetails(furniture.getId(), "Описание изделия " + furniture.getName(),
+                (40 + random.nextInt(160)) + "x" + (30 + random.nextInt(70)) + "x" + (40 + random.nextInt(180)) + " см",
+                5 + random.nextInt(950) / 10.0, materialUsages);
+        details.setId(new ObjectId());
+        return details;
+    }
+    
+    Order order(List<Customer> customers, List<Furniture> catalog, int items) {
+        List<OrderItem> orderItems = new ArrayList<>(items);
+        double total = 0;
+        for (int i = 0; i < items; i++) {
+            Furniture furniture = catalog.get(random.nextInt(catalog.size()));
+            OrderItem item = new OrderItem(furniture.getId(), 1 + random.nextInt(4), furniture.getPrice());
+            total += item.getQuantity() * item.getPrice();
+            orderItems.add(item);
+        }
+        Order order = new Order(customers.get(random.nextInt(customers.size())).getId(),
+                new Date(now - random.nextInt(1_000) * DAY_MILLIS), STATUSES[random.nextInt(STATUSES.length)],
+                total, orderItems);
+        order.setId(new ObjectId());
+        return order;
+    }
+    
+    List<Customer> customers(int count) {
+        List<Customer> customers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            customers.add(customer(i));
+        }
+        return customers;
+    }
+    
+    List<Furniture> catalog(int count) {
+        List<Furniture> catalog = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            catalog.add(furniture(i));
+        }
+        return catalog;
+    }
+    
+    List<Material> materials(int count) {
+        List<Material> materials = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            materials.add(material(i));
+        }
+        return materials;
+    }
+    
+    List<Order> orders(int count, List<Customer> customers, List<Furniture> catalog) {
+        List<Order> orders = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            orders.add(order(customers, catalog, 1 + random.nextInt(5)));
+        }
+        return orders;
+    }
+}
@@ -0,0 +1,133 @@
+package com.furniture.jmh;
+
+import com.furniture.model.Customer;
+import com.furniture.model.Order;
+import com.furniture.ui.panels.ColumnType;
+import com.furniture.ui.panels.ColumnarTableModel;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.swing.table.DefaultTableModel;
+import javax.swing.table.TableModel;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order rows held in a DefaultTableModel as pre-formatted strings, as the panels used to,
+ * against the typed {@link ColumnarTableModel}: filling the model, and producing the text
+ * of one screen of cells, which is all the columnar model formats per repaint.
+ *
+ * The gc profiler's bytes per operation of the fill benchmarks show what each model
+ * allocates for its rows.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class TableModelBenchmark {
+    private static final String[] COLUMN_NAMES = {"ID", "Клиент", "Дата", "Статус", "Общая стоимость"};
+    private static final ColumnType[] COLUMN_TYPES = {
+        ColumnType.ID, ColumnType.TEXT, ColumnType.DATE, ColumnType.TEXT, ColumnType.MONEY
+    };
+    private static final int CUSTOMERS = 5_000;
+    private static final int VISIBLE_ROWS = 40;
+    
+    @Param({"100000", "1000000"})
+    private int rows;
+    
+    private List<Object[]> typedRows;
+    private DefaultTableModel formatted;
+    private ColumnarTableModel columnar;
+    private Random random;
+    
+    @Setup
+    public void setUp() {
+        SyntheticData data = new SyntheticData(42);
+        List<Customer> customers = data.customers(CUSTOMERS);
+        Map<ObjectId, String> customerNames = new HashMap<>();
+        for (Customer customer : customers) {
+            customerNames.put(customer.getId(), customer.getName());
+        }
+        typedRows = new ArrayList<>(rows);
+        // The customer names are shared between rows, as they are in the resolver
+        for (Order order : data.orders(rows, customers, data.catalog(200))) {
+            typedRows.add(new Object[] {
+                order.getId(),
+                customerNames.get(order.getCustomerId()),
+                order.getOrderDate(),
+                order.getStatus(),
+                order.getTotalPrice()
+            });
+        }
+        formatted = fillFormatted();
+        columnar = fillColumnar();
+        random = new Random(7);
+    }
+    
+    @Benchmark
+    public DefaultTableModel fillFormatted() {
+        DefaultTableModel model = new DefaultTableModel(COLUMN_NAMES, 0);
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+        for (Object[] row : typedRows) {
+            model.addRow(new Object[] {
+                row[0].toString(),
+                row[1],
+                dateFormat.format((Date) row[2]),
+                row[3],
+                String.format("$%.2f", (Double) row[4])
+            });
+        }
+        return model;
+    }
+    
+    @Benchmark
+    public ColumnarTableModel fillColumnar() {
+        ColumnarTableModel model = new ColumnarTableModel(COLUMN_NAMES, COLUMN_TYPES);
+        model.addRows(typedRows);
+        return model;
+    }
+    
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void paintFormatted(Blackhole blackhole) {
+        paint(formatted, null, blackhole);
+    }
+    
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void paintColumnar(Blackhole blackhole) {
+        paint(columnar, COLUMN_TYPES, blackhole);
+    }
+    
+    /**
+     * The text of every cell on one screen at a random scroll position.
+     */
+    private void paint(TableModel model, ColumnType[] types, Blackhole blackhole) {
+        int first = random.nextInt(Math.max(1, model.getRowCount() - VISIBLE_ROWS));
+        for (int row = first; row < Math.min(first + VISIBLE_ROWS, model.getRowCount()); row++) {
+            for (int column = 0; column < model.getColumnCount(); column++) {
+                Object value = model.getValueAt(row, column);
+                blackhole.consume(types != null ? types[column].format(value) : String.valueOf(value));
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,132 @@
+package com.furniture.jmh;
+
+import com.furniture.model.Customer;
+import com.furniture.model.Furniture;
+import com.furniture.model.Order;
+import com.furniture.model.OrderSummary;
+import com.furniture.repository.ReferenceResolver;
+import com.furniture.ui.panels.ColumnType;
+import com.furniture.ui.panels.ColumnarTableModel;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filling the orders table the way OrdersPanel does: the customers of a batch of order
+ * summaries are resolved with one (here in-memory) lookup, every summary becomes a typed
+ * row, and the rows are appended to the {@link ColumnarTableModel}.
+ *
+ * The model has no listeners, so this measures the model and row building, not painting.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class TablePopulationBenchmark {
+    private static final String[] COLUMN_NAMES = {"ID", "Клиент", "Дата", "Статус", "Общая стоимость"};
+    private static final ColumnType[] COLUMN_TYPES = {
+        ColumnType.ID, ColumnType.TEXT, ColumnType.DATE, ColumnType.TEXT, ColumnType.MONEY
+    };
+    private static final int CUSTOMERS = 5_000;
+    
+    @Param({"10000", "100000"})
+    private int rows;
+    
+    private List<OrderSummary> orders;
+    private Map<ObjectId, Customer> customersById;
+    private List<Object[]> builtRows;
+    
+    @Setup
+    public void setUp() {
+        SyntheticData data = new SyntheticData(42);
+        List<Customer> customers = data.customers(CUSTOMERS);
+        List<Furniture> catalog = data.catalog(200);
+        orders = new ArrayList<>(rows);
+        for (Order order : data.orders(rows, customers, catalog)) {
+            orders.add(OrderSummary.from(order));
+        }
+        customersById = new HashMap<>();
+        for (Customer customer : customers) {
+            customersById.put(customer.getId(), customer);
+        }
+        builtRows = buildRows();
+    }
+    
+    private Map<ObjectId, Customer> loadCustomers(Collection<ObjectId> ids) {
+        Map<ObjectId, Customer> found = new HashMap<>();
+        for (ObjectId id : ids) {
+            Customer customer = customersById.get(id);
+            if (customer != null) {
+                found.put(id, customer);
+            }
+        }
+        return found;
+    }
+    
+    private List<Object[]> buildRows() {
+        ReferenceResolver<Customer> customers = new ReferenceResolver<>(this::loadCustomers);
+        customers.prefetch(orders, OrderSummary::getCustomerId);
+        List<Object[]> result = new ArrayList<>(orders.size());
+        for (OrderSummary order : orders) {
+            Customer customer = customers.resolve(order.getCustomerId());
+            result.add(new Object[] {
+                order.getId(),
+                customer != null ? customer.getName() : "Unknown",
+                order.getOrderDate(),
+                order.getStatus(),
+                order.getTotalPrice()
+            });
+        }
+        return result;
+    }
+    
+    @Benchmark
+    public List<Object[]> buildOrderRows() {
+        return buildRows();
+    }
+    
+    @Benchmark
+    public ColumnarTableModel fillModel() {
+        ColumnarTableModel model = new ColumnarTableModel(COLUMN_NAMES, COLUMN_TYPES);
+        model.addRows(builtRows);
+        return model;
+    }
+    
+    @Benchmark
+    public ColumnarTableModel buildAndFill() {
+        ColumnarTableModel model = new ColumnarTableModel(COLUMN_NAMES, COLUMN_TYPES);
+        model.addRows(buildRows());
+        return model;
+    }
+    
+    /**
+     * Row lookups by id after a change event, which build the id index once per model.
+     */
+    @Benchmark
+    public void findRows(Blackhole blackhole) {
+        ColumnarTableModel model = new ColumnarTableModel(COLUMN_NAMES, COLUMN_TYPES);
+        model.addRows(builtRows);
+        for (int i = 0; i < orders.size(); i += 100) {
+            blackhole.consume(model.findRow(orders.get(i).getId()));
+        }
+    }
+}
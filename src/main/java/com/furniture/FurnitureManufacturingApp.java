@@ -1,6 +1,13 @@
 package com.furniture;
 
+import com.furniture.db.IndexRegistry;
 import com.furniture.db.MongoDBService;
+import com.furniture.repository.CustomerRepository;
+import com.furniture.repository.EntityCache;
+import com.furniture.repository.FurnitureDetailsRepository;
+import com.furniture.repository.FurnitureRepository;
+import com.furniture.repository.MaterialRepository;
+import com.furniture.repository.OrderRepository;
 import com.furniture.ui.MainFrame;
 
 import javax.swing.*;
@@ -15,8 +22,10 @@ public class FurnitureManufacturingApp {
             e.printStackTrace();
         }
         
-        // Initialize the MongoDB service
-        MongoDBService.getInstance();
+        // Connect and check the indexes in the background while the window comes up
+        Thread databaseStartup = new Thread(FurnitureManufacturingApp::prepareDatabase, "database-startup");
+        databaseStartup.setDaemon(true);
+        databaseStartup.start();
         
         // Start the application on the Event Dispatch Thread
         SwingUtilities.invokeLater(() -> {
@@ -24,15 +33,51 @@ public class FurnitureManufacturingApp {
             mainFrame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
             mainFrame.setSize(1000, 700);
             mainFrame.setLocationRelativeTo(null);
-            mainFrame.setVisible(true);
             
-            // Handle application shutdown
             mainFrame.addWindowListener(new java.awt.event.WindowAdapter() {
+                @Override
+                public void windowOpened(java.awt.event.WindowEvent windowEvent) {
+                    StartupTimer.mark("first frame");
+                    mainFrame.startLoading();
+                }
+                
+                // Handle application shutdown
                 @Override
                 public void windowClosing(java.awt.event.WindowEvent windowEvent) {
+                    EntityCache.printStatistics();
                     MongoDBService.getInstance().close();
                 }
             });
+            mainFrame.setVisible(true);
         });
     }
+    
+    /**
+     * Opens the first connection, then creates missing indexes and fills search fields of
+     * old documents. Panels may already query meanwhile; they only run slower until then.
+     */
+    private static void prepareDatabase() {
+        MongoDBService mongoDBService = MongoDBService.getInstance();
+        if (mongoDBService.warmUp()) {
+            StartupTimer.mark("MongoDB connected");
+        }
+        
+        // Create or verify the indexes the repositories rely on
+        IndexRegistry indexRegistry = new IndexRegistry();
+        CustomerRepository.declareIndexes(indexRegistry);
+        OrderRepository.declareIndexes(indexRegistry);
+        FurnitureRepository.declareIndexes(indexRegistry);
+        MaterialRepository.declareIndexes(indexRegistry);
+        FurnitureDetailsRepository.declareIndexes(indexRegistry);
+        mongoDBService.ensureIndexes(indexRegistry);
+        
+        // Documents stored by older versions lack the normalized search fields
+        long backfilled = new CustomerRepository().backfillSearchFields()
+                + new FurnitureRepository().backfillSearchFields()
+                + new MaterialRepository().backfillSearchFields();
+        if (backfilled > 0) {
+            System.out.println("Filled search fields of " + backfilled + " documents");
+        }
+        StartupTimer.mark("indexes verified");
+    }
 } 
\ No newline at end of file
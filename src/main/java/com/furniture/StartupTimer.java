@@ -0,0 +1,26 @@
+package com.furniture;
+
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Logs the milestones of the application start with the time since the JVM was launched,
+ * e.g. the first frame on screen and the first rows of the visible tab.
+ */
+public final class StartupTimer {
+    private static final long JVM_START_MILLIS = ManagementFactory.getRuntimeMXBean().getStartTime();
+    private static final Set<String> reached = ConcurrentHashMap.newKeySet();
+    
+    private StartupTimer() {
+    }
+    
+    /**
+     * Logs the milestone the first time it is reached, later calls are ignored.
+     */
+    public static void mark(String milestone) {
+        if (reached.add(milestone)) {
+            System.out.printf("Startup: %s after %d ms%n", milestone, System.currentTimeMillis() - JVM_START_MILLIS);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,171 @@
+package com.furniture.analytics;
+
+import com.furniture.db.MongoDBService;
+import com.furniture.model.Customer;
+import com.furniture.model.Furniture;
+import com.furniture.repository.CustomerRepository;
+import com.furniture.repository.FurnitureRepository;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Sorts;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Revenue and volume reports over the orders collection.
+ *
+ * Every report is a single aggregation pipeline, so the grouping runs inside
+ * the database and only one row per group is returned. Customer and furniture
+ * names of the top groups are resolved afterwards through the repositories.
+ * Results are cached for {@link #CACHE_TTL}; {@link #invalidate()} forces the
+ * next request to recompute.
+ */
+public class AnalyticsService {
+    public enum Report { BY_STATUS, BY_CUSTOMER, BY_FURNITURE, BY_MONTH }
+    
+    private static final String COLLECTION_NAME = "orders";
+    // Cancelled orders bring no revenue, they only show up in the report by status
+    private static final String CANCELLED_STATUS = "Отменен";
+    // Reports by customer and furniture list only the best groups
+    private static final int TOP_LIMIT = 50;
+    private static final Duration CACHE_TTL = Duration.ofMinutes(1);
+    
+    private final MongoDBService mongoDBService;
+    private final CustomerRepository customerRepository;
+    private final FurnitureRepository furnitureRepository;
+    private final ReportCache cache = new ReportCache(CACHE_TTL);
+    
+    public AnalyticsService() {
+        this.mongoDBService = MongoDBService.getInstance();
+        this.customerRepository = new CustomerRepository();
+        this.furnitureRepository = new FurnitureRepository();
+    }
+    
+    public ReportResult getReport(Report report) {
+        return cache.get(report.name(), () -> runReport(report));
+    }
+    
+    public void invalidate() {
+        cache.invalidateAll();
+    }
+    
+    private List<RevenueRow> runReport(Report report) {
+        switch (report) {
+            case BY_STATUS:
+                return revenueByStatus();
+            case BY_CUSTOMER:
+                return revenueByCustomer();
+            case BY_FURNITURE:
+                return revenueByFurniture();
+            case BY_MONTH:
+                return revenueByMonth();
+            default:
+                throw new IllegalArgumentException("Unknown report: " + report);
+        }
+    }
+    
+    public List<RevenueRow> revenueByStatus() {
+        List<Document> groups = mongoDBService.aggregate(COLLECTION_NAME, Arrays.asList(
+                groupOrders("$status"),
+                Aggregates.sort(Sorts.descending("revenue"))));
+        
+        List<RevenueRow> rows = new ArrayList<>(groups.size());
+        for (Document group : groups) {
+            rows.add(toRow(group, group.get("_id") != null ? group.get("_id").toString() : "—"));
+        }
+        return rows;
+    }
+    
+    public List<RevenueRow> revenueByCustomer() {
+        List<Document> groups = mongoDBService.aggregate(COLLECTION_NAME, Arrays.asList(
+                excludeCancelled(),
+                groupOrders("$customerId"),
+                Aggregates.sort(Sorts.descending("revenue")),
+                Aggregates.limit(TOP_LIMIT)));
+        
+        Map<ObjectId, Customer> customers = customerRepository.getCustomersByIds(groupIds(groups));
+        List<RevenueRow> rows = new ArrayList<>(groups.size());
+        for (Document group : groups) {
+            Customer customer = customers.get(group.get("_id"));
+            rows.add(toRow(group, customer != null ? customer.getName() : "Unknown"));
+        }
+        return rows;
+    }
+    
+    /**
+     * Revenue per furniture item from the order lines, quantity times unit price.
+     */
+    public List<RevenueRow> revenueByFurniture() {
+        List<Document> groups = mongoDBService.aggregate(COLLECTION_NAME, Arrays.asList(
+                excludeCancelled(),
+                Aggregates.unwind("$items"),
+                Aggregates.group("$items.furnitureId",
+                        Accumulators.sum("orders", 1),
+                        Accumulators.sum("quantity", "$items.quantity"),
+                        Accumulators.sum("revenue", new Document("$multiply", Arrays.asList("$items.quantity", "$items.price")))),
+                Aggregates.sort(Sorts.descending("revenue")),
+                Aggregates.limit(TOP_LIMIT)));
+        
+        Map<ObjectId, Furniture> furniture = furnitureRepository.getFurnitureByIds(groupIds(groups));
+        List<RevenueRow> rows = new ArrayList<>(groups.size());
+        for (Document group : groups) {
+            Furniture item = furniture.get(group.get("_id"));
+            rows.add(toRow(group, item != null ? item.getName() : "Unknown"));
+        }
+        return rows;
+    }
+    
+    public List<RevenueRow> revenueByMonth() {
+        List<Document> groups = mongoDBService.aggregate(COLLECTION_NAME, Arrays.asList(
+                excludeCancelled(),
+                groupOrders(new Document("$dateToString", new Document("format", "%Y-%m").append("date", "$orderDate"))),
+                Aggregates.sort(Sorts.ascending("_id"))));
+        
+        List<RevenueRow> rows = new ArrayList<>(groups.size());
+        for (Document group : groups) {
+            rows.add(toRow(group, group.get("_id") != null ? group.get("_id").toString() : "—"));
+        }
+        return rows;
+    }
+    
+    private static Bson excludeCancelled() {
+        return Aggregates.match(Filters.ne("status", CANCELLED_STATUS));
+    }
+    
+    // Orders, units (the sum of item quantities of each order) and revenue per group key
+    private static Bson groupOrders(Object groupKey) {
+        return Aggregates.group(groupKey,
+                Accumulators.sum("orders", 1),
+                Accumulators.sum("quantity", new Document("$sum", "$items.quantity")),
+                Accumulators.sum("revenue", "$totalPrice"));
+    }
+    
+    private static List<ObjectId> groupIds(List<Document> groups) {
+        List<ObjectId> ids = new ArrayList<>(groups.size());
+        for (Document group : groups) {
+            if (group.get("_id") instanceof ObjectId) {
+                ids.add(group.getObjectId("_id"));
+            }
+        }
+        return ids;
+    }
+    
+    private static RevenueRow toRow(Document group, String label) {
+        return new RevenueRow(label, number(group, "orders").longValue(), number(group, "quantity").longValue(),
+                number(group, "revenue").doubleValue());
+    }
+    
+    // $sum returns an int, a long or a double depending on the summed values
+    private static Number number(Document group, String field) {
+        Object value = group.get(field);
+        return value instanceof Number ? (Number) value : 0;
+    }
+}
\ No newline at end of file
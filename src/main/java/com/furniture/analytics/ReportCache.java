@@ -0,0 +1,54 @@
+package com.furniture.analytics;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Keeps report results for a short time, so switching between reports or
+ * reopening the tab does not run the same aggregation again. Results are small,
+ * so the number of entries is bounded by the number of distinct reports.
+ */
+class ReportCache {
+    private final long ttlNanos;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    
+    ReportCache(Duration ttl) {
+        this.ttlNanos = ttl.toNanos();
+    }
+    
+    /**
+     * Returns the cached result for the key, computing it if missing or expired.
+     * A computation that throws is passed on and nothing is cached.
+     */
+    ReportResult get(String key, Supplier<List<RevenueRow>> report) {
+        long now = System.nanoTime();
+        Entry entry = entries.get(key);
+        if (entry != null && now - entry.expiresAt < 0) {
+            return new ReportResult(entry.rows, entry.computedAtMillis, true);
+        }
+        
+        List<RevenueRow> rows = report.get();
+        long computedAtMillis = System.currentTimeMillis();
+        entries.put(key, new Entry(rows, computedAtMillis, now + ttlNanos));
+        return new ReportResult(rows, computedAtMillis, false);
+    }
+    
+    void invalidateAll() {
+        entries.clear();
+    }
+    
+    private static class Entry {
+        private final List<RevenueRow> rows;
+        private final long computedAtMillis;
+        private final long expiresAt;
+        
+        Entry(List<RevenueRow> rows, long computedAtMillis, long expiresAt) {
+            this.rows = rows;
+            this.computedAtMillis = computedAtMillis;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
\ No newline at end of file
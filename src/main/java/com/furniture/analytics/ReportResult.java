@@ -0,0 +1,15 @@
+package com.furniture.analytics;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Rows of a report and when they were computed; cached results may be up to one cache TTL old.
+ */
+@Value
+public class ReportResult {
+    List<RevenueRow> rows;
+    long computedAtMillis;
+    boolean cached;
+}
\ No newline at end of file
@@ -0,0 +1,15 @@
+package com.furniture.analytics;
+
+import lombok.Value;
+
+/**
+ * One line of a revenue report: a group (status, customer, furniture item or month)
+ * with its number of orders, units sold and revenue.
+ */
+@Value
+public class RevenueRow {
+    String label;
+    long orderCount;
+    long quantity;
+    double revenue;
+}
\ No newline at end of file
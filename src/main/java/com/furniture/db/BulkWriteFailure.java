@@ -0,0 +1,14 @@
+package com.furniture.db;
+
+import lombok.Value;
+
+/**
+ * Write that was rejected by the server within a bulk operation.
+ * The index refers to the position of the item in the list passed to the bulk call.
+ */
+@Value
+public class BulkWriteFailure {
+    int index;
+    int code;
+    String message;
+}
\ No newline at end of file
@@ -0,0 +1,68 @@
+package com.furniture.db;
+
+import com.mongodb.bulk.BulkWriteResult;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a bulk insert, upsert or delete in {@link MongoDBService}.
+ *
+ * Bulk writes are unordered, so one rejected item (e.g. a duplicate key) does
+ * not stop the others. The failures list tells which items have to be fixed
+ * and retried; everything else has been written.
+ */
+@Getter
+public class BulkWriteReport {
+    private final int requested;
+    private int inserted;
+    private int upserted;
+    private int modified;
+    private int deleted;
+    private int batches;
+    private long elapsedNanos;
+    private final List<BulkWriteFailure> failures = new ArrayList<>();
+    
+    BulkWriteReport(int requested) {
+        this.requested = requested;
+    }
+    
+    void addBatch(BulkWriteResult result) {
+        batches++;
+        if (!result.wasAcknowledged()) {
+            return;
+        }
+        inserted += result.getInsertedCount();
+        upserted += result.getUpserts().size();
+        modified += result.getModifiedCount();
+        deleted += result.getDeletedCount();
+    }
+    
+    void addFailure(int index, int code, String message) {
+        failures.add(new BulkWriteFailure(index, code, message));
+    }
+    
+    void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+    
+    public boolean isSuccessful() {
+        return failures.isEmpty();
+    }
+    
+    public int getWritten() {
+        return inserted + upserted + modified + deleted;
+    }
+    
+    public double getDocumentsPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : requested * 1_000_000_000.0 / elapsedNanos;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("Bulk write: %d requested, %d inserted, %d upserted, %d modified, %d deleted, %d failed in %d batches, %d ms (%.0f docs/s)",
+                requested, inserted, upserted, modified, deleted, failures.size(), batches,
+                elapsedNanos / 1_000_000, getDocumentsPerSecond());
+    }
+}
\ No newline at end of file
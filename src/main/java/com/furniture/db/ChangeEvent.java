@@ -0,0 +1,17 @@
+package com.furniture.db;
+
+import lombok.Value;
+import org.bson.types.ObjectId;
+
+/**
+ * Row-level change reported by a change stream.
+ * The entity is the current state of the document, it is null for deletes.
+ */
+@Value
+public class ChangeEvent<T> {
+    public enum Type { INSERT, UPDATE, DELETE }
+    
+    Type type;
+    ObjectId id;
+    T entity;
+}
\ No newline at end of file
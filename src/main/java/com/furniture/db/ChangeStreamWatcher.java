@@ -0,0 +1,158 @@
+package com.furniture.db;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.types.ObjectId;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Follows the change stream of one collection on a background thread and turns
+ * inserts, updates, replaces and deletes into {@link ChangeEvent}s.
+ *
+ * Change streams need a replica set; on a standalone server the watcher logs
+ * that live updates are unavailable and stops. After a network error it resumes
+ * from the last seen event, so no change is lost while the stream reconnects.
+ */
+public class ChangeStreamWatcher<T> implements AutoCloseable {
+    // Server error code for "$changeStream is only supported on replica sets"
+    private static final int CHANGE_STREAMS_NOT_SUPPORTED = 40573;
+    private static final long MAX_AWAIT_SECONDS = 1;
+    private static final long RETRY_DELAY_MILLIS = 5000;
+    
+    private final MongoCollection<T> collection;
+    private final Consumer<ChangeEvent<T>> listener;
+    private volatile boolean closed;
+    private volatile boolean unsupported;
+    // Set when the thread ends for any reason, also an unexpected error
+    private volatile boolean stopped;
+    private BsonDocument resumeToken;
+    
+    ChangeStreamWatcher(MongoCollection<T> collection, Consumer<ChangeEvent<T>> listener) {
+        this.collection = collection;
+        this.listener = listener;
+    }
+    
+    void start() {
+        Thread.ofVirtual()
+                .name("change-stream-" + collection.getNamespace().getCollectionName())
+                .start(this::run);
+    }
+    
+    /**
+     * False once the watcher is closed or stopped, or the server turned out not to support change streams,
+     * in which case the caller has to reload to see changes made by other clients.
+     */
+    public boolean isLive() {
+        return !closed && !unsupported && !stopped;
+    }
+    
+    @Override
+    public void close() {
+        closed = true;
+    }
+    
+    private void run() {
+        try {
+            follow();
+        } catch (RuntimeException e) {
+            System.err.println("Change stream of " + collection.getNamespace().getCollectionName() + " stopped: " + e);
+        } finally {
+            stopped = true;
+        }
+    }
+    
+    private void follow() {
+        String collectionName = collection.getNamespace().getCollectionName();
+        while (!closed) {
+            try (MongoChangeStreamCursor<ChangeStreamDocument<T>> cursor = openCursor()) {
+                while (!closed) {
+                    // Returns null after the await time, so close() is noticed within a second
+                    ChangeStreamDocument<T> change = cursor.tryNext();
+                    if (change != null) {
+                        resumeToken = change.getResumeToken();
+                        dispatch(change);
+                    }
+                }
+            } catch (MongoCommandException e) {
+                if (e.getErrorCode() == CHANGE_STREAMS_NOT_SUPPORTED) {
+                    System.err.println("Change streams need a replica set, live updates of " + collectionName + " are disabled");
+                    unsupported = true;
+                    return;
+                }
+                retryLater(collectionName, e);
+            } catch (MongoException | IllegalStateException e) {
+                if (closed) {
+                    return;
+                }
+                retryLater(collectionName, e);
+            }
+        }
+    }
+    
+    private MongoChangeStreamCursor<ChangeStreamDocument<T>> openCursor() {
+        var stream = collection.watch()
+                .fullDocument(FullDocument.UPDATE_LOOKUP)
+                .maxAwaitTime(MAX_AWAIT_SECONDS, TimeUnit.SECONDS);
+        if (resumeToken != null) {
+            stream = stream.resumeAfter(resumeToken);
+        }
+        return stream.cursor();
+    }
+    
+    private void dispatch(ChangeStreamDocument<T> change) {
+        BsonDocument documentKey = change.getDocumentKey();
+        BsonValue id = documentKey != null ? documentKey.get("_id") : null;
+        if (id == null || !id.isObjectId()) {
+            return;
+        }
+        
+        ObjectId objectId = id.asObjectId().getValue();
+        switch (change.getOperationType()) {
+            case INSERT:
+                notifyListener(new ChangeEvent<>(ChangeEvent.Type.INSERT, objectId, change.getFullDocument()));
+                break;
+            case UPDATE:
+            case REPLACE:
+                // The document may be gone again by the time the update is looked up
+                if (change.getFullDocument() != null) {
+                    notifyListener(new ChangeEvent<>(ChangeEvent.Type.UPDATE, objectId, change.getFullDocument()));
+                } else {
+                    notifyListener(new ChangeEvent<>(ChangeEvent.Type.DELETE, objectId, null));
+                }
+                break;
+            case DELETE:
+                notifyListener(new ChangeEvent<>(ChangeEvent.Type.DELETE, objectId, null));
+                break;
+            default:
+                break;
+        }
+    }
+    
+    // A failing listener loses this one event, not the stream
+    private void notifyListener(ChangeEvent<T> event) {
+        try {
+            listener.accept(event);
+        } catch (RuntimeException e) {
+            System.err.println("Error handling change of " + collection.getNamespace().getCollectionName()
+                    + " " + event.getId() + ": " + e);
+            e.printStackTrace();
+        }
+    }
+    
+    private void retryLater(String collectionName, Exception e) {
+        System.err.println("Change stream of " + collectionName + " interrupted, retrying: " + e.getMessage());
+        try {
+            Thread.sleep(RETRY_DELAY_MILLIS);
+        } catch (InterruptedException interrupted) {
+            closed = true;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,68 @@
+package com.furniture.db;
+
+import lombok.Value;
+import org.bson.Document;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Index a repository needs on one of its collections.
+ * Keys keep their declaration order, 1 for ascending and -1 for descending fields,
+ * "text" for the fields of a text index. A collection can have only one text index.
+ */
+@Value
+public class IndexDefinition {
+    public static final String TEXT = "text";
+    
+    String collectionName;
+    Document keys;
+    boolean unique;
+    // Stemming language of a text index, null for other indexes
+    String textLanguage;
+    
+    public static IndexDefinition ascending(String collectionName, String... fieldNames) {
+        Document keys = new Document();
+        for (String fieldName : fieldNames) {
+            keys.append(fieldName, 1);
+        }
+        return new IndexDefinition(collectionName, keys, false, null);
+    }
+    
+    /**
+     * Text index over the given fields. The fields are kept in alphabetical order,
+     * since that is how the server lists them.
+     */
+    public static IndexDefinition text(String collectionName, String language, String... fieldNames) {
+        Document keys = new Document();
+        Arrays.stream(fieldNames).sorted().forEach(fieldName -> keys.append(fieldName, TEXT));
+        return new IndexDefinition(collectionName, keys, false, language);
+    }
+    
+    public IndexDefinition asUnique() {
+        return new IndexDefinition(collectionName, keys, true, textLanguage);
+    }
+    
+    public boolean isText() {
+        return textLanguage != null;
+    }
+    
+    /**
+     * Name in the same format the server generates, e.g. status_1_orderDate_1.
+     */
+    public String getName() {
+        StringBuilder name = new StringBuilder();
+        for (Map.Entry<String, Object> key : keys.entrySet()) {
+            if (name.length() > 0) {
+                name.append('_');
+            }
+            name.append(key.getKey()).append('_').append(key.getValue());
+        }
+        return name.toString();
+    }
+    
+    @Override
+    public String toString() {
+        return collectionName + "." + getName() + (unique ? " (unique)" : "");
+    }
+}
\ No newline at end of file
@@ -0,0 +1,28 @@
+package com.furniture.db;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Collects the indexes declared by the repositories, grouped by collection,
+ * so that {@link MongoDBService#ensureIndexes(IndexRegistry)} can provision them at startup.
+ */
+public class IndexRegistry {
+    private final Map<String, List<IndexDefinition>> definitions = new LinkedHashMap<>();
+    
+    public IndexRegistry register(IndexDefinition definition) {
+        definitions.computeIfAbsent(definition.getCollectionName(), name -> new ArrayList<>()).add(definition);
+        return this;
+    }
+    
+    public Set<String> getCollectionNames() {
+        return definitions.keySet();
+    }
+    
+    public List<IndexDefinition> getDefinitions(String collectionName) {
+        return definitions.getOrDefault(collectionName, List.of());
+    }
+}
\ No newline at end of file
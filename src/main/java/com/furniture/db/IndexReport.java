@@ -0,0 +1,56 @@
+package com.furniture.db;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of {@link MongoDBService#ensureIndexes(IndexRegistry)}.
+ *
+ * Missing indexes are declared ones that could not be created (e.g. duplicates
+ * under a unique index). Redundant indexes exist on the server but are either
+ * not declared by any repository or are a prefix of another index on the same
+ * collection, they cost write throughput and are candidates for dropping.
+ */
+@Getter
+public class IndexReport {
+    private final List<String> verified = new ArrayList<>();
+    private final List<String> created = new ArrayList<>();
+    private final List<String> missing = new ArrayList<>();
+    private final List<String> redundant = new ArrayList<>();
+    
+    void addVerified(String index) {
+        verified.add(index);
+    }
+    
+    void addCreated(String index) {
+        created.add(index);
+    }
+    
+    void addMissing(String index) {
+        missing.add(index);
+    }
+    
+    void addRedundant(String index) {
+        redundant.add(index);
+    }
+    
+    public boolean isHealthy() {
+        return missing.isEmpty();
+    }
+    
+    public void print() {
+        System.out.println("Indexes: " + verified.size() + " verified, " + created.size() + " created, "
+                + missing.size() + " missing, " + redundant.size() + " redundant");
+        for (String index : created) {
+            System.out.println("  created: " + index);
+        }
+        for (String index : missing) {
+            System.err.println("  missing: " + index);
+        }
+        for (String index : redundant) {
+            System.out.println("  redundant: " + index);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,14 @@
+package com.furniture.db;
+
+import lombok.Value;
+import org.bson.types.ObjectId;
+
+/**
+ * Position in a result set sorted by (sortField, _id).
+ * Holds the sort key of the last row of a page, the next page starts right after it.
+ */
+@Value
+public class KeysetCursor {
+    Object sortValue;
+    ObjectId id;
+}
\ No newline at end of file
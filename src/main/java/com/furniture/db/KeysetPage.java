@@ -0,0 +1,29 @@
+package com.furniture.db;
+
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One window of a keyset-paginated query.
+ * The next cursor is null when the query has no more rows after this page.
+ */
+@Value
+public class KeysetPage<T> {
+    List<T> items;
+    KeysetCursor nextCursor;
+    
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+    
+    public <R> KeysetPage<R> map(Function<T, R> mapper) {
+        List<R> mapped = new ArrayList<>(items.size());
+        for (T item : items) {
+            mapped.add(mapper.apply(item));
+        }
+        return new KeysetPage<>(mapped, nextCursor);
+    }
+}
\ No newline at end of file
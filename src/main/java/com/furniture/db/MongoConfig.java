@@ -0,0 +1,310 @@
+package com.furniture.db;
+
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoCompressor;
+import com.mongodb.ReadPreference;
+import com.mongodb.WriteConcern;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Settings of the MongoDB client: where to connect, the connection pool, timeouts,
+ * wire compression, the read preference of report queries and the write concern of
+ * each kind of write.
+ *
+ * A profile supplies the defaults for the kind of network between the application and
+ * the database. Every key can be overridden by, from lowest to highest precedence:
+ *   - the file mongodb.properties in the working directory, or the file named by the
+ *     system property furniture.mongo.config
+ *   - system properties with the prefix "furniture.mongo.", e.g. -Dfurniture.mongo.pool.maxSize=50
+ *   - environment variables with the prefix FURNITURE_MONGO_ and underscores for dots,
+ *     e.g. FURNITURE_MONGO_POOL_MAXSIZE=50
+ * Keys are case-insensitive. Options given in the uri itself win over all of these.
+ */
+public final class MongoConfig {
+    public static final String PROFILE = "profile";
+    public static final String URI = "uri";
+    public static final String DATABASE = "database";
+    public static final String APP_NAME = "appName";
+    public static final String POOL_MIN_SIZE = "pool.minSize";
+    public static final String POOL_MAX_SIZE = "pool.maxSize";
+    public static final String POOL_MAX_IDLE_MS = "pool.maxIdleTimeMs";
+    public static final String POOL_MAX_WAIT_MS = "pool.maxWaitTimeMs";
+    public static final String CONNECT_TIMEOUT_MS = "connectTimeoutMs";
+    public static final String SOCKET_TIMEOUT_MS = "socketTimeoutMs";
+    public static final String SERVER_SELECTION_TIMEOUT_MS = "serverSelectionTimeoutMs";
+    // Comma separated, in order of preference: zstd, snappy, zlib; empty for none
+    public static final String COMPRESSORS = "compressors";
+    public static final String REPORT_READ_PREFERENCE = "readPreference.reports";
+    public static final String INTERACTIVE_WRITE_CONCERN = "writeConcern.interactive";
+    public static final String BULK_WRITE_CONCERN = "writeConcern.bulk";
+    
+    private static final String CONFIG_FILE_PROPERTY = "furniture.mongo.config";
+    private static final String DEFAULT_CONFIG_FILE = "mongodb.properties";
+    private static final String PROPERTY_PREFIX = "furniture.mongo.";
+    private static final String ENV_PREFIX = "FURNITURE_MONGO_";
+    
+    /**
+     * Defaults for the kind of network between the application and the database.
+     */
+    public enum Profile {
+        // Database on the same machine: a small pool, no compression, fail fast
+        LOCAL(0, 10, 60_000, 2_000, 2_000, 10_000, 3_000, "", "primary", "w1", "w1"),
+        // Database in the same data center: compression that costs little CPU
+        LAN(2, 50, 300_000, 5_000, 5_000, 30_000, 10_000, "snappy,zlib", "primary", "majority", "w1"),
+        // Database across a slow or metered link: the tightest compression, reports off the primary
+        WAN(2, 20, 600_000, 15_000, 10_000, 120_000, 30_000, "zstd,snappy,zlib", "secondaryPreferred", "majority", "majority");
+        
+        private final Properties defaults = new Properties();
+        
+        Profile(int minSize, int maxSize, long maxIdleMillis, long maxWaitMillis, long connectTimeoutMillis,
+                long socketTimeoutMillis, long serverSelectionTimeoutMillis, String compressors,
+                String reportReadPreference, String interactiveWriteConcern, String bulkWriteConcern) {
+            set(URI, "mongodb://localhost:27017");
+            set(DATABASE, "furnitureManufacturing");
+            set(APP_NAME, "furnitureManufacturingApp");
+            set(POOL_MIN_SIZE, minSize);
+            set(POOL_MAX_SIZE, maxSize);
+            set(POOL_MAX_IDLE_MS, maxIdleMillis);
+            set(POOL_MAX_WAIT_MS, maxWaitMillis);
+            set(CONNECT_TIMEOUT_MS, connectTimeoutMillis);
+            set(SOCKET_TIMEOUT_MS, socketTimeoutMillis);
+            set(SERVER_SELECTION_TIMEOUT_MS, serverSelectionTimeoutMillis);
+            set(COMPRESSORS, compressors);
+            set(REPORT_READ_PREFERENCE, reportReadPreference);
+            set(INTERACTIVE_WRITE_CONCERN, interactiveWriteConcern);
+            set(BULK_WRITE_CONCERN, bulkWriteConcern);
+        }
+        
+        private void set(String key, Object value) {
+            defaults.setProperty(normalizeKey(key), String.valueOf(value));
+        }
+    }
+    
+    private final Profile profile;
+    private final Properties values;
+    private final List<MongoCompressor> compressors;
+    
+    private MongoConfig(Profile profile, Properties overrides) {
+        this.profile = profile;
+        this.values = new Properties(profile.defaults);
+        this.values.putAll(overrides);
+        this.compressors = parseCompressors();
+    }
+    
+    /**
+     * The defaults of the local profile, ignoring any configuration.
+     */
+    public static MongoConfig defaults() {
+        return new MongoConfig(Profile.LOCAL, new Properties());
+    }
+    
+    /**
+     * Reads the settings from the configuration file, system properties and environment.
+     * Throws IllegalArgumentException naming the setting if a value is invalid.
+     */
+    public static MongoConfig load() {
+        return load(null);
+    }
+    
+    /**
+     * Reads the settings like {@link #load()}, but with the given profile instead of the
+     * configured one, e.g. to compare profiles. Explicitly configured keys still apply.
+     */
+    public static MongoConfig load(Profile profile) {
+        Properties overrides = new Properties();
+        readFile(overrides);
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith(PROPERTY_PREFIX) && !name.equals(CONFIG_FILE_PROPERTY)) {
+                overrides.setProperty(normalizeKey(name.substring(PROPERTY_PREFIX.length())), System.getProperty(name));
+            }
+        }
+        for (Map.Entry<String, String> variable : System.getenv().entrySet()) {
+            if (variable.getKey().startsWith(ENV_PREFIX)) {
+                overrides.setProperty(normalizeKey(variable.getKey().substring(ENV_PREFIX.length()).replace('_', '.')), variable.getValue());
+            }
+        }
+        
+        if (profile == null) {
+            String name = overrides.getProperty(normalizeKey(PROFILE), Profile.LOCAL.name());
+            try {
+                profile = Profile.valueOf(name.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown MongoDB profile '" + name + "', expected local, lan or wan");
+            }
+        }
+        MongoConfig config = new MongoConfig(profile, overrides);
+        // Fails now rather than on the first report or bulk write
+        config.toClientSettings();
+        config.getReportReadPreference();
+        config.getBulkWriteConcern();
+        return config;
+    }
+    
+    private static void readFile(Properties target) {
+        String configured = System.getProperty(CONFIG_FILE_PROPERTY);
+        Path file = Paths.get(configured != null ? configured : DEFAULT_CONFIG_FILE);
+        if (!Files.exists(file)) {
+            if (configured != null) {
+                System.err.println("MongoDB configuration file not found: " + file.toAbsolutePath());
+            }
+            return;
+        }
+        Properties fileValues = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            fileValues.load(in);
+        } catch (IOException e) {
+            System.err.println("Error reading MongoDB configuration " + file + ": " + e.getMessage());
+            return;
+        }
+        for (String name : fileValues.stringPropertyNames()) {
+            target.setProperty(normalizeKey(name), fileValues.getProperty(name).trim());
+        }
+    }
+    
+    private static String normalizeKey(String key) {
+        return key.trim().toLowerCase(Locale.ROOT);
+    }
+    
+    public Profile getProfile() {
+        return profile;
+    }
+    
+    public String get(String key) {
+        return values.getProperty(normalizeKey(key));
+    }
+    
+    public String getDatabaseName() {
+        return get(DATABASE);
+    }
+    
+    public ReadPreference getReportReadPreference() {
+        return ReadPreference.valueOf(get(REPORT_READ_PREFERENCE));
+    }
+    
+    public WriteConcern getInteractiveWriteConcern() {
+        return parseWriteConcern(INTERACTIVE_WRITE_CONCERN);
+    }
+    
+    public WriteConcern getBulkWriteConcern() {
+        return parseWriteConcern(BULK_WRITE_CONCERN);
+    }
+    
+    /**
+     * Compressors to offer the server, in order of preference. Those whose library is
+     * not on the classpath are left out with a warning (zstd and snappy are optional
+     * dependencies, zlib is always available).
+     */
+    public List<MongoCompressor> getCompressors() {
+        return compressors;
+    }
+    
+    private List<MongoCompressor> parseCompressors() {
+        List<MongoCompressor> compressors = new ArrayList<>();
+        for (String name : get(COMPRESSORS).split(",")) {
+            String compressor = name.trim().toLowerCase(Locale.ROOT);
+            switch (compressor) {
+                case "":
+                    break;
+                case "zstd":
+                    if (isAvailable(compressor, "com.github.luben.zstd.Zstd")) {
+                        compressors.add(MongoCompressor.createZstdCompressor());
+                    }
+                    break;
+                case "snappy":
+                    if (isAvailable(compressor, "org.xerial.snappy.Snappy")) {
+                        compressors.add(MongoCompressor.createSnappyCompressor());
+                    }
+                    break;
+                case "zlib":
+                    compressors.add(MongoCompressor.createZlibCompressor());
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown compressor '" + name + "', expected zstd, snappy or zlib");
+            }
+        }
+        return compressors;
+    }
+    
+    /**
+     * Builds the client settings. The uri is applied last, so options in it take precedence.
+     */
+    public MongoClientSettings toClientSettings() {
+        return clientSettings().build();
+    }
+    
+    /**
+     * Settings builder with everything applied, e.g. to add listeners before building it.
+     */
+    public MongoClientSettings.Builder clientSettings() {
+        return MongoClientSettings.builder()
+                .applicationName(get(APP_NAME))
+                .applyToConnectionPoolSettings(pool -> pool
+                        .minSize(getInt(POOL_MIN_SIZE))
+                        .maxSize(getInt(POOL_MAX_SIZE))
+                        .maxConnectionIdleTime(getLong(POOL_MAX_IDLE_MS), TimeUnit.MILLISECONDS)
+                        .maxWaitTime(getLong(POOL_MAX_WAIT_MS), TimeUnit.MILLISECONDS))
+                .applyToSocketSettings(socket -> socket
+                        .connectTimeout(getInt(CONNECT_TIMEOUT_MS), TimeUnit.MILLISECONDS)
+                        .readTimeout(getInt(SOCKET_TIMEOUT_MS), TimeUnit.MILLISECONDS))
+                .applyToClusterSettings(cluster -> cluster
+                        .serverSelectionTimeout(getLong(SERVER_SELECTION_TIMEOUT_MS), TimeUnit.MILLISECONDS))
+                .compressorList(getCompressors())
+                .writeConcern(getInteractiveWriteConcern())
+                .applyConnectionString(new ConnectionString(get(URI)));
+    }
+    
+    private int getInt(String key) {
+        return (int) getLong(key);
+    }
+    
+    private long getLong(String key) {
+        String value = get(key);
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Expected a number for MongoDB setting " + key + ", got '" + value + "'");
+        }
+    }
+    
+    // A name such as majority, w1 or journaled, or the number of nodes to acknowledge
+    private WriteConcern parseWriteConcern(String key) {
+        String value = get(key).trim();
+        if (value.chars().allMatch(Character::isDigit) && !value.isEmpty()) {
+            return new WriteConcern(Integer.parseInt(value));
+        }
+        WriteConcern writeConcern = WriteConcern.valueOf(value);
+        if (writeConcern == null) {
+            throw new IllegalArgumentException("Unknown write concern '" + value + "' for MongoDB setting " + key);
+        }
+        return writeConcern;
+    }
+    
+    private static boolean isAvailable(String compressor, String className) {
+        try {
+            Class.forName(className, false, MongoConfig.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException e) {
+            System.err.println("Compressor " + compressor + " is not on the classpath, skipping it (build with -Pwire-compression)");
+            return false;
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("profile %s, pool %s-%s, compressors [%s], reports from %s, writes %s / bulk %s",
+                profile.name().toLowerCase(Locale.ROOT), get(POOL_MIN_SIZE), get(POOL_MAX_SIZE), get(COMPRESSORS),
+                get(REPORT_READ_PREFERENCE), get(INTERACTIVE_WRITE_CONCERN), get(BULK_WRITE_CONCERN));
+    }
+}
\ No newline at end of file
@@ -1,8 +1,23 @@
 package com.furniture.db;
 
+import com.furniture.db.codec.ModelCodecs;
+import com.furniture.db.monitoring.DatabaseMonitor;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoException;
+import com.mongodb.bulk.BulkWriteError;
 import com.mongodb.client.*;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.DeleteOneModel;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
 import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
 import com.mongodb.client.result.DeleteResult;
 import com.mongodb.client.result.InsertOneResult;
 import org.bson.Document;
@@ -10,23 +25,44 @@ import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 public class MongoDBService {
-    private static final String CONNECTION_STRING = "mongodb://localhost:27017";
-    private static final String DATABASE_NAME = "furnitureManufacturing";
+    // Upper bound for the number of ids sent in a single $in query
+    private static final int IN_QUERY_BATCH_SIZE = 1000;
+    // Number of writes sent per bulkWrite round trip unless the caller asks otherwise
+    public static final int DEFAULT_BULK_BATCH_SIZE = 1000;
+    // Computed field for the relevance of text search results, skipped by the codecs
+    private static final String TEXT_SCORE_FIELD = "score";
     
+    private final MongoConfig config;
+    private final DatabaseMonitor monitor = new DatabaseMonitor();
     private MongoClient mongoClient;
     private MongoDatabase database;
+    private final List<ChangeStreamWatcher<?>> watchers = new CopyOnWriteArrayList<>();
     
     private static MongoDBService instance;
     
-    private MongoDBService() {
+    private MongoDBService(MongoConfig config) {
+        this.config = config;
         try {
-            mongoClient = MongoClients.create(CONNECTION_STRING);
-            database = mongoClient.getDatabase(DATABASE_NAME);
-            System.out.println("Connected to MongoDB successfully!");
+            // Writes made by the user wait for the interactive write concern, set on the client
+            mongoClient = MongoClients.create(config.clientSettings()
+                    .addCommandListener(monitor)
+                    .applyToConnectionPoolSettings(pool -> pool.addConnectionPoolListener(monitor))
+                    .applyToServerSettings(server -> server.addServerMonitorListener(monitor))
+                    .build());
+            // Model classes are decoded straight from BSON by the codecs in com.furniture.db.codec
+            database = mongoClient.getDatabase(config.getDatabaseName()).withCodecRegistry(ModelCodecs.createRegistry());
+            System.out.println("Connected to MongoDB successfully! (" + config + ")");
         } catch (Exception e) {
             System.err.println("Error connecting to MongoDB: " + e.getMessage());
             e.printStackTrace();
@@ -35,20 +71,69 @@ public class MongoDBService {
     
     public static synchronized MongoDBService getInstance() {
         if (instance == null) {
-            instance = new MongoDBService();
+            MongoConfig config;
+            try {
+                config = MongoConfig.load();
+            } catch (IllegalArgumentException e) {
+                System.err.println("Invalid MongoDB configuration, using the defaults: " + e.getMessage());
+                config = MongoConfig.defaults();
+            }
+            instance = new MongoDBService(config);
         }
         return instance;
     }
     
+    public MongoConfig getConfig() {
+        return config;
+    }
+    
+    /**
+     * Latency, pool and health metrics of the client, also published over JMX.
+     */
+    public DatabaseMonitor getMonitor() {
+        return monitor;
+    }
+    
+    /**
+     * Opens the first connection to the server by sending a ping, so it is not paid by
+     * the first query. Returns whether the server answered.
+     */
+    public boolean warmUp() {
+        try {
+            database.runCommand(new Document("ping", 1));
+            return true;
+        } catch (Exception e) {
+            System.err.println("Error connecting to MongoDB: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    /**
+     * Projection expression for the length of an array field, 0 if the field is missing.
+     * Find projections accept aggregation expressions since MongoDB 4.4, so only the
+     * count crosses the network instead of the array.
+     */
+    public static Bson sizeOf(String arrayField) {
+        return new Document("$size", new Document("$ifNull", Arrays.asList("$" + arrayField, Collections.emptyList())));
+    }
+    
     public MongoCollection<Document> getCollection(String collectionName) {
         return database.getCollection(collectionName);
     }
     
+    public <T> MongoCollection<T> getCollection(String collectionName, Class<T> documentClass) {
+        return database.getCollection(collectionName, documentClass);
+    }
+    
     public List<Document> getAllDocuments(String collectionName) {
-        List<Document> documents = new ArrayList<>();
+        return getAllDocuments(collectionName, Document.class);
+    }
+    
+    public <T> List<T> getAllDocuments(String collectionName, Class<T> documentClass) {
+        List<T> documents = new ArrayList<>();
         try {
-            MongoCollection<Document> collection = getCollection(collectionName);
-            collection.find().forEach((Consumer<Document>) documents::add);
+            MongoCollection<T> collection = getCollection(collectionName, documentClass);
+            collection.find().forEach((Consumer<T>) documents::add);
         } catch (Exception e) {
             System.err.println("Error getting all documents: " + e.getMessage());
         }
@@ -56,8 +141,12 @@ public class MongoDBService {
     }
     
     public Document getDocumentById(String collectionName, ObjectId id) {
+        return getDocumentById(collectionName, id, Document.class);
+    }
+    
+    public <T> T getDocumentById(String collectionName, ObjectId id, Class<T> documentClass) {
         try {
-            MongoCollection<Document> collection = getCollection(collectionName);
+            MongoCollection<T> collection = getCollection(collectionName, documentClass);
             return collection.find(Filters.eq("_id", id)).first();
         } catch (Exception e) {
             System.err.println("Error getting document by ID: " + e.getMessage());
@@ -65,37 +154,278 @@ public class MongoDBService {
         }
     }
     
+    public List<Document> findDocumentsByIds(String collectionName, Collection<ObjectId> ids) {
+        return findDocumentsByIds(collectionName, ids, Document.class);
+    }
+    
+    public <T> List<T> findDocumentsByIds(String collectionName, Collection<ObjectId> ids, Class<T> documentClass) {
+        return findDocumentsByFieldValues(collectionName, "_id", ids, documentClass);
+    }
+    
+    /**
+     * Loads all documents whose field value is contained in the given values.
+     * The values are sent in chunks of {@value #IN_QUERY_BATCH_SIZE} so that large
+     * result sets resolve with a handful of $in queries instead of one query per value.
+     */
+    public <T> List<T> findDocumentsByFieldValues(String collectionName, String fieldName, Collection<?> values,
+                                                  Class<T> documentClass) {
+        return findDocumentsByFieldValues(collectionName, fieldName, values, null, documentClass);
+    }
+    
+    public <T> List<T> findDocumentsByFieldValues(String collectionName, String fieldName, Collection<?> values,
+                                                  Bson projection, Class<T> documentClass) {
+        List<T> documents = new ArrayList<>();
+        if (values == null || values.isEmpty()) {
+            return documents;
+        }
+        try {
+            MongoCollection<T> collection = getCollection(collectionName, documentClass);
+            List<Object> batch = new ArrayList<>(Math.min(values.size(), IN_QUERY_BATCH_SIZE));
+            for (Object value : values) {
+                batch.add(value);
+                if (batch.size() == IN_QUERY_BATCH_SIZE) {
+                    collection.find(Filters.in(fieldName, batch)).projection(projection).forEach((Consumer<T>) documents::add);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                collection.find(Filters.in(fieldName, batch)).projection(projection).forEach((Consumer<T>) documents::add);
+            }
+        } catch (Exception e) {
+            System.err.println("Error finding documents by " + fieldName + ": " + e.getMessage());
+        }
+        return documents;
+    }
+    
     public List<Document> findDocuments(String collectionName, Bson filter) {
-        List<Document> documents = new ArrayList<>();
+        return findDocuments(collectionName, filter, Document.class);
+    }
+    
+    public <T> List<T> findDocuments(String collectionName, Bson filter, Class<T> documentClass) {
+        return findDocuments(collectionName, filter, null, documentClass);
+    }
+    
+    /**
+     * Finds documents with only the projected fields, e.g. to decode a summary read model.
+     * A null projection returns whole documents.
+     */
+    public <T> List<T> findDocuments(String collectionName, Bson filter, Bson projection, Class<T> documentClass) {
+        List<T> documents = new ArrayList<>();
         try {
-            MongoCollection<Document> collection = getCollection(collectionName);
-            collection.find(filter).forEach((Consumer<Document>) documents::add);
+            MongoCollection<T> collection = getCollection(collectionName, documentClass);
+            collection.find(filter).projection(projection).forEach((Consumer<T>) documents::add);
         } catch (Exception e) {
             System.err.println("Error finding documents: " + e.getMessage());
         }
         return documents;
     }
     
+    /**
+     * Finds documents containing the words through the text index of the collection,
+     * best matches first. Returns an empty list if the collection has no text index.
+     */
+    public <T> List<T> findDocumentsByText(String collectionName, String words, Class<T> documentClass) {
+        List<T> documents = new ArrayList<>();
+        try {
+            MongoCollection<T> collection = getCollection(collectionName, documentClass);
+            collection.find(Filters.text(words))
+                    .projection(Projections.metaTextScore(TEXT_SCORE_FIELD))
+                    .sort(Sorts.metaTextScore(TEXT_SCORE_FIELD))
+                    .forEach((Consumer<T>) documents::add);
+        } catch (Exception e) {
+            System.err.println("Error searching documents by text: " + e.getMessage());
+        }
+        return documents;
+    }
+    
     public List<Document> getSortedDocuments(String collectionName, String sortField, boolean ascending) {
-        List<Document> documents = new ArrayList<>();
+        return getSortedDocuments(collectionName, sortField, ascending, Document.class);
+    }
+    
+    public <T> List<T> getSortedDocuments(String collectionName, String sortField, boolean ascending, Class<T> documentClass) {
+        List<T> documents = new ArrayList<>();
         try {
-            MongoCollection<Document> collection = getCollection(collectionName);
+            MongoCollection<T> collection = getCollection(collectionName, documentClass);
             Bson sort = ascending ? Sorts.ascending(sortField) : Sorts.descending(sortField);
-            collection.find().sort(sort).forEach((Consumer<Document>) documents::add);
+            collection.find().sort(sort).forEach((Consumer<T>) documents::add);
         } catch (Exception e) {
             System.err.println("Error getting sorted documents: " + e.getMessage());
         }
         return documents;
     }
     
-    public boolean insertDocument(String collectionName, Document document) {
+    public long countDocuments(String collectionName, Bson filter) {
         try {
             MongoCollection<Document> collection = getCollection(collectionName);
+            return collection.countDocuments(filter != null ? filter : new Document());
+        } catch (Exception e) {
+            System.err.println("Error counting documents: " + e.getMessage());
+            return 0;
+        }
+    }
+    
+    /**
+     * Reads one page of documents sorted by (sortField, _id).
+     * When a cursor is given the page starts right after it using a range filter on the
+     * sort key, which the server answers from an index without walking the skipped rows.
+     * Without a cursor the page is positioned with skip, this is only meant for jumping
+     * to a page whose predecessor has not been read yet.
+     */
+    public KeysetPage<Document> findPage(String collectionName, Bson filter, String sortField, boolean ascending,
+                                         KeysetCursor after, long skip, int limit) {
+        return findPage(collectionName, filter, sortField, ascending, after, skip, limit, Document.class,
+                document -> new KeysetCursor(document.get(sortField), document.getObjectId("_id")));
+    }
+    
+    /**
+     * Typed variant of {@link #findPage(String, Bson, String, boolean, KeysetCursor, long, int)},
+     * the cursor function extracts the sort key of the last entity of the page.
+     */
+    public <T> KeysetPage<T> findPage(String collectionName, Bson filter, String sortField, boolean ascending,
+                                      KeysetCursor after, long skip, int limit,
+                                      Class<T> documentClass, Function<T, KeysetCursor> cursorOf) {
+        return findPage(collectionName, filter, sortField, ascending, after, skip, limit, null, documentClass, cursorOf);
+    }
+    
+    /**
+     * Same as above with a projection; it has to include the sort field, which the cursor is built from.
+     */
+    public <T> KeysetPage<T> findPage(String collectionName, Bson filter, String sortField, boolean ascending,
+                                      KeysetCursor after, long skip, int limit, Bson projection,
+                                      Class<T> documentClass, Function<T, KeysetCursor> cursorOf) {
+        List<T> documents = new ArrayList<>(limit);
+        try {
+            MongoCollection<T> collection = getCollection(collectionName, documentClass);
+            Bson query = filter != null ? filter : new Document();
+            if (after != null) {
+                query = Filters.and(query, keysetFilter(sortField, ascending, after));
+            }
+            
+            FindIterable<T> iterable = collection.find(query)
+                    .projection(projection)
+                    .sort(keysetSort(sortField, ascending))
+                    .limit(limit);
+            if (after == null && skip > 0) {
+                iterable.skip((int) skip);
+            }
+            iterable.forEach((Consumer<T>) documents::add);
+        } catch (Exception e) {
+            System.err.println("Error getting page of documents: " + e.getMessage());
+        }
+        
+        KeysetCursor nextCursor = null;
+        if (documents.size() == limit) {
+            nextCursor = cursorOf.apply(documents.get(documents.size() - 1));
+        }
+        return new KeysetPage<>(documents, nextCursor);
+    }
+    
+    private Bson keysetSort(String sortField, boolean ascending) {
+        Bson idSort = ascending ? Sorts.ascending("_id") : Sorts.descending("_id");
+        if ("_id".equals(sortField)) {
+            return idSort;
+        }
+        Bson fieldSort = ascending ? Sorts.ascending(sortField) : Sorts.descending(sortField);
+        return Sorts.orderBy(fieldSort, idSort);
+    }
+    
+    private Bson keysetFilter(String sortField, boolean ascending, KeysetCursor after) {
+        Bson beyondId = ascending ? Filters.gt("_id", after.getId()) : Filters.lt("_id", after.getId());
+        if ("_id".equals(sortField)) {
+            return beyondId;
+        }
+        
+        Object value = after.getSortValue();
+        Bson sameValueBeyondId = Filters.and(Filters.eq(sortField, value), beyondId);
+        // Missing values sort before everything else, $gt/$lt never match them
+        if (value == null) {
+            return ascending
+                    ? Filters.or(Filters.ne(sortField, null), sameValueBeyondId)
+                    : sameValueBeyondId;
+        }
+        return ascending
+                ? Filters.or(Filters.gt(sortField, value), sameValueBeyondId)
+                : Filters.or(Filters.lt(sortField, value), sameValueBeyondId, Filters.eq(sortField, null));
+    }
+    
+    /**
+     * Streams the matching documents to the action straight from the server cursor,
+     * without collecting them into a list first. Exceptions thrown by the action stop
+     * the iteration and are passed on to the caller, after the cursor is closed.
+     */
+    public void forEachDocument(String collectionName, Bson filter, Bson sort, Consumer<Document> action) {
+        forEachDocument(collectionName, filter, sort, Document.class, action);
+    }
+    
+    public <T> void forEachDocument(String collectionName, Bson filter, Bson sort, Class<T> documentClass, Consumer<T> action) {
+        forEachDocument(collectionName, filter, sort, null, documentClass, action);
+    }
+    
+    public <T> void forEachDocument(String collectionName, Bson filter, Bson sort, Bson projection, Class<T> documentClass,
+                                    Consumer<T> action) {
+        try {
+            streamDocuments(collectionName, filter, sort, projection, documentClass, 0, action);
+        } catch (MongoException e) {
+            System.err.println("Error streaming documents: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Iterates the cursor like {@link #forEachDocument}, fetching batchSize documents per
+     * round trip (0 keeps the driver default). Errors are thrown to the caller instead
+     * of being logged, so a stream that stopped halfway is not mistaken for a complete one.
+     */
+    public <T> void streamDocuments(String collectionName, Bson filter, Bson sort, Class<T> documentClass,
+                                    int batchSize, Consumer<T> action) {
+        streamDocuments(collectionName, filter, sort, null, documentClass, batchSize, action);
+    }
+    
+    public <T> void streamDocuments(String collectionName, Bson filter, Bson sort, Bson projection, Class<T> documentClass,
+                                    int batchSize, Consumer<T> action) {
+        MongoCollection<T> collection = getCollection(collectionName, documentClass);
+        FindIterable<T> iterable = collection.find(filter != null ? filter : new Document()).projection(projection);
+        if (sort != null) {
+            iterable.sort(sort);
+        }
+        if (batchSize > 0) {
+            iterable.batchSize(batchSize);
+        }
+        try (MongoCursor<T> cursor = iterable.iterator()) {
+            while (cursor.hasNext()) {
+                action.accept(cursor.next());
+            }
+        }
+    }
+    
+    /**
+     * Runs an aggregation pipeline inside the database and returns its (small) result.
+     * Large intermediate stages may spill to disk instead of failing on the memory limit.
+     * Aggregations serve reports, so they follow the configured report read preference.
+     * Errors are thrown to the caller, so a failed report is not mistaken for an empty one.
+     */
+    public List<Document> aggregate(String collectionName, List<Bson> pipeline) {
+        List<Document> results = new ArrayList<>();
+        getCollection(collectionName).withReadPreference(config.getReportReadPreference()).aggregate(pipeline).allowDiskUse(true).forEach((Consumer<Document>) results::add);
+        return results;
+    }
+    
+    /**
+     * Inserts a Document or a model entity, the latter is encoded by its codec
+     * and gets its generated ObjectId assigned before the insert.
+     * Returns the inserted _id, or null if the insert failed.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> ObjectId insertDocument(String collectionName, T document) {
+        try {
+            MongoCollection<T> collection = getCollection(collectionName, (Class<T>) document.getClass());
             InsertOneResult result = collection.insertOne(document);
-            return result.wasAcknowledged();
+            if (!result.wasAcknowledged() || result.getInsertedId() == null) {
+                return null;
+            }
+            return result.getInsertedId().asObjectId().getValue();
         } catch (Exception e) {
             System.err.println("Error inserting document: " + e.getMessage());
-            return false;
+            return null;
         }
     }
     
@@ -110,10 +440,285 @@ public class MongoDBService {
         }
     }
     
+    public <T> BulkWriteReport bulkInsert(String collectionName, Class<T> documentClass, List<T> documents) {
+        return bulkInsert(collectionName, documentClass, documents, DEFAULT_BULK_BATCH_SIZE);
+    }
+    
+    /**
+     * Inserts the documents with one unordered bulk write per batch.
+     * Ids of new documents are assigned by the codec before they are sent.
+     */
+    public <T> BulkWriteReport bulkInsert(String collectionName, Class<T> documentClass, List<T> documents, int batchSize) {
+        List<WriteModel<T>> models = new ArrayList<>(documents.size());
+        for (T document : documents) {
+            models.add(new InsertOneModel<>(document));
+        }
+        return bulkWrite(collectionName, documentClass, models, batchSize);
+    }
+    
+    public <T> BulkWriteReport bulkUpsert(String collectionName, Class<T> documentClass, List<T> documents,
+                                          Function<T, ObjectId> idOf) {
+        return bulkUpsert(collectionName, documentClass, documents, idOf, DEFAULT_BULK_BATCH_SIZE);
+    }
+    
+    /**
+     * Replaces the documents by id, or inserts them if they do not exist yet.
+     * Documents without an id are always inserted.
+     */
+    public <T> BulkWriteReport bulkUpsert(String collectionName, Class<T> documentClass, List<T> documents,
+                                          Function<T, ObjectId> idOf, int batchSize) {
+        ReplaceOptions upsert = new ReplaceOptions().upsert(true);
+        List<WriteModel<T>> models = new ArrayList<>(documents.size());
+        for (T document : documents) {
+            ObjectId id = idOf.apply(document);
+            if (id == null) {
+                models.add(new InsertOneModel<>(document));
+            } else {
+                models.add(new ReplaceOneModel<>(Filters.eq("_id", id), document, upsert));
+            }
+        }
+        return bulkWrite(collectionName, documentClass, models, batchSize);
+    }
+    
+    /**
+     * Fills the normalized search fields (see {@link SearchText}) of documents written
+     * before those fields existed. Only the source fields are read, and every document
+     * gets a $set of its shadow fields that applies only while they are still missing,
+     * without upsert. An edit or delete made by the user meanwhile is therefore neither
+     * overwritten nor undone, and fields the model does not know are left alone.
+     * Returns the number of documents updated.
+     */
+    public long fillSearchFields(String collectionName, String... fieldNames) {
+        List<Bson> missing = new ArrayList<>(fieldNames.length);
+        for (String fieldName : fieldNames) {
+            missing.add(Filters.exists(SearchText.shadowField(fieldName), false));
+        }
+        Bson filter = missing.size() == 1 ? missing.get(0) : Filters.or(missing);
+        
+        List<WriteModel<Document>> batch = new ArrayList<>(DEFAULT_BULK_BATCH_SIZE);
+        long[] updated = {0};
+        try {
+            streamDocuments(collectionName, filter, null, Projections.include(fieldNames), Document.class,
+                    DEFAULT_BULK_BATCH_SIZE, document -> {
+                List<Bson> updates = new ArrayList<>(fieldNames.length);
+                for (String fieldName : fieldNames) {
+                    Object value = document.get(fieldName);
+                    updates.add(Updates.set(SearchText.shadowField(fieldName),
+                            value instanceof String ? SearchText.normalize((String) value) : null));
+                }
+                batch.add(new UpdateOneModel<>(Filters.and(Filters.eq("_id", document.get("_id")), filter),
+                        Updates.combine(updates)));
+                if (batch.size() == DEFAULT_BULK_BATCH_SIZE) {
+                    updated[0] += bulkWrite(collectionName, Document.class, batch, DEFAULT_BULK_BATCH_SIZE).getModified();
+                    batch.clear();
+                }
+            });
+            if (!batch.isEmpty()) {
+                updated[0] += bulkWrite(collectionName, Document.class, batch, DEFAULT_BULK_BATCH_SIZE).getModified();
+            }
+        } catch (MongoException e) {
+            System.err.println("Error filling search fields of " + collectionName + ": " + e.getMessage());
+        }
+        return updated[0];
+    }
+    
+    public BulkWriteReport bulkDelete(String collectionName, List<ObjectId> ids) {
+        return bulkDelete(collectionName, ids, DEFAULT_BULK_BATCH_SIZE);
+    }
+    
+    public BulkWriteReport bulkDelete(String collectionName, List<ObjectId> ids, int batchSize) {
+        List<WriteModel<Document>> models = new ArrayList<>(ids.size());
+        for (ObjectId id : ids) {
+            models.add(new DeleteOneModel<>(Filters.eq("_id", id)));
+        }
+        return bulkWrite(collectionName, Document.class, models, batchSize);
+    }
+    
+    /**
+     * Sends the write models in unordered batches, one round trip per batch.
+     * A rejected item does not stop the rest of its batch, and a failed batch does
+     * not stop the following ones; failures are reported by index into the models list.
+     */
+    private <T> BulkWriteReport bulkWrite(String collectionName, Class<T> documentClass, List<WriteModel<T>> models, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        BulkWriteReport report = new BulkWriteReport(models.size());
+        // Imports and backfills can be re-run, they may wait for fewer nodes than user edits
+        MongoCollection<T> collection = getCollection(collectionName, documentClass).withWriteConcern(config.getBulkWriteConcern());
+        BulkWriteOptions options = new BulkWriteOptions().ordered(false);
+        long start = System.nanoTime();
+        
+        for (int offset = 0; offset < models.size(); offset += batchSize) {
+            List<WriteModel<T>> batch = models.subList(offset, Math.min(offset + batchSize, models.size()));
+            try {
+                report.addBatch(collection.bulkWrite(batch, options));
+            } catch (MongoBulkWriteException e) {
+                report.addBatch(e.getWriteResult());
+                for (BulkWriteError error : e.getWriteErrors()) {
+                    report.addFailure(offset + error.getIndex(), error.getCode(), error.getMessage());
+                }
+            } catch (MongoException e) {
+                System.err.println("Error writing batch to " + collectionName + ": " + e.getMessage());
+                for (int index = 0; index < batch.size(); index++) {
+                    report.addFailure(offset + index, e.getCode(), e.getMessage());
+                }
+            }
+        }
+        
+        report.setElapsedNanos(System.nanoTime() - start);
+        return report;
+    }
+    
+    /**
+     * Creates the declared indexes that do not exist yet and checks the ones that do.
+     * Index builds of a non-empty collection block until the index is ready, so this is
+     * meant to run once at startup. The report is printed and returned to the caller.
+     */
+    public IndexReport ensureIndexes(IndexRegistry registry) {
+        IndexReport report = new IndexReport();
+        for (String collectionName : registry.getCollectionNames()) {
+            List<IndexDefinition> definitions = registry.getDefinitions(collectionName);
+            try {
+                ensureIndexes(collectionName, definitions, report);
+            } catch (Exception e) {
+                System.err.println("Error verifying indexes of " + collectionName + ": " + e.getMessage());
+                for (IndexDefinition definition : definitions) {
+                    report.addMissing(definition + ": " + e.getMessage());
+                }
+            }
+        }
+        report.print();
+        return report;
+    }
+    
+    private void ensureIndexes(String collectionName, List<IndexDefinition> definitions, IndexReport report) {
+        MongoCollection<Document> collection = getCollection(collectionName);
+        List<Document> existing = new ArrayList<>();
+        collection.listIndexes().forEach((Consumer<Document>) index -> existing.add(withTextKeys(index)));
+        
+        for (IndexDefinition definition : definitions) {
+            Document match = findIndexWithKeys(existing, definition.getKeys());
+            if (match != null) {
+                if (match.getBoolean("unique", false) == definition.isUnique()) {
+                    report.addVerified(definition.toString());
+                } else {
+                    report.addMissing(definition + ": exists as " + match.getString("name") + " with a different unique option");
+                }
+                continue;
+            }
+            
+            try {
+                IndexOptions options = new IndexOptions().name(definition.getName()).unique(definition.isUnique());
+                if (definition.isText()) {
+                    options.defaultLanguage(definition.getTextLanguage());
+                }
+                collection.createIndex(definition.getKeys(), options);
+                report.addCreated(definition.toString());
+                existing.add(new Document("name", definition.getName())
+                        .append("key", definition.getKeys())
+                        .append("unique", definition.isUnique()));
+            } catch (MongoException e) {
+                report.addMissing(definition + ": " + e.getMessage());
+            }
+        }
+        
+        for (Document index : existing) {
+            String name = index.getString("name");
+            if ("_id_".equals(name)) {
+                continue;
+            }
+            Document keys = index.get("key", Document.class);
+            boolean declared = definitions.stream().anyMatch(definition -> sameKeys(definition.getKeys(), keys));
+            if (!declared) {
+                report.addRedundant(collectionName + "." + name + " (not declared)");
+            } else if (!index.getBoolean("unique", false) && isPrefixOfAnotherIndex(keys, existing)) {
+                report.addRedundant(collectionName + "." + name + " (prefix of another index)");
+            }
+        }
+    }
+    
+    /**
+     * The server lists a text index with the internal keys _fts and _ftsx, the indexed
+     * fields are in its weights. Those are put back as the keys the index was declared with.
+     */
+    private Document withTextKeys(Document index) {
+        Document keys = index.get("key", Document.class);
+        Document weights = index.get("weights", Document.class);
+        if (!keys.containsKey("_fts") || weights == null) {
+            return index;
+        }
+        Document textKeys = new Document();
+        weights.keySet().stream().sorted().forEach(fieldName -> textKeys.append(fieldName, IndexDefinition.TEXT));
+        return new Document(index).append("key", textKeys);
+    }
+    
+    private Document findIndexWithKeys(List<Document> indexes, Document keys) {
+        for (Document index : indexes) {
+            if (sameKeys(index.get("key", Document.class), keys)) {
+                return index;
+            }
+        }
+        return null;
+    }
+    
+    private boolean isPrefixOfAnotherIndex(Document keys, List<Document> indexes) {
+        for (Document index : indexes) {
+            Document otherKeys = index.get("key", Document.class);
+            if (otherKeys.size() > keys.size() && keysStartWith(otherKeys, keys)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private boolean sameKeys(Document keys, Document otherKeys) {
+        return keys.size() == otherKeys.size() && keysStartWith(keys, otherKeys);
+    }
+    
+    private boolean keysStartWith(Document keys, Document prefix) {
+        Iterator<Map.Entry<String, Object>> keyIterator = keys.entrySet().iterator();
+        for (Map.Entry<String, Object> prefixKey : prefix.entrySet()) {
+            if (!keyIterator.hasNext()) {
+                return false;
+            }
+            Map.Entry<String, Object> key = keyIterator.next();
+            if (!key.getKey().equals(prefixKey.getKey()) || !sameDirection(key.getValue(), prefixKey.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    // The server may report 1 as an int, a long or a double
+    private boolean sameDirection(Object direction, Object otherDirection) {
+        if (direction instanceof Number && otherDirection instanceof Number) {
+            return Math.signum(((Number) direction).doubleValue()) == Math.signum(((Number) otherDirection).doubleValue());
+        }
+        return direction.equals(otherDirection);
+    }
+    
+    /**
+     * Starts following the change stream of a collection, the listener is called
+     * on the watcher's background thread. The watcher stops when it is closed or
+     * when this service is closed.
+     */
+    public <T> ChangeStreamWatcher<T> watch(String collectionName, Class<T> documentClass, Consumer<ChangeEvent<T>> listener) {
+        ChangeStreamWatcher<T> watcher = new ChangeStreamWatcher<>(getCollection(collectionName, documentClass), listener);
+        watchers.add(watcher);
+        watcher.start();
+        return watcher;
+    }
+    
     public void close() {
+        for (ChangeStreamWatcher<?> watcher : watchers) {
+            watcher.close();
+        }
+        watchers.clear();
         if (mongoClient != null) {
             mongoClient.close();
             System.out.println("MongoDB connection closed.");
         }
+        monitor.close();
     }
 } 
\ No newline at end of file
@@ -0,0 +1,80 @@
+package com.furniture.db;
+
+import com.mongodb.client.model.Filters;
+import org.bson.conversions.Bson;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * Normalized search fields and the prefix filters that use them.
+ *
+ * A case-insensitive regex cannot use an index, so every searchable field has
+ * a shadow field with the normalized value (e.g. nameLower), written by the
+ * codecs on every insert or replace. Prefix searches compare the normalized
+ * input against the shadow field with a range, which an ordinary ascending
+ * index answers directly. No part of the input is interpreted as a pattern.
+ * Searching for whole words anywhere in a field goes through a text index.
+ */
+public final class SearchText {
+    // Stemming language of the text indexes, so "стол" also finds "столы"
+    public static final String TEXT_LANGUAGE = "russian";
+    // Suffix of the shadow field holding the normalized value of a field
+    private static final String SHADOW_SUFFIX = "Lower";
+    
+    private SearchText() {
+    }
+    
+    public static String shadowField(String fieldName) {
+        return fieldName + SHADOW_SUFFIX;
+    }
+    
+    /**
+     * Lower-cases the value in a locale-independent way after folding compatibility
+     * characters (e.g. full-width letters). "ё" is folded to "е", as most people type it.
+     */
+    public static String normalize(String value) {
+        if (value == null) {
+            return null;
+        }
+        return Normalizer.normalize(value.trim(), Normalizer.Form.NFKC)
+                .toLowerCase(Locale.ROOT)
+                .replace('ё', 'е');
+    }
+    
+    /**
+     * Matches documents whose field starts with the input, ignoring case.
+     * Translates to [prefix, next prefix) on the shadow field of the field.
+     */
+    public static Bson startsWith(String fieldName, String input) {
+        String field = shadowField(fieldName);
+        String prefix = normalize(input);
+        String upperBound = nextPrefix(prefix);
+        if (upperBound == null) {
+            return Filters.gte(field, prefix);
+        }
+        return Filters.and(Filters.gte(field, prefix), Filters.lt(field, upperBound));
+    }
+    
+    /**
+     * Smallest string greater than every string starting with the prefix. Strings are
+     * compared by their UTF-8 bytes, which sort like code points, so the last code
+     * point is incremented. Returns null when no such string exists.
+     */
+    private static String nextPrefix(String prefix) {
+        if (prefix.isEmpty()) {
+            return null;
+        }
+        int last = prefix.codePointBefore(prefix.length());
+        String head = prefix.substring(0, prefix.length() - Character.charCount(last));
+        int next = last + 1;
+        // Surrogate code points cannot be encoded, skip past them
+        if (next >= Character.MIN_SURROGATE && next <= Character.MAX_SURROGATE) {
+            next = Character.MAX_SURROGATE + 1;
+        }
+        if (next > Character.MAX_CODE_POINT) {
+            return nextPrefix(head);
+        }
+        return head + new String(Character.toChars(next));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,120 @@
+package com.furniture.db.codec;
+
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.types.ObjectId;
+
+import java.util.Date;
+
+/**
+ * Reading and writing of single field values for the model codecs.
+ *
+ * Numbers are widened here and only here: the collections contain values written
+ * by the shell, by imports and by this application, so a price may arrive as an
+ * int32, int64, double or decimal128 and every one of them has to end up in the
+ * same double field of the model.
+ */
+public final class BsonValues {
+    
+    private BsonValues() {
+    }
+    
+    public static double readDouble(BsonReader reader) {
+        BsonType type = reader.getCurrentBsonType();
+        switch (type) {
+            case DOUBLE:
+                return reader.readDouble();
+            case INT32:
+                return reader.readInt32();
+            case INT64:
+                return reader.readInt64();
+            case DECIMAL128:
+                return reader.readDecimal128().bigDecimalValue().doubleValue();
+            case STRING:
+                return parseDouble(reader.readString());
+            default:
+                reader.skipValue();
+                return 0.0;
+        }
+    }
+    
+    public static int readInt(BsonReader reader) {
+        BsonType type = reader.getCurrentBsonType();
+        switch (type) {
+            case INT32:
+                return reader.readInt32();
+            case INT64:
+                return clampToInt(reader.readInt64());
+            case DOUBLE:
+                return clampToInt(Math.round(reader.readDouble()));
+            case DECIMAL128:
+                return clampToInt(Math.round(reader.readDecimal128().bigDecimalValue().doubleValue()));
+            case STRING:
+                return clampToInt(Math.round(parseDouble(reader.readString())));
+            default:
+                reader.skipValue();
+                return 0;
+        }
+    }
+    
+    public static String readString(BsonReader reader) {
+        if (reader.getCurrentBsonType() == BsonType.STRING) {
+            return reader.readString();
+        }
+        reader.skipValue();
+        return null;
+    }
+    
+    public static ObjectId readObjectId(BsonReader reader) {
+        if (reader.getCurrentBsonType() == BsonType.OBJECT_ID) {
+            return reader.readObjectId();
+        }
+        reader.skipValue();
+        return null;
+    }
+    
+    public static Date readDate(BsonReader reader) {
+        if (reader.getCurrentBsonType() == BsonType.DATE_TIME) {
+            return new Date(reader.readDateTime());
+        }
+        reader.skipValue();
+        return null;
+    }
+    
+    public static void writeString(BsonWriter writer, String name, String value) {
+        if (value != null) {
+            writer.writeString(name, value);
+        } else {
+            writer.writeNull(name);
+        }
+    }
+    
+    public static void writeObjectId(BsonWriter writer, String name, ObjectId value) {
+        if (value != null) {
+            writer.writeObjectId(name, value);
+        } else {
+            writer.writeNull(name);
+        }
+    }
+    
+    public static void writeDate(BsonWriter writer, String name, Date value) {
+        if (value != null) {
+            writer.writeDateTime(name, value.getTime());
+        } else {
+            writer.writeNull(name);
+        }
+    }
+    
+    private static double parseDouble(String value) {
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return 0.0;
+        }
+    }
+    
+    private static int clampToInt(long value) {
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, value));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,63 @@
+package com.furniture.db.codec;
+
+import com.furniture.db.SearchText;
+import com.furniture.model.Customer;
+import org.bson.BsonReader;
+import org.bson.BsonWriter;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.ObjectId;
+
+public class CustomerCodec extends EntityCodec<Customer> {
+    
+    @Override
+    public Class<Customer> getEncoderClass() {
+        return Customer.class;
+    }
+    
+    @Override
+    protected Customer newInstance() {
+        return new Customer();
+    }
+    
+    @Override
+    protected ObjectId getId(Customer customer) {
+        return customer.getId();
+    }
+    
+    @Override
+    protected void setId(Customer customer, ObjectId id) {
+        customer.setId(id);
+    }
+    
+    @Override
+    protected boolean readField(BsonReader reader, String name, Customer customer, DecoderContext decoderContext) {
+        switch (name) {
+            case "name":
+                customer.setName(BsonValues.readString(reader));
+                return true;
+            case "email":
+                customer.setEmail(BsonValues.readString(reader));
+                return true;
+            case "phone":
+                customer.setPhone(BsonValues.readString(reader));
+                return true;
+            case "address":
+                customer.setAddress(BsonValues.readString(reader));
+                return true;
+            default:
+                return false;
+        }
+    }
+    
+    @Override
+    protected void writeFields(BsonWriter writer, Customer customer, EncoderContext encoderContext) {
+        BsonValues.writeString(writer, "name", customer.getName());
+        BsonValues.writeString(writer, "email", customer.getEmail());
+        BsonValues.writeString(writer, "phone", customer.getPhone());
+        BsonValues.writeString(writer, "address", customer.getAddress());
+        // Normalized copies for index-backed prefix search
+        BsonValues.writeString(writer, SearchText.shadowField("name"), SearchText.normalize(customer.getName()));
+        BsonValues.writeString(writer, SearchText.shadowField("email"), SearchText.normalize(customer.getEmail()));
+    }
+}
\ No newline at end of file
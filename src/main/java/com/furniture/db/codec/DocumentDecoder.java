@@ -0,0 +1,50 @@
+package com.furniture.db.codec;
+
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.codecs.Decoder;
+import org.bson.codecs.DecoderContext;
+import org.bson.types.ObjectId;
+
+/**
+ * Decodes a model class field by field.
+ *
+ * Decoding walks the fields of the BSON document once and hands every field to
+ * {@link #readField}, so no intermediate {@link org.bson.Document} is built.
+ * Unknown fields are skipped.
+ */
+public abstract class DocumentDecoder<T> implements Decoder<T> {
+    
+    protected abstract T newInstance();
+    
+    protected abstract void setId(T entity, ObjectId id);
+    
+    /**
+     * Reads the value of the current field into the entity.
+     * Returns false for fields the entity does not know, those are skipped.
+     */
+    protected abstract boolean readField(BsonReader reader, String name, T entity, DecoderContext decoderContext);
+    
+    /**
+     * Gives subclasses a chance to fill defaults after all fields were read.
+     */
+    protected void afterDecode(T entity) {
+    }
+    
+    @Override
+    public T decode(BsonReader reader, DecoderContext decoderContext) {
+        T entity = newInstance();
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            String name = reader.readName();
+            if ("_id".equals(name)) {
+                setId(entity, BsonValues.readObjectId(reader));
+            } else if (!readField(reader, name, entity, decoderContext)) {
+                reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+        afterDecode(entity);
+        return entity;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,56 @@
+package com.furniture.db.codec;
+
+import org.bson.BsonObjectId;
+import org.bson.BsonValue;
+import org.bson.BsonWriter;
+import org.bson.codecs.CollectibleCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.ObjectId;
+
+/**
+ * Base class for the codecs of the model classes, see {@link DocumentDecoder} for decoding.
+ *
+ * The codec is collectible, which lets the driver assign the ObjectId of a new
+ * entity before it is inserted.
+ */
+public abstract class EntityCodec<T> extends DocumentDecoder<T> implements CollectibleCodec<T> {
+    
+    protected abstract ObjectId getId(T entity);
+    
+    /**
+     * Writes all fields except _id, which is written by this class.
+     */
+    protected abstract void writeFields(BsonWriter writer, T entity, EncoderContext encoderContext);
+    
+    @Override
+    public void encode(BsonWriter writer, T entity, EncoderContext encoderContext) {
+        writer.writeStartDocument();
+        ObjectId id = getId(entity);
+        if (id != null) {
+            writer.writeObjectId("_id", id);
+        }
+        writeFields(writer, entity, encoderContext);
+        writer.writeEndDocument();
+    }
+    
+    @Override
+    public T generateIdIfAbsentFromDocument(T entity) {
+        if (getId(entity) == null) {
+            setId(entity, new ObjectId());
+        }
+        return entity;
+    }
+    
+    @Override
+    public boolean documentHasId(T entity) {
+        return getId(entity) != null;
+    }
+    
+    @Override
+    public BsonValue getDocumentId(T entity) {
+        if (!documentHasId(entity)) {
+            throw new IllegalStateException("The entity does not contain an _id");
+        }
+        return new BsonObjectId(getId(entity));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,62 @@
+package com.furniture.db.codec;
+
+import com.furniture.db.SearchText;
+import com.furniture.model.Furniture;
+import org.bson.BsonReader;
+import org.bson.BsonWriter;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.ObjectId;
+
+public class FurnitureCodec extends EntityCodec<Furniture> {
+    
+    @Override
+    public Class<Furniture> getEncoderClass() {
+        return Furniture.class;
+    }
+    
+    @Override
+    protected Furniture newInstance() {
+        return new Furniture();
+    }
+    
+    @Override
+    protected ObjectId getId(Furniture furniture) {
+        return furniture.getId();
+    }
+    
+    @Override
+    protected void setId(Furniture furniture, ObjectId id) {
+        furniture.setId(id);
+    }
+    
+    @Override
+    protected boolean readField(BsonReader reader, String name, Furniture furniture, DecoderContext decoderContext) {
+        switch (name) {
+            case "name":
+                furniture.setName(BsonValues.readString(reader));
+                return true;
+            case "category":
+                furniture.setCategory(BsonValues.readString(reader));
+                return true;
+            case "price":
+                furniture.setPrice(BsonValues.readDouble(reader));
+                return true;
+            case "stockQuantity":
+                furniture.setStockQuantity(BsonValues.readInt(reader));
+                return true;
+            default:
+                return false;
+        }
+    }
+    
+    @Override
+    protected void writeFields(BsonWriter writer, Furniture furniture, EncoderContext encoderContext) {
+        BsonValues.writeString(writer, "name", furniture.getName());
+        BsonValues.writeString(writer, "category", furniture.getCategory());
+        writer.writeDouble("price", furniture.getPrice());
+        writer.writeInt32("stockQuantity", furniture.getStockQuantity());
+        // Normalized copy for index-backed prefix search
+        BsonValues.writeString(writer, SearchText.shadowField("name"), SearchText.normalize(furniture.getName()));
+    }
+}
\ No newline at end of file
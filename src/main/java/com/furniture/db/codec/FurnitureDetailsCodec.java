@@ -0,0 +1,119 @@
+package com.furniture.db.codec;
+
+import com.furniture.model.FurnitureDetails;
+import com.furniture.model.FurnitureDetails.MaterialUsage;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.ObjectId;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class FurnitureDetailsCodec extends EntityCodec<FurnitureDetails> {
+    
+    @Override
+    public Class<FurnitureDetails> getEncoderClass() {
+        return FurnitureDetails.class;
+    }
+    
+    @Override
+    protected FurnitureDetails newInstance() {
+        return new FurnitureDetails();
+    }
+    
+    @Override
+    protected ObjectId getId(FurnitureDetails details) {
+        return details.getId();
+    }
+    
+    @Override
+    protected void setId(FurnitureDetails details, ObjectId id) {
+        details.setId(id);
+    }
+    
+    @Override
+    protected boolean readField(BsonReader reader, String name, FurnitureDetails details, DecoderContext decoderContext) {
+        switch (name) {
+            case "furnitureId":
+                details.setFurnitureId(BsonValues.readObjectId(reader));
+                return true;
+            case "description":
+                details.setDescription(BsonValues.readString(reader));
+                return true;
+            case "dimensions":
+                details.setDimensions(BsonValues.readString(reader));
+                return true;
+            case "weight":
+                details.setWeight(BsonValues.readDouble(reader));
+                return true;
+            case "materialUsages":
+                details.setMaterialUsages(readMaterialUsages(reader));
+                return true;
+            default:
+                return false;
+        }
+    }
+    
+    @Override
+    protected void afterDecode(FurnitureDetails details) {
+        if (details.getMaterialUsages() == null) {
+            details.setMaterialUsages(new ArrayList<>());
+        }
+    }
+    
+    private List<MaterialUsage> readMaterialUsages(BsonReader reader) {
+        List<MaterialUsage> usages = new ArrayList<>();
+        if (reader.getCurrentBsonType() != BsonType.ARRAY) {
+            reader.skipValue();
+            return usages;
+        }
+        
+        reader.readStartArray();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            if (reader.getCurrentBsonType() != BsonType.DOCUMENT) {
+                reader.skipValue();
+                continue;
+            }
+            MaterialUsage usage = new MaterialUsage();
+            reader.readStartDocument();
+            while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                switch (reader.readName()) {
+                    case "materialId":
+                        usage.setMaterialId(BsonValues.readObjectId(reader));
+                        break;
+                    case "quantity":
+                        usage.setQuantity(BsonValues.readDouble(reader));
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.readEndDocument();
+            usages.add(usage);
+        }
+        reader.readEndArray();
+        return usages;
+    }
+    
+    @Override
+    protected void writeFields(BsonWriter writer, FurnitureDetails details, EncoderContext encoderContext) {
+        BsonValues.writeObjectId(writer, "furnitureId", details.getFurnitureId());
+        BsonValues.writeString(writer, "description", details.getDescription());
+        BsonValues.writeString(writer, "dimensions", details.getDimensions());
+        writer.writeDouble("weight", details.getWeight());
+        
+        writer.writeStartArray("materialUsages");
+        if (details.getMaterialUsages() != null) {
+            for (MaterialUsage usage : details.getMaterialUsages()) {
+                writer.writeStartDocument();
+                BsonValues.writeObjectId(writer, "materialId", usage.getMaterialId());
+                writer.writeDouble("quantity", usage.getQuantity());
+                writer.writeEndDocument();
+            }
+        }
+        writer.writeEndArray();
+    }
+}
\ No newline at end of file
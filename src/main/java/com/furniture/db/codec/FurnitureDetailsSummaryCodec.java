@@ -0,0 +1,44 @@
+package com.furniture.db.codec;
+
+import com.furniture.model.FurnitureDetailsSummary;
+import org.bson.BsonReader;
+import org.bson.codecs.DecoderContext;
+import org.bson.types.ObjectId;
+
+public class FurnitureDetailsSummaryCodec extends SummaryCodec<FurnitureDetailsSummary> {
+    
+    @Override
+    public Class<FurnitureDetailsSummary> getEncoderClass() {
+        return FurnitureDetailsSummary.class;
+    }
+    
+    @Override
+    protected FurnitureDetailsSummary newInstance() {
+        return new FurnitureDetailsSummary();
+    }
+    
+    @Override
+    protected void setId(FurnitureDetailsSummary summary, ObjectId id) {
+        summary.setId(id);
+    }
+    
+    @Override
+    protected boolean readField(BsonReader reader, String name, FurnitureDetailsSummary summary, DecoderContext decoderContext) {
+        switch (name) {
+            case "furnitureId":
+                summary.setFurnitureId(BsonValues.readObjectId(reader));
+                return true;
+            case "dimensions":
+                summary.setDimensions(BsonValues.readString(reader));
+                return true;
+            case "weight":
+                summary.setWeight(BsonValues.readDouble(reader));
+                return true;
+            case "materialCount":
+                summary.setMaterialCount(BsonValues.readInt(reader));
+                return true;
+            default:
+                return false;
+        }
+    }
+}
\ No newline at end of file
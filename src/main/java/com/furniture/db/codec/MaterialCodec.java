@@ -0,0 +1,66 @@
+package com.furniture.db.codec;
+
+import com.furniture.db.SearchText;
+import com.furniture.model.Material;
+import org.bson.BsonReader;
+import org.bson.BsonWriter;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.ObjectId;
+
+public class MaterialCodec extends EntityCodec<Material> {
+    
+    @Override
+    public Class<Material> getEncoderClass() {
+        return Material.class;
+    }
+    
+    @Override
+    protected Material newInstance() {
+        return new Material();
+    }
+    
+    @Override
+    protected ObjectId getId(Material material) {
+        return material.getId();
+    }
+    
+    @Override
+    protected void setId(Material material, ObjectId id) {
+        material.setId(id);
+    }
+    
+    @Override
+    protected boolean readField(BsonReader reader, String name, Material material, DecoderContext decoderContext) {
+        switch (name) {
+            case "name":
+                material.setName(BsonValues.readString(reader));
+                return true;
+            case "type":
+                material.setType(BsonValues.readString(reader));
+                return true;
+            case "costPerUnit":
+                material.setCostPerUnit(BsonValues.readDouble(reader));
+                return true;
+            case "unit":
+                material.setUnit(BsonValues.readString(reader));
+                return true;
+            case "stockQuantity":
+                material.setStockQuantity(BsonValues.readInt(reader));
+                return true;
+            default:
+                return false;
+        }
+    }
+    
+    @Override
+    protected void writeFields(BsonWriter writer, Material material, EncoderContext encoderContext) {
+        BsonValues.writeString(writer, "name", material.getName());
+        BsonValues.writeString(writer, "type", material.getType());
+        writer.writeDouble("costPerUnit", material.getCostPerUnit());
+        BsonValues.writeString(writer, "unit", material.getUnit());
+        writer.writeInt32("stockQuantity", material.getStockQuantity());
+        // Normalized copy for index-backed prefix search
+        BsonValues.writeString(writer, SearchText.shadowField("name"), SearchText.normalize(material.getName()));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,27 @@
+package com.furniture.db.codec;
+
+import com.mongodb.MongoClientSettings;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+
+/**
+ * Codec registry with the model codecs in front of the driver defaults.
+ */
+public final class ModelCodecs {
+    
+    private ModelCodecs() {
+    }
+    
+    public static CodecRegistry createRegistry() {
+        return CodecRegistries.fromRegistries(
+                CodecRegistries.fromCodecs(
+                        new CustomerCodec(),
+                        new OrderCodec(),
+                        new FurnitureCodec(),
+                        new MaterialCodec(),
+                        new FurnitureDetailsCodec(),
+                        new OrderSummaryCodec(),
+                        new FurnitureDetailsSummaryCodec()),
+                MongoClientSettings.getDefaultCodecRegistry());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,124 @@
+package com.furniture.db.codec;
+
+import com.furniture.model.Order;
+import com.furniture.model.Order.OrderItem;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.ObjectId;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+public class OrderCodec extends EntityCodec<Order> {
+    
+    @Override
+    public Class<Order> getEncoderClass() {
+        return Order.class;
+    }
+    
+    @Override
+    protected Order newInstance() {
+        return new Order();
+    }
+    
+    @Override
+    protected ObjectId getId(Order order) {
+        return order.getId();
+    }
+    
+    @Override
+    protected void setId(Order order, ObjectId id) {
+        order.setId(id);
+    }
+    
+    @Override
+    protected boolean readField(BsonReader reader, String name, Order order, DecoderContext decoderContext) {
+        switch (name) {
+            case "customerId":
+                order.setCustomerId(BsonValues.readObjectId(reader));
+                return true;
+            case "orderDate":
+                order.setOrderDate(BsonValues.readDate(reader));
+                return true;
+            case "status":
+                order.setStatus(BsonValues.readString(reader));
+                return true;
+            case "totalPrice":
+                order.setTotalPrice(BsonValues.readDouble(reader));
+                return true;
+            case "items":
+                order.setItems(readItems(reader));
+                return true;
+            default:
+                return false;
+        }
+    }
+    
+    @Override
+    protected void afterDecode(Order order) {
+        if (order.getItems() == null) {
+            order.setItems(new ArrayList<>());
+        }
+    }
+    
+    private List<OrderItem> readItems(BsonReader reader) {
+        List<OrderItem> items = new ArrayList<>();
+        if (reader.getCurrentBsonType() != BsonType.ARRAY) {
+            reader.skipValue();
+            return items;
+        }
+        
+        reader.readStartArray();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            if (reader.getCurrentBsonType() != BsonType.DOCUMENT) {
+                reader.skipValue();
+                continue;
+            }
+            OrderItem item = new OrderItem();
+            reader.readStartDocument();
+            while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                switch (reader.readName()) {
+                    case "furnitureId":
+                        item.setFurnitureId(BsonValues.readObjectId(reader));
+                        break;
+                    case "quantity":
+                        item.setQuantity(BsonValues.readInt(reader));
+                        break;
+                    case "price":
+                        item.setPrice(BsonValues.readDouble(reader));
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.readEndDocument();
+            items.add(item);
+        }
+        reader.readEndArray();
+        return items;
+    }
+    
+    @Override
+    protected void writeFields(BsonWriter writer, Order order, EncoderContext encoderContext) {
+        BsonValues.writeObjectId(writer, "customerId", order.getCustomerId());
+        BsonValues.writeDate(writer, "orderDate", order.getOrderDate() != null ? order.getOrderDate() : new Date());
+        BsonValues.writeString(writer, "status", order.getStatus());
+        writer.writeDouble("totalPrice", order.getTotalPrice());
+        
+        writer.writeStartArray("items");
+        if (order.getItems() != null) {
+            for (OrderItem item : order.getItems()) {
+                writer.writeStartDocument();
+                BsonValues.writeObjectId(writer, "furnitureId", item.getFurnitureId());
+                writer.writeInt32("quantity", item.getQuantity());
+                writer.writeDouble("price", item.getPrice());
+                writer.writeEndDocument();
+            }
+        }
+        writer.writeEndArray();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,47 @@
+package com.furniture.db.codec;
+
+import com.furniture.model.OrderSummary;
+import org.bson.BsonReader;
+import org.bson.codecs.DecoderContext;
+import org.bson.types.ObjectId;
+
+public class OrderSummaryCodec extends SummaryCodec<OrderSummary> {
+    
+    @Override
+    public Class<OrderSummary> getEncoderClass() {
+        return OrderSummary.class;
+    }
+    
+    @Override
+    protected OrderSummary newInstance() {
+        return new OrderSummary();
+    }
+    
+    @Override
+    protected void setId(OrderSummary summary, ObjectId id) {
+        summary.setId(id);
+    }
+    
+    @Override
+    protected boolean readField(BsonReader reader, String name, OrderSummary summary, DecoderContext decoderContext) {
+        switch (name) {
+            case "customerId":
+                summary.setCustomerId(BsonValues.readObjectId(reader));
+                return true;
+            case "orderDate":
+                summary.setOrderDate(BsonValues.readDate(reader));
+                return true;
+            case "status":
+                summary.setStatus(BsonValues.readString(reader));
+                return true;
+            case "totalPrice":
+                summary.setTotalPrice(BsonValues.readDouble(reader));
+                return true;
+            case "itemCount":
+                summary.setItemCount(BsonValues.readInt(reader));
+                return true;
+            default:
+                return false;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,21 @@
+package com.furniture.db.codec;
+
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.EncoderContext;
+
+/**
+ * Base class for the codecs of read models, which are decoded from projected
+ * queries and never written back.
+ *
+ * The registry needs a codec to hand out for a document class, but unlike
+ * {@link EntityCodec} this one is not collectible: the driver has no ids to
+ * generate for it, and encoding a summary fails.
+ */
+public abstract class SummaryCodec<T> extends DocumentDecoder<T> implements Codec<T> {
+    
+    @Override
+    public void encode(BsonWriter writer, T summary, EncoderContext encoderContext) {
+        throw new UnsupportedOperationException(getEncoderClass().getSimpleName() + " is read-only");
+    }
+}
\ No newline at end of file
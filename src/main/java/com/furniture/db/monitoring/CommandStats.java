@@ -0,0 +1,69 @@
+package com.furniture.db.monitoring;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statistics of one command name (find, insert, aggregate...) on one collection.
+ */
+public class CommandStats implements CommandStatsMXBean {
+    private final String collection;
+    private final String command;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final AtomicLong errors = new AtomicLong();
+    
+    CommandStats(String collection, String command) {
+        this.collection = collection;
+        this.command = command;
+    }
+    
+    void recordSuccess(long nanos) {
+        latency.record(nanos);
+    }
+    
+    void recordFailure() {
+        errors.incrementAndGet();
+    }
+    
+    @Override
+    public String getCollection() {
+        return collection;
+    }
+    
+    @Override
+    public String getCommand() {
+        return command;
+    }
+    
+    @Override
+    public long getCount() {
+        return latency.getCount();
+    }
+    
+    @Override
+    public long getErrors() {
+        return errors.get();
+    }
+    
+    @Override
+    public double getP50Millis() {
+        return latency.snapshot().getPercentileMillis(0.50);
+    }
+    
+    @Override
+    public double getP99Millis() {
+        return latency.snapshot().getPercentileMillis(0.99);
+    }
+    
+    @Override
+    public double getMaxMillis() {
+        return latency.snapshot().getMaxMillis();
+    }
+    
+    @Override
+    public String toString() {
+        LatencyHistogram.Snapshot snapshot = latency.snapshot();
+        return String.format("%s.%s: %d calls, p50 %.2f ms, p99 %.2f ms, max %.2f ms, %d errors",
+                collection, command, snapshot.getCount(), snapshot.getPercentileMillis(0.50),
+                snapshot.getPercentileMillis(0.99), snapshot.getMaxMillis(), errors.get());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,20 @@
+package com.furniture.db.monitoring;
+
+/**
+ * Latency and errors of one database command on one collection, since startup.
+ */
+public interface CommandStatsMXBean {
+    String getCollection();
+    
+    String getCommand();
+    
+    long getCount();
+    
+    long getErrors();
+    
+    double getP50Millis();
+    
+    double getP99Millis();
+    
+    double getMaxMillis();
+}
\ No newline at end of file
@@ -0,0 +1,284 @@
+package com.furniture.db.monitoring;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import com.mongodb.event.ConnectionCheckOutFailedEvent;
+import com.mongodb.event.ConnectionCheckOutStartedEvent;
+import com.mongodb.event.ConnectionCheckedInEvent;
+import com.mongodb.event.ConnectionCheckedOutEvent;
+import com.mongodb.event.ConnectionClosedEvent;
+import com.mongodb.event.ConnectionCreatedEvent;
+import com.mongodb.event.ConnectionPoolClearedEvent;
+import com.mongodb.event.ConnectionPoolListener;
+import com.mongodb.event.ServerHeartbeatFailedEvent;
+import com.mongodb.event.ServerHeartbeatSucceededEvent;
+import com.mongodb.event.ServerMonitorListener;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects latency, pool and health metrics from the driver's event listeners.
+ *
+ * Command latencies are kept per collection and command name, and published as one
+ * MXBean each under com.furniture:type=MongoCommand. The pool and heartbeat figures
+ * are published as com.furniture:type=MongoClient. Listeners are called on driver
+ * threads and only update atomic counters.
+ */
+public class DatabaseMonitor implements CommandListener, ConnectionPoolListener, ServerMonitorListener, DatabaseMonitorMXBean {
+    private static final String DOMAIN = "com.furniture";
+    // Commands that run against the database rather than a collection
+    private static final String NO_COLLECTION = "-";
+    // Waits for more change stream events by design, so it is left out of the overall latency
+    private static final String GET_MORE = "getMore";
+    
+    private final Map<String, CommandStats> commands = new ConcurrentHashMap<>();
+    // Collection of each running command, command events after the start only carry the request id
+    private final Map<Integer, String> runningCollections = new ConcurrentHashMap<>();
+    private final LatencyHistogram overallLatency = new LatencyHistogram();
+    private final AtomicLong commandErrors = new AtomicLong();
+    
+    private final LatencyHistogram checkoutWait = new LatencyHistogram();
+    // Checkouts of the sync driver happen on the thread running the operation
+    private final ThreadLocal<Long> checkoutStart = new ThreadLocal<>();
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final AtomicInteger checkedOutConnections = new AtomicInteger();
+    private final AtomicLong checkoutFailures = new AtomicLong();
+    private final AtomicLong poolClears = new AtomicLong();
+    
+    private volatile Boolean serverReachable;
+    private volatile String lastHeartbeatError;
+    private volatile long lastRoundTripNanos;
+    
+    private final List<ObjectName> registeredNames = new ArrayList<>();
+    private final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+    
+    public DatabaseMonitor() {
+        register(DOMAIN + ":type=MongoClient", this);
+    }
+    
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        runningCollections.put(event.getRequestId(), collectionOf(event.getCommandName(), event.getCommand()));
+    }
+    
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        long nanos = event.getElapsedTime(TimeUnit.NANOSECONDS);
+        statsFor(event.getRequestId(), event.getCommandName()).recordSuccess(nanos);
+        if (!GET_MORE.equals(event.getCommandName())) {
+            overallLatency.record(nanos);
+        }
+    }
+    
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        statsFor(event.getRequestId(), event.getCommandName()).recordFailure();
+        commandErrors.incrementAndGet();
+    }
+    
+    private CommandStats statsFor(int requestId, String commandName) {
+        String collection = runningCollections.remove(requestId);
+        String key = (collection != null ? collection : NO_COLLECTION) + "." + commandName;
+        CommandStats stats = commands.get(key);
+        if (stats == null) {
+            CommandStats created = new CommandStats(collection != null ? collection : NO_COLLECTION, commandName);
+            stats = commands.putIfAbsent(key, created);
+            if (stats == null) {
+                stats = created;
+                register(DOMAIN + ":type=MongoCommand,collection=" + ObjectName.quote(created.getCollection())
+                        + ",command=" + commandName, created);
+            }
+        }
+        return stats;
+    }
+    
+    /**
+     * The collection a command works on: the value of the command name (find: "orders"),
+     * or of "collection" for getMore. Commands on the database itself have none.
+     */
+    private static String collectionOf(String commandName, BsonDocument command) {
+        BsonValue target = GET_MORE.equals(commandName) ? command.get("collection") : command.get(commandName);
+        return target != null && target.isString() ? target.asString().getValue() : NO_COLLECTION;
+    }
+    
+    public Collection<CommandStats> getCommandStats() {
+        return commands.values();
+    }
+    
+    /**
+     * Latencies of all commands except getMore so far; the difference of two snapshots
+     * gives the latency of the commands in between.
+     */
+    public LatencyHistogram.Snapshot snapshotLatency() {
+        return overallLatency.snapshot();
+    }
+    
+    @Override
+    public void connectionCreated(ConnectionCreatedEvent event) {
+        openConnections.incrementAndGet();
+    }
+    
+    @Override
+    public void connectionClosed(ConnectionClosedEvent event) {
+        openConnections.decrementAndGet();
+    }
+    
+    @Override
+    public void connectionCheckOutStarted(ConnectionCheckOutStartedEvent event) {
+        checkoutStart.set(System.nanoTime());
+    }
+    
+    @Override
+    public void connectionCheckedOut(ConnectionCheckedOutEvent event) {
+        checkedOutConnections.incrementAndGet();
+        Long start = checkoutStart.get();
+        if (start != null) {
+            checkoutWait.record(System.nanoTime() - start);
+            checkoutStart.remove();
+        }
+    }
+    
+    @Override
+    public void connectionCheckOutFailed(ConnectionCheckOutFailedEvent event) {
+        checkoutFailures.incrementAndGet();
+        checkoutStart.remove();
+    }
+    
+    @Override
+    public void connectionCheckedIn(ConnectionCheckedInEvent event) {
+        checkedOutConnections.decrementAndGet();
+    }
+    
+    @Override
+    public void connectionPoolCleared(ConnectionPoolClearedEvent event) {
+        poolClears.incrementAndGet();
+    }
+    
+    @Override
+    public void serverHeartbeatSucceeded(ServerHeartbeatSucceededEvent event) {
+        serverReachable = true;
+        lastHeartbeatError = null;
+        // An awaited heartbeat waits on the server for a topology change, its time is no round trip
+        if (!event.isAwaited()) {
+            lastRoundTripNanos = event.getElapsedTime(TimeUnit.NANOSECONDS);
+        }
+    }
+    
+    @Override
+    public void serverHeartbeatFailed(ServerHeartbeatFailedEvent event) {
+        serverReachable = false;
+        lastHeartbeatError = event.getThrowable().getMessage();
+    }
+    
+    /**
+     * Whether the last heartbeat reached the server, null before the first one completed.
+     */
+    public Boolean getServerReachable() {
+        return serverReachable;
+    }
+    
+    @Override
+    public boolean isServerReachable() {
+        return Boolean.TRUE.equals(serverReachable);
+    }
+    
+    @Override
+    public String getLastHeartbeatError() {
+        return lastHeartbeatError;
+    }
+    
+    @Override
+    public double getLastRoundTripMillis() {
+        return lastRoundTripNanos / 1_000_000.0;
+    }
+    
+    @Override
+    public int getOpenConnections() {
+        return openConnections.get();
+    }
+    
+    @Override
+    public int getCheckedOutConnections() {
+        return checkedOutConnections.get();
+    }
+    
+    @Override
+    public long getCheckouts() {
+        return checkoutWait.getCount();
+    }
+    
+    @Override
+    public long getCheckoutFailures() {
+        return checkoutFailures.get();
+    }
+    
+    @Override
+    public double getCheckoutWaitP50Millis() {
+        return checkoutWait.snapshot().getPercentileMillis(0.50);
+    }
+    
+    @Override
+    public double getCheckoutWaitP99Millis() {
+        return checkoutWait.snapshot().getPercentileMillis(0.99);
+    }
+    
+    @Override
+    public double getCheckoutWaitMaxMillis() {
+        return checkoutWait.snapshot().getMaxMillis();
+    }
+    
+    @Override
+    public long getPoolClears() {
+        return poolClears.get();
+    }
+    
+    @Override
+    public long getCommandErrors() {
+        return commandErrors.get();
+    }
+    
+    private void register(String name, Object mBean) {
+        try {
+            ObjectName objectName = new ObjectName(name);
+            synchronized (registeredNames) {
+                if (!mBeanServer.isRegistered(objectName)) {
+                    mBeanServer.registerMBean(mBean, objectName);
+                    registeredNames.add(objectName);
+                }
+            }
+        } catch (JMException e) {
+            System.err.println("Error registering MBean " + name + ": " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Removes the MBeans.
+     */
+    public void close() {
+        synchronized (registeredNames) {
+            for (ObjectName name : registeredNames) {
+                try {
+                    mBeanServer.unregisterMBean(name);
+                } catch (JMException e) {
+                    System.err.println("Error unregistering MBean " + name + ": " + e.getMessage());
+                }
+            }
+            registeredNames.clear();
+        }
+    }
+}
\ No newline at end of file
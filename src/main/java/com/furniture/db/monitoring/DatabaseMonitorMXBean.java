@@ -0,0 +1,30 @@
+package com.furniture.db.monitoring;
+
+/**
+ * Connection pool and server health of the MongoDB client.
+ */
+public interface DatabaseMonitorMXBean {
+    boolean isServerReachable();
+    
+    String getLastHeartbeatError();
+    
+    double getLastRoundTripMillis();
+    
+    int getOpenConnections();
+    
+    int getCheckedOutConnections();
+    
+    long getCheckouts();
+    
+    long getCheckoutFailures();
+    
+    double getCheckoutWaitP50Millis();
+    
+    double getCheckoutWaitP99Millis();
+    
+    double getCheckoutWaitMaxMillis();
+    
+    long getPoolClears();
+    
+    long getCommandErrors();
+}
\ No newline at end of file
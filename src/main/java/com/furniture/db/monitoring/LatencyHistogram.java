@@ -0,0 +1,119 @@
+package com.furniture.db.monitoring;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of durations with microsecond resolution.
+ *
+ * Buckets are log-linear: exact below 32 µs, then 32 buckets per power of two, so a
+ * percentile is off by at most about 3% whatever the magnitude, in a fixed 15 KB.
+ * Recording is a couple of atomic increments and may happen on any thread; readers
+ * take a {@link Snapshot}, and the difference of two snapshots covers an interval.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+    
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+    
+    public void record(long nanos) {
+        long duration = Math.max(0, nanos);
+        counts.incrementAndGet(bucketOf(duration / 1000));
+        count.incrementAndGet();
+        maxNanos.accumulateAndGet(duration, Math::max);
+    }
+    
+    public long getCount() {
+        return count.get();
+    }
+    
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long total = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            copy[bucket] = counts.get(bucket);
+            total += copy[bucket];
+        }
+        return new Snapshot(copy, total, maxNanos.get());
+    }
+    
+    static int bucketOf(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS;
+        int subBucket = (int) (micros >>> shift) & (SUB_BUCKETS - 1);
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+    
+    // Largest duration in microseconds that falls into the bucket
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowerBound = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lowerBound + (1L << shift) - 1;
+    }
+    
+    /**
+     * Counts of a histogram at one point in time.
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long maxNanos;
+        
+        private Snapshot(long[] counts, long count, long maxNanos) {
+            this.counts = counts;
+            this.count = count;
+            this.maxNanos = maxNanos;
+        }
+        
+        public long getCount() {
+            return count;
+        }
+        
+        /**
+         * Durations recorded since the earlier snapshot of the same histogram. The
+         * maximum of the interval is only known to the precision of its bucket.
+         */
+        public Snapshot minus(Snapshot earlier) {
+            long[] difference = new long[BUCKETS];
+            long highest = 0;
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                difference[bucket] = counts[bucket] - earlier.counts[bucket];
+                if (difference[bucket] > 0) {
+                    highest = upperBound(bucket) * 1000;
+                }
+            }
+            return new Snapshot(difference, count - earlier.count, Math.min(highest, maxNanos));
+        }
+        
+        /**
+         * Duration below which the given fraction (0..1) of the recorded ones fall, 0 if empty.
+         */
+        public double getPercentileMillis(double fraction) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(fraction * count));
+            long seen = 0;
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                seen += counts[bucket];
+                if (seen >= rank) {
+                    return Math.min(upperBound(bucket) * 1000, maxNanos) / 1_000_000.0;
+                }
+            }
+            return maxNanos / 1_000_000.0;
+        }
+        
+        public double getMaxMillis() {
+            return maxNanos / 1_000_000.0;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,135 @@
+package com.furniture.io;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads comma separated values with a header row naming the fields.
+ *
+ * Values may be quoted, a quoted value can contain commas, line breaks and
+ * doubled quotes. A record whose column count differs from the header is
+ * returned as malformed.
+ */
+public class CsvRecordReader implements RecordReader {
+    private static final char SEPARATOR = ',';
+    private static final char QUOTE = '"';
+    private static final String BYTE_ORDER_MARK = "\uFEFF";
+    
+    private final BufferedReader reader;
+    private List<String> header;
+    private long lineNumber;
+    
+    public CsvRecordReader(BufferedReader reader) {
+        this.reader = reader;
+    }
+    
+    @Override
+    public ImportRecord next() throws IOException {
+        if (header == null) {
+            header = readHeader();
+            if (header == null) {
+                return null;
+            }
+        }
+        
+        List<String> values = new ArrayList<>(header.size());
+        StringBuilder raw = new StringBuilder();
+        long firstLine;
+        do {
+            firstLine = lineNumber + 1;
+            raw.setLength(0);
+            if (!readRow(values, raw)) {
+                return null;
+            }
+        } while (values.size() == 1 && values.get(0).isEmpty());
+        
+        if (values.size() != header.size()) {
+            return ImportRecord.malformed(firstLine, raw.toString(),
+                    "Ожидалось столбцов: " + header.size() + ", получено: " + values.size());
+        }
+        Map<String, String> fields = new LinkedHashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            fields.put(header.get(i), values.get(i));
+        }
+        return ImportRecord.parsed(firstLine, raw.toString(), fields);
+    }
+    
+    private List<String> readHeader() throws IOException {
+        List<String> columns = new ArrayList<>();
+        if (!readRow(columns, new StringBuilder())) {
+            return null;
+        }
+        if (!columns.isEmpty() && columns.get(0).startsWith(BYTE_ORDER_MARK)) {
+            columns.set(0, columns.get(0).substring(1));
+        }
+        columns.replaceAll(String::trim);
+        return columns;
+    }
+    
+    /**
+     * Reads one record into values, which may span several lines if a quoted value
+     * contains line breaks. Returns false at the end of the file.
+     */
+    private boolean readRow(List<String> values, StringBuilder raw) throws IOException {
+        values.clear();
+        String line = reader.readLine();
+        if (line == null) {
+            return false;
+        }
+        lineNumber++;
+        raw.append(line);
+        
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        int i = 0;
+        while (true) {
+            if (i == line.length()) {
+                if (!quoted) {
+                    break;
+                }
+                // Line break inside a quoted value, the record continues on the next line
+                line = reader.readLine();
+                if (line == null) {
+                    break;
+                }
+                lineNumber++;
+                raw.append('\n').append(line);
+                value.append('\n');
+                i = 0;
+                continue;
+            }
+            
+            char c = line.charAt(i++);
+            if (quoted) {
+                if (c == QUOTE) {
+                    if (i < line.length() && line.charAt(i) == QUOTE) {
+                        value.append(QUOTE);
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    value.append(c);
+                }
+            } else if (c == QUOTE) {
+                quoted = true;
+            } else if (c == SEPARATOR) {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        values.add(value.toString());
+        return true;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
\ No newline at end of file
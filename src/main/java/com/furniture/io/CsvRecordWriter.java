@@ -0,0 +1,72 @@
+package com.furniture.io;
+
+import java.io.IOException;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+
+/**
+ * Writes comma separated values that {@link CsvRecordReader} reads back.
+ * Values containing separators, quotes or line breaks are quoted.
+ */
+public class CsvRecordWriter implements RecordWriter {
+    private final ChannelTextWriter out;
+    private final StringBuilder line = new StringBuilder(256);
+    
+    public CsvRecordWriter(ChannelTextWriter out) {
+        this.out = out;
+    }
+    
+    @Override
+    public void writeHeader(String[] columns) throws IOException {
+        writeRecord(columns);
+    }
+    
+    @Override
+    public void writeRecord(Object[] values) throws IOException {
+        line.setLength(0);
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            appendValue(values[i]);
+        }
+        line.append('\n');
+        out.write(line);
+    }
+    
+    private void appendValue(Object value) {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof Number) {
+            line.append(value);
+            return;
+        }
+        String text = value instanceof Date
+                ? DateTimeFormatter.ISO_INSTANT.format(((Date) value).toInstant())
+                : value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            line.append(text);
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                line.append('"');
+            }
+            line.append(c);
+        }
+        line.append('"');
+    }
+    
+    @Override
+    public long getBytesWritten() {
+        return out.getBytesWritten();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,23 @@
+package com.furniture.io;
+
+import com.furniture.model.Customer;
+
+/**
+ * Maps records with the fields name, email, phone and address.
+ * Name and email are required, as in the add dialog.
+ */
+public class CustomerRecordMapper implements RecordMapper<Customer> {
+    
+    @Override
+    public void validate(ImportRecord record) throws RecordRejectedException {
+        RecordMapper.require(record, "name", "email");
+        if (!record.get("email").contains("@")) {
+            throw new RecordRejectedException("Неверный email: " + record.get("email"));
+        }
+    }
+    
+    @Override
+    public Customer map(ImportRecord record) {
+        return new Customer(record.get("name"), record.get("email"), record.get("phone"), record.get("address"));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,27 @@
+package com.furniture.io;
+
+import lombok.Value;
+
+/**
+ * Outcome of an export: how many records and bytes were written and how fast.
+ */
+@Value
+public class ExportResult {
+    long records;
+    long bytes;
+    long elapsedNanos;
+    
+    public double getRecordsPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : records * 1_000_000_000.0 / elapsedNanos;
+    }
+    
+    public double getMegabytesPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : bytes * 1_000_000_000.0 / elapsedNanos / (1 << 20);
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("Export: %d records, %.1f MB in %d ms (%.0f records/s, %.1f MB/s)",
+                records, bytes / (double) (1 << 20), elapsedNanos / 1_000_000, getRecordsPerSecond(), getMegabytesPerSecond());
+    }
+}
\ No newline at end of file
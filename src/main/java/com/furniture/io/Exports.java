@@ -0,0 +1,93 @@
+package com.furniture.io;
+
+import com.furniture.model.Customer;
+import com.furniture.model.Furniture;
+import com.furniture.model.Material;
+import com.furniture.model.OrderSummary;
+import com.furniture.repository.CustomerRepository;
+import com.furniture.repository.FurnitureRepository;
+import com.furniture.repository.MaterialRepository;
+import com.furniture.repository.OrderRepository;
+import org.bson.types.ObjectId;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Exporters of the collections. Catalog columns are named like the model fields,
+ * so exported customers, furniture and materials can be imported again.
+ */
+public final class Exports {
+    private static final String[] ORDER_COLUMNS = {"id", "customerId", "customerName", "orderDate", "status", "totalPrice", "itemCount"};
+    private static final String[] CUSTOMER_COLUMNS = {"id", "name", "email", "phone", "address"};
+    private static final String[] FURNITURE_COLUMNS = {"id", "name", "category", "price", "stockQuantity"};
+    private static final String[] MATERIAL_COLUMNS = {"id", "name", "type", "costPerUnit", "unit", "stockQuantity"};
+    
+    private Exports() {
+    }
+    
+    /**
+     * Orders with the customer name, the customers of each chunk are loaded with one $in query.
+     */
+    public static StreamingExporter<OrderSummary> orders(OrderRepository orderRepository, CustomerRepository customerRepository) {
+        return new StreamingExporter<>(ORDER_COLUMNS, orderRepository::streamOrderSummaries, chunk -> {
+            Set<ObjectId> customerIds = new HashSet<>();
+            for (OrderSummary order : chunk) {
+                if (order.getCustomerId() != null) {
+                    customerIds.add(order.getCustomerId());
+                }
+            }
+            Map<ObjectId, Customer> customers = customerRepository.getCustomersByIds(customerIds);
+            return order -> {
+                Customer customer = customers.get(order.getCustomerId());
+                return new Object[]{
+                    order.getId().toString(),
+                    order.getCustomerId() != null ? order.getCustomerId().toString() : null,
+                    customer != null ? customer.getName() : null,
+                    order.getOrderDate(),
+                    order.getStatus(),
+                    order.getTotalPrice(),
+                    order.getItemCount()
+                };
+            };
+        }, StreamingExporter.DEFAULT_BATCH_SIZE);
+    }
+    
+    public static StreamingExporter<Customer> customers(CustomerRepository customerRepository) {
+        return simple(CUSTOMER_COLUMNS, customerRepository::streamCustomers, customer -> new Object[]{
+            customer.getId().toString(),
+            customer.getName(),
+            customer.getEmail(),
+            customer.getPhone(),
+            customer.getAddress()
+        });
+    }
+    
+    public static StreamingExporter<Furniture> furniture(FurnitureRepository furnitureRepository) {
+        return simple(FURNITURE_COLUMNS, furnitureRepository::streamFurniture, furniture -> new Object[]{
+            furniture.getId().toString(),
+            furniture.getName(),
+            furniture.getCategory(),
+            furniture.getPrice(),
+            furniture.getStockQuantity()
+        });
+    }
+    
+    public static StreamingExporter<Material> materials(MaterialRepository materialRepository) {
+        return simple(MATERIAL_COLUMNS, materialRepository::streamMaterials, material -> new Object[]{
+            material.getId().toString(),
+            material.getName(),
+            material.getType(),
+            material.getCostPerUnit(),
+            material.getUnit(),
+            material.getStockQuantity()
+        });
+    }
+    
+    private static <T> StreamingExporter<T> simple(String[] columns, StreamingExporter.Source<T> source, Function<T, Object[]> toRow) {
+        return new StreamingExporter<>(columns, source, (List<T> chunk) -> toRow, StreamingExporter.DEFAULT_BATCH_SIZE);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,28 @@
+package com.furniture.io;
+
+import com.furniture.model.Furniture;
+
+/**
+ * Maps records with the fields name, category, price and stockQuantity.
+ * Name and a positive price are required, as in the add dialog.
+ */
+public class FurnitureRecordMapper implements RecordMapper<Furniture> {
+    
+    @Override
+    public void validate(ImportRecord record) throws RecordRejectedException {
+        RecordMapper.require(record, "name", "price");
+    }
+    
+    @Override
+    public Furniture map(ImportRecord record) throws RecordRejectedException {
+        double price = RecordMapper.parseDouble(record, "price");
+        if (price <= 0) {
+            throw new RecordRejectedException("Цена должна быть положительной");
+        }
+        int stockQuantity = RecordMapper.parseInt(record, "stockQuantity", 0);
+        if (stockQuantity < 0) {
+            throw new RecordRejectedException("Наличие не может быть отрицательным");
+        }
+        return new Furniture(record.get("name"), record.get("category"), price, stockQuantity);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,275 @@
+package com.furniture.io;
+
+import com.furniture.db.BulkWriteFailure;
+import com.furniture.db.BulkWriteReport;
+import com.furniture.db.MongoDBService;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Streams an import file into a collection through four stages, each on its own thread:
+ * parse, validate, map to the model class and write in bulk batches.
+ *
+ * The stages are connected by bounded queues, so a slow stage (usually the
+ * database) makes the earlier ones wait instead of piling up records, and memory
+ * use does not depend on the size of the file. Records that fail to parse,
+ * validate, map or write are appended to a rejects file next to the input and
+ * the import carries on with the rest.
+ */
+public class ImportPipeline<T> {
+    public static final int DEFAULT_BATCH_SIZE = MongoDBService.DEFAULT_BULK_BATCH_SIZE;
+    private static final int QUEUE_CAPACITY = 1000;
+    private static final String REJECTS_SUFFIX = ".rejects.txt";
+    
+    private final RecordMapper<T> mapper;
+    private final Function<List<T>, BulkWriteReport> writer;
+    private final int batchSize;
+    
+    public ImportPipeline(RecordMapper<T> mapper, Function<List<T>, BulkWriteReport> writer) {
+        this(mapper, writer, DEFAULT_BATCH_SIZE);
+    }
+    
+    public ImportPipeline(RecordMapper<T> mapper, Function<List<T>, BulkWriteReport> writer, int batchSize) {
+        this.mapper = mapper;
+        this.writer = writer;
+        this.batchSize = batchSize;
+    }
+    
+    /**
+     * Imports the file and blocks until every record has been written or rejected.
+     * Interrupting the calling thread stops all stages; records written so far stay written.
+     */
+    public ImportResult run(Path input, Consumer<ImportProgress> progressListener) {
+        return new Run(input, progressListener).execute();
+    }
+    
+    private static class Mapped<T> {
+        private final ImportRecord record;
+        private final T entity;
+        
+        Mapped(ImportRecord record, T entity) {
+            this.record = record;
+            this.entity = entity;
+        }
+    }
+    
+    @FunctionalInterface
+    private interface Stage {
+        void run() throws Exception;
+    }
+    
+    /**
+     * State of a single import; the pipeline itself can be run again.
+     */
+    private class Run {
+        private final ImportRecord endOfInput = ImportRecord.malformed(-1, "", "end of input");
+        private final Mapped<T> endOfMapped = new Mapped<>(endOfInput, null);
+        
+        private final Path input;
+        private final Consumer<ImportProgress> progressListener;
+        private final BlockingQueue<ImportRecord> parsed = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        private final BlockingQueue<ImportRecord> validated = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        private final BlockingQueue<Mapped<T>> mapped = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        private final RejectLog rejects;
+        private final AtomicLong recordsRead = new AtomicLong();
+        private final AtomicLong imported = new AtomicLong();
+        private final AtomicLong bytesRead = new AtomicLong();
+        private final AtomicReference<String> error = new AtomicReference<>();
+        private final List<Thread> threads = new CopyOnWriteArrayList<>();
+        private long totalBytes;
+        
+        Run(Path input, Consumer<ImportProgress> progressListener) {
+            this.input = input;
+            this.progressListener = progressListener;
+            this.rejects = new RejectLog(input.resolveSibling(input.getFileName() + REJECTS_SUFFIX));
+        }
+        
+        ImportResult execute() {
+            long start = System.nanoTime();
+            try {
+                totalBytes = Files.size(input);
+            } catch (IOException e) {
+                return new ImportResult(0, 0, 0, 0, null, e.getMessage());
+            }
+            
+            startStage("import-parse", this::parse);
+            startStage("import-validate", this::validate);
+            startStage("import-map", this::map);
+            startStage("import-write", this::write);
+            
+            try {
+                for (Thread thread : threads) {
+                    thread.join();
+                }
+            } catch (InterruptedException e) {
+                fail("Импорт отменён");
+                joinQuietly();
+                Thread.currentThread().interrupt();
+            }
+            
+            try {
+                rejects.close();
+            } catch (IOException e) {
+                System.err.println("Error closing rejects file: " + e.getMessage());
+            }
+            reportProgress();
+            return new ImportResult(recordsRead.get(), imported.get(), rejects.getCount(),
+                    System.nanoTime() - start, rejects.getPathIfWritten(), error.get());
+        }
+        
+        private void parse() throws Exception {
+            try (InputStream in = new CountingInputStream(Files.newInputStream(input), bytesRead);
+                 RecordReader reader = RecordReader.open(input, in)) {
+                ImportRecord record;
+                while ((record = reader.next()) != null) {
+                    recordsRead.incrementAndGet();
+                    if (record.isMalformed()) {
+                        rejects.reject(record, record.getError());
+                    } else {
+                        parsed.put(record);
+                    }
+                }
+            }
+            parsed.put(endOfInput);
+        }
+        
+        private void validate() throws Exception {
+            for (ImportRecord record = parsed.take(); record != endOfInput; record = parsed.take()) {
+                try {
+                    mapper.validate(record);
+                    validated.put(record);
+                } catch (RecordRejectedException e) {
+                    rejects.reject(record, e.getMessage());
+                }
+            }
+            validated.put(endOfInput);
+        }
+        
+        private void map() throws Exception {
+            for (ImportRecord record = validated.take(); record != endOfInput; record = validated.take()) {
+                try {
+                    mapped.put(new Mapped<>(record, mapper.map(record)));
+                } catch (RecordRejectedException e) {
+                    rejects.reject(record, e.getMessage());
+                }
+            }
+            mapped.put(endOfMapped);
+        }
+        
+        private void write() throws Exception {
+            List<Mapped<T>> batch = new ArrayList<>(batchSize);
+            for (Mapped<T> item = mapped.take(); item != endOfMapped; item = mapped.take()) {
+                batch.add(item);
+                if (batch.size() == batchSize) {
+                    writeBatch(batch);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                writeBatch(batch);
+            }
+        }
+        
+        private void writeBatch(List<Mapped<T>> batch) throws IOException {
+            List<T> entities = new ArrayList<>(batch.size());
+            for (Mapped<T> item : batch) {
+                entities.add(item.entity);
+            }
+            
+            BulkWriteReport report = writer.apply(entities);
+            for (BulkWriteFailure failure : report.getFailures()) {
+                rejects.reject(batch.get(failure.getIndex()).record, "Ошибка записи: " + failure.getMessage());
+            }
+            imported.addAndGet(batch.size() - report.getFailures().size());
+            reportProgress();
+        }
+        
+        private void reportProgress() {
+            progressListener.accept(new ImportProgress(recordsRead.get(), imported.get(), rejects.getCount(),
+                    bytesRead.get(), totalBytes));
+        }
+        
+        private void startStage(String name, Stage stage) {
+            Thread thread = new Thread(() -> {
+                try {
+                    stage.run();
+                } catch (InterruptedException e) {
+                    // Another stage failed or the import was cancelled
+                } catch (Exception e) {
+                    System.err.println("Import stage " + name + " failed: " + e.getMessage());
+                    fail(e.getMessage());
+                }
+            }, name);
+            thread.setDaemon(true);
+            threads.add(thread);
+            thread.start();
+            if (error.get() != null) {
+                // An earlier stage failed before this one was registered
+                thread.interrupt();
+            }
+        }
+        
+        // The first failure wins, the other stages are stopped where they block
+        private void fail(String message) {
+            if (error.compareAndSet(null, message)) {
+                for (Thread thread : threads) {
+                    thread.interrupt();
+                }
+            }
+        }
+        
+        private void joinQuietly() {
+            for (Thread thread : threads) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Counts the bytes consumed by the reader, for the progress percentage.
+     */
+    private static class CountingInputStream extends FilterInputStream {
+        private final AtomicLong count;
+        
+        CountingInputStream(InputStream in, AtomicLong count) {
+            super(new BufferedInputStream(in, 1 << 16));
+            this.count = count;
+        }
+        
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count.incrementAndGet();
+            }
+            return b;
+        }
+        
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                count.addAndGet(n);
+            }
+            return n;
+        }
+    }
+}
\ No newline at end of file
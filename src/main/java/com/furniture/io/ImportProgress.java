@@ -0,0 +1,19 @@
+package com.furniture.io;
+
+import lombok.Value;
+
+/**
+ * Snapshot of a running import, reported after every written batch.
+ */
+@Value
+public class ImportProgress {
+    long recordsRead;
+    long imported;
+    long rejected;
+    long bytesRead;
+    long totalBytes;
+    
+    public int getPercent() {
+        return totalBytes <= 0 ? 0 : (int) Math.min(100, bytesRead * 100 / totalBytes);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,39 @@
+package com.furniture.io;
+
+import lombok.Value;
+
+import java.util.Map;
+
+/**
+ * One record read from an import file, before it is validated.
+ * Field names are the CSV header columns or the keys of the JSON object,
+ * values are kept as text. A record the reader could not parse carries the
+ * reason in {@code error} and is rejected by the pipeline.
+ */
+@Value
+public class ImportRecord {
+    long lineNumber;
+    String raw;
+    Map<String, String> fields;
+    String error;
+    
+    public static ImportRecord parsed(long lineNumber, String raw, Map<String, String> fields) {
+        return new ImportRecord(lineNumber, raw, fields, null);
+    }
+    
+    public static ImportRecord malformed(long lineNumber, String raw, String error) {
+        return new ImportRecord(lineNumber, raw, Map.of(), error);
+    }
+    
+    public boolean isMalformed() {
+        return error != null;
+    }
+    
+    /**
+     * Returns the trimmed value of the field, or an empty string if it is missing.
+     */
+    public String get(String field) {
+        String value = fields.get(field);
+        return value != null ? value.trim() : "";
+    }
+}
\ No newline at end of file
@@ -0,0 +1,34 @@
+package com.furniture.io;
+
+import lombok.Value;
+
+import java.nio.file.Path;
+
+/**
+ * Outcome of an import. The rejects file is null when every record was imported;
+ * the error is set when the import stopped early (e.g. the file became unreadable).
+ */
+@Value
+public class ImportResult {
+    long recordsRead;
+    long imported;
+    long rejected;
+    long elapsedNanos;
+    Path rejectsFile;
+    String error;
+    
+    public boolean isCompleted() {
+        return error == null;
+    }
+    
+    public double getRecordsPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : recordsRead * 1_000_000_000.0 / elapsedNanos;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("Import: %d read, %d imported, %d rejected in %d ms (%.0f records/s)%s",
+                recordsRead, imported, rejected, elapsedNanos / 1_000_000, getRecordsPerSecond(),
+                error != null ? ", stopped: " + error : "");
+    }
+}
\ No newline at end of file
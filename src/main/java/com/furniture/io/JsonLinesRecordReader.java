@@ -0,0 +1,57 @@
+package com.furniture.io;
+
+import org.bson.Document;
+import org.bson.BSONException;
+import org.bson.json.JsonParseException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reads one JSON object per line. Blank lines are skipped, nested values are
+ * kept as their JSON text.
+ */
+public class JsonLinesRecordReader implements RecordReader {
+    private final BufferedReader reader;
+    private long lineNumber;
+    
+    public JsonLinesRecordReader(BufferedReader reader) {
+        this.reader = reader;
+    }
+    
+    @Override
+    public ImportRecord next() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+            lineNumber++;
+        } while (line.isBlank());
+        
+        try {
+            Document document = Document.parse(line);
+            Map<String, String> fields = new LinkedHashMap<>();
+            for (Map.Entry<String, Object> entry : document.entrySet()) {
+                Object value = entry.getValue();
+                if (value instanceof Document) {
+                    fields.put(entry.getKey(), ((Document) value).toJson());
+                } else if (value != null) {
+                    fields.put(entry.getKey(), value.toString());
+                }
+            }
+            return ImportRecord.parsed(lineNumber, line, fields);
+        } catch (JsonParseException | BSONException e) {
+            // Invalid JSON, or a line that is not an object
+            return ImportRecord.malformed(lineNumber, line, "Неверный JSON: " + e.getMessage());
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,85 @@
+package com.furniture.io;
+
+import java.io.IOException;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+
+/**
+ * Writes one JSON object per record, keyed by the header columns.
+ * Numbers stay numbers, dates are written as ISO-8601 strings.
+ */
+public class JsonLinesRecordWriter implements RecordWriter {
+    private final ChannelTextWriter out;
+    private final StringBuilder line = new StringBuilder(256);
+    private String[] columns;
+    
+    public JsonLinesRecordWriter(ChannelTextWriter out) {
+        this.out = out;
+    }
+    
+    @Override
+    public void writeHeader(String[] columns) {
+        this.columns = columns;
+    }
+    
+    @Override
+    public void writeRecord(Object[] values) throws IOException {
+        line.setLength(0);
+        line.append('{');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            appendString(columns[i]);
+            line.append(':');
+            appendValue(values[i]);
+        }
+        line.append("}\n");
+        out.write(line);
+    }
+    
+    private void appendValue(Object value) {
+        if (value == null) {
+            line.append("null");
+        } else if (value instanceof Double && !Double.isFinite((Double) value)) {
+            line.append("null");
+        } else if (value instanceof Number || value instanceof Boolean) {
+            line.append(value);
+        } else if (value instanceof Date) {
+            appendString(DateTimeFormatter.ISO_INSTANT.format(((Date) value).toInstant()));
+        } else {
+            appendString(value.toString());
+        }
+    }
+    
+    private void appendString(String text) {
+        line.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"': line.append("\\\""); break;
+                case '\\': line.append("\\\\"); break;
+                case '\n': line.append("\\n"); break;
+                case '\r': line.append("\\r"); break;
+                case '\t': line.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        line.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        line.append(c);
+                    }
+            }
+        }
+        line.append('"');
+    }
+    
+    @Override
+    public long getBytesWritten() {
+        return out.getBytesWritten();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
\ No newline at end of file
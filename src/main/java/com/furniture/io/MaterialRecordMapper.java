@@ -0,0 +1,28 @@
+package com.furniture.io;
+
+import com.furniture.model.Material;
+
+/**
+ * Maps records with the fields name, type, costPerUnit, unit and stockQuantity.
+ * Name and a positive cost per unit are required, as in the add dialog.
+ */
+public class MaterialRecordMapper implements RecordMapper<Material> {
+    
+    @Override
+    public void validate(ImportRecord record) throws RecordRejectedException {
+        RecordMapper.require(record, "name", "costPerUnit");
+    }
+    
+    @Override
+    public Material map(ImportRecord record) throws RecordRejectedException {
+        double costPerUnit = RecordMapper.parseDouble(record, "costPerUnit");
+        if (costPerUnit <= 0) {
+            throw new RecordRejectedException("Цена должна быть положительной");
+        }
+        int stockQuantity = RecordMapper.parseInt(record, "stockQuantity", 0);
+        if (stockQuantity < 0) {
+            throw new RecordRejectedException("Наличие не может быть отрицательным");
+        }
+        return new Material(record.get("name"), record.get("type"), costPerUnit, record.get("unit"), stockQuantity);
+    }
+}
\ No newline at end of file
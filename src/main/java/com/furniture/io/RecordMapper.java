@@ -0,0 +1,47 @@
+package com.furniture.io;
+
+/**
+ * Turns import records into model objects for one collection.
+ * Validation and mapping run as separate pipeline stages, so {@link #map}
+ * only sees records that passed {@link #validate}.
+ */
+public interface RecordMapper<T> {
+    void validate(ImportRecord record) throws RecordRejectedException;
+    
+    T map(ImportRecord record) throws RecordRejectedException;
+    
+    /**
+     * Parses a decimal field, accepting a comma as the decimal separator.
+     */
+    static double parseDouble(ImportRecord record, String field) throws RecordRejectedException {
+        String value = record.get(field);
+        try {
+            return Double.parseDouble(value.replace(',', '.'));
+        } catch (NumberFormatException e) {
+            throw new RecordRejectedException("Неверное число в поле " + field + ": " + value);
+        }
+    }
+    
+    /**
+     * Parses an integer field, an empty value counts as the default.
+     */
+    static int parseInt(ImportRecord record, String field, int defaultValue) throws RecordRejectedException {
+        String value = record.get(field);
+        if (value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new RecordRejectedException("Неверное целое число в поле " + field + ": " + value);
+        }
+    }
+    
+    static void require(ImportRecord record, String... fields) throws RecordRejectedException {
+        for (String field : fields) {
+            if (record.get(field).isEmpty()) {
+                throw new RecordRejectedException("Не заполнено поле " + field);
+            }
+        }
+    }
+}
\ No newline at end of file
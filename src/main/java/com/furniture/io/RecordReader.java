@@ -0,0 +1,31 @@
+package com.furniture.io;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * Reads an import file one record at a time, so only the current record is kept in memory.
+ */
+public interface RecordReader extends Closeable {
+    /**
+     * Returns the next record, or null at the end of the file.
+     */
+    ImportRecord next() throws IOException;
+    
+    /**
+     * Picks the format by extension: .jsonl and .ndjson are JSON Lines, anything else is CSV.
+     */
+    static RecordReader open(Path path, InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16);
+        String fileName = path.getFileName().toString().toLowerCase();
+        if (fileName.endsWith(".jsonl") || fileName.endsWith(".ndjson")) {
+            return new JsonLinesRecordReader(reader);
+        }
+        return new CsvRecordReader(reader);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,11 @@
+package com.furniture.io;
+
+/**
+ * Thrown by a {@link RecordMapper} when a record cannot be imported.
+ * The message is written to the rejects file next to the record.
+ */
+public class RecordRejectedException extends Exception {
+    public RecordRejectedException(String reason) {
+        super(reason);
+    }
+}
\ No newline at end of file
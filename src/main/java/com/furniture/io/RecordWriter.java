@@ -0,0 +1,29 @@
+package com.furniture.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Writes export records one at a time, the counterpart of {@link RecordReader}.
+ * Values are strings, numbers, dates or null.
+ */
+public interface RecordWriter extends Closeable {
+    void writeHeader(String[] columns) throws IOException;
+    
+    void writeRecord(Object[] values) throws IOException;
+    
+    long getBytesWritten();
+    
+    /**
+     * Picks the format by the extension of the target file: .jsonl and .ndjson are
+     * JSON Lines, anything else is CSV. The text goes to out, which may be a temporary file.
+     */
+    static RecordWriter open(Path target, ChannelTextWriter out) {
+        String fileName = target.getFileName().toString().toLowerCase();
+        if (fileName.endsWith(".jsonl") || fileName.endsWith(".ndjson")) {
+            return new JsonLinesRecordWriter(out);
+        }
+        return new CsvRecordWriter(out);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,46 @@
+package com.furniture.io;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Side file for rejected records, shared by all pipeline stages.
+ * Each entry is "line number TAB reason TAB original text"; the file is only
+ * created once the first record is rejected.
+ */
+class RejectLog implements AutoCloseable {
+    private final Path path;
+    private BufferedWriter writer;
+    private long count;
+    
+    RejectLog(Path path) {
+        this.path = path;
+    }
+    
+    synchronized void reject(ImportRecord record, String reason) throws IOException {
+        if (writer == null) {
+            writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+        }
+        writer.write(record.getLineNumber() + "\t" + reason + "\t" + record.getRaw().replace('\n', ' '));
+        writer.newLine();
+        count++;
+    }
+    
+    synchronized long getCount() {
+        return count;
+    }
+    
+    synchronized Path getPathIfWritten() {
+        return writer != null ? path : null;
+    }
+    
+    @Override
+    public synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,108 @@
+package com.furniture.io;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+
+/**
+ * Writes a whole collection to a CSV or JSON Lines file in constant memory.
+ *
+ * Documents come from a cursor that fetches batchSize documents per round trip
+ * and are turned into records one chunk of the same size at a time, so references
+ * (e.g. customer names of orders) can be resolved with one query per chunk. Only
+ * the current chunk is held in memory. The file is written under a temporary
+ * name and renamed when complete, so a failed or cancelled export leaves no
+ * truncated file behind.
+ */
+public class StreamingExporter<T> {
+    public static final int DEFAULT_BATCH_SIZE = 2000;
+    
+    /**
+     * Cursor over the exported documents, see e.g. {@link com.furniture.repository.OrderRepository#streamOrders}.
+     */
+    @FunctionalInterface
+    public interface Source<T> {
+        void stream(int batchSize, Consumer<T> action);
+    }
+    
+    private final String[] columns;
+    private final Source<T> source;
+    private final Function<List<T>, Function<T, Object[]>> chunkRows;
+    private final int batchSize;
+    
+    /**
+     * @param chunkRows prepares a chunk of documents (e.g. loads their references) and returns the row mapping for it
+     */
+    public StreamingExporter(String[] columns, Source<T> source, Function<List<T>, Function<T, Object[]>> chunkRows, int batchSize) {
+        this.columns = columns;
+        this.source = source;
+        this.chunkRows = chunkRows;
+        this.batchSize = batchSize;
+    }
+    
+    public StreamingExporter<T> withBatchSize(int batchSize) {
+        return new StreamingExporter<>(columns, source, chunkRows, batchSize);
+    }
+    
+    /**
+     * Exports every document and reports the number of records written after each chunk.
+     * Interrupting the calling thread cancels the export.
+     */
+    public ExportResult export(Path file, LongConsumer progress) throws IOException {
+        Path partFile = file.resolveSibling(file.getFileName() + ".part");
+        long start = System.nanoTime();
+        long[] records = {0};
+        
+        try (RecordWriter writer = RecordWriter.open(file, new ChannelTextWriter(partFile))) {
+            writer.writeHeader(columns);
+            List<T> chunk = new ArrayList<>(batchSize);
+            source.stream(batchSize, item -> {
+                if (Thread.currentThread().isInterrupted()) {
+                    // Stops the cursor, it is closed on the way out
+                    throw new CancellationException();
+                }
+                chunk.add(item);
+                if (chunk.size() == batchSize) {
+                    records[0] += writeChunk(writer, chunk);
+                    progress.accept(records[0]);
+                }
+            });
+            records[0] += writeChunk(writer, chunk);
+        } catch (UncheckedIOException e) {
+            Files.deleteIfExists(partFile);
+            throw e.getCause();
+        } catch (RuntimeException | IOException e) {
+            Files.deleteIfExists(partFile);
+            throw e;
+        }
+        
+        Files.move(partFile, file, StandardCopyOption.REPLACE_EXISTING);
+        progress.accept(records[0]);
+        return new ExportResult(records[0], Files.size(file), System.nanoTime() - start);
+    }
+    
+    private int writeChunk(RecordWriter writer, List<T> chunk) {
+        if (chunk.isEmpty()) {
+            return 0;
+        }
+        Function<T, Object[]> toRow = chunkRows.apply(chunk);
+        try {
+            for (T item : chunk) {
+                writer.writeRecord(toRow.apply(item));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        int written = chunk.size();
+        chunk.clear();
+        return written;
+    }
+}
\ No newline at end of file
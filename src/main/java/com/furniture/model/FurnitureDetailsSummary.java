@@ -0,0 +1,26 @@
+package com.furniture.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.bson.types.ObjectId;
+
+/**
+ * Furniture details as shown in lists, without the description and with the
+ * number of material usages instead of the usages themselves.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FurnitureDetailsSummary {
+    private ObjectId id;
+    private ObjectId furnitureId;
+    private String dimensions;
+    private double weight;
+    private int materialCount;
+    
+    public static FurnitureDetailsSummary from(FurnitureDetails details) {
+        return new FurnitureDetailsSummary(details.getId(), details.getFurnitureId(), details.getDimensions(),
+                details.getWeight(), details.getMaterialUsages() != null ? details.getMaterialUsages().size() : 0);
+    }
+}
\ No newline at end of file
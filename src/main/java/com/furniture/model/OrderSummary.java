@@ -0,0 +1,28 @@
+package com.furniture.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.bson.types.ObjectId;
+import java.util.Date;
+
+/**
+ * Order as shown in lists: the items array is replaced by its size,
+ * which the server computes. The full {@link Order} is loaded only when needed.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderSummary {
+    private ObjectId id;
+    private ObjectId customerId;
+    private Date orderDate;
+    private String status;
+    private double totalPrice;
+    private int itemCount;
+    
+    public static OrderSummary from(Order order) {
+        return new OrderSummary(order.getId(), order.getCustomerId(), order.getOrderDate(), order.getStatus(),
+                order.getTotalPrice(), order.getItems() != null ? order.getItems().size() : 0);
+    }
+}
\ No newline at end of file
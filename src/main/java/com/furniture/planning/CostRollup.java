@@ -0,0 +1,157 @@
+package com.furniture.planning;
+
+import com.furniture.model.FurnitureDetails.MaterialUsage;
+import org.bson.types.ObjectId;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Unit material cost of every furniture item, kept up to date incrementally.
+ *
+ * The unit cost of an item is the sum of quantity × cost per unit over the
+ * material usages of its bill of materials. Next to the bills of materials the
+ * rollup keeps a dependency index from every material to the items that use
+ * it, so a changed material cost only re-costs those items instead of the
+ * whole catalog. Affected items are summed again from their bill of materials
+ * rather than adjusted by the difference, so rounding errors do not pile up.
+ *
+ * Materials that are not known (yet) count as free. All methods are
+ * synchronized, changes usually arrive on change stream threads while the
+ * table reads the costs on a loader thread.
+ */
+public class CostRollup {
+    private final Map<ObjectId, Double> materialCosts = new HashMap<>();
+    private final Map<ObjectId, List<MaterialUsage>> billsOfMaterials = new HashMap<>();
+    private final Map<ObjectId, ObjectId> furnitureByDetails = new HashMap<>();
+    private final Map<ObjectId, Set<ObjectId>> usedBy = new HashMap<>();
+    private final Map<ObjectId, Double> unitCosts = new HashMap<>();
+    
+    /**
+     * Returns the unit material cost of the item, or null if it has no bill of materials.
+     */
+    public synchronized Double getUnitCost(ObjectId furnitureId) {
+        return unitCosts.get(furnitureId);
+    }
+    
+    public synchronized int getFurnitureCount() {
+        return unitCosts.size();
+    }
+    
+    public synchronized int getMaterialCount() {
+        return materialCosts.size();
+    }
+    
+    /**
+     * Sets the cost of a material and re-costs the items that use it.
+     * Returns the ids of those items, empty if the cost did not change.
+     */
+    public synchronized Set<ObjectId> setMaterialCost(ObjectId materialId, double costPerUnit) {
+        Double previous = materialCosts.put(materialId, costPerUnit);
+        if (previous != null && previous == costPerUnit) {
+            return Collections.emptySet();
+        }
+        return recostUsers(materialId);
+    }
+    
+    public synchronized Set<ObjectId> removeMaterial(ObjectId materialId) {
+        if (materialCosts.remove(materialId) == null) {
+            return Collections.emptySet();
+        }
+        return recostUsers(materialId);
+    }
+    
+    /**
+     * Replaces the bill of materials stored in the given details document and
+     * re-costs its furniture item. Returns the ids of the re-costed items.
+     */
+    public synchronized Set<ObjectId> setBillOfMaterials(ObjectId detailsId, ObjectId furnitureId, List<MaterialUsage> usages) {
+        Set<ObjectId> affected = new HashSet<>();
+        ObjectId previousFurniture = furnitureByDetails.put(detailsId, furnitureId);
+        // The details were moved to another item
+        if (previousFurniture != null && !previousFurniture.equals(furnitureId)) {
+            unlink(previousFurniture);
+            affected.add(previousFurniture);
+        }
+        
+        unlink(furnitureId);
+        List<MaterialUsage> billOfMaterials = usages != null ? usages : Collections.emptyList();
+        billsOfMaterials.put(furnitureId, billOfMaterials);
+        for (MaterialUsage usage : billOfMaterials) {
+            usedBy.computeIfAbsent(usage.getMaterialId(), id -> new HashSet<>()).add(furnitureId);
+        }
+        unitCosts.put(furnitureId, computeUnitCost(billOfMaterials));
+        affected.add(furnitureId);
+        return affected;
+    }
+    
+    public synchronized Set<ObjectId> removeBillOfMaterials(ObjectId detailsId) {
+        ObjectId furnitureId = furnitureByDetails.remove(detailsId);
+        if (furnitureId == null) {
+            return Collections.emptySet();
+        }
+        unlink(furnitureId);
+        return Collections.singleton(furnitureId);
+    }
+    
+    /**
+     * Computes the unit cost of every item from scratch, used to check the
+     * incremental path and as the baseline in benchmarks.
+     */
+    public synchronized void recomputeAll() {
+        for (Map.Entry<ObjectId, List<MaterialUsage>> entry : billsOfMaterials.entrySet()) {
+            unitCosts.put(entry.getKey(), computeUnitCost(entry.getValue()));
+        }
+    }
+    
+    public synchronized void clear() {
+        materialCosts.clear();
+        billsOfMaterials.clear();
+        furnitureByDetails.clear();
+        usedBy.clear();
+        unitCosts.clear();
+    }
+    
+    private Set<ObjectId> recostUsers(ObjectId materialId) {
+        Set<ObjectId> users = usedBy.get(materialId);
+        if (users == null) {
+            return Collections.emptySet();
+        }
+        for (ObjectId furnitureId : users) {
+            unitCosts.put(furnitureId, computeUnitCost(billsOfMaterials.get(furnitureId)));
+        }
+        return new HashSet<>(users);
+    }
+    
+    private void unlink(ObjectId furnitureId) {
+        List<MaterialUsage> previous = billsOfMaterials.remove(furnitureId);
+        unitCosts.remove(furnitureId);
+        if (previous == null) {
+            return;
+        }
+        for (MaterialUsage usage : previous) {
+            Set<ObjectId> users = usedBy.get(usage.getMaterialId());
+            if (users != null) {
+                users.remove(furnitureId);
+                if (users.isEmpty()) {
+                    usedBy.remove(usage.getMaterialId());
+                }
+            }
+        }
+    }
+    
+    private double computeUnitCost(List<MaterialUsage> billOfMaterials) {
+        double cost = 0;
+        for (MaterialUsage usage : billOfMaterials) {
+            Double costPerUnit = materialCosts.get(usage.getMaterialId());
+            if (costPerUnit != null) {
+                cost += usage.getQuantity() * costPerUnit;
+            }
+        }
+        return cost;
+    }
+}
\ No newline at end of file
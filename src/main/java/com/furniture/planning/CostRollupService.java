@@ -0,0 +1,181 @@
+package com.furniture.planning;
+
+import com.furniture.db.ChangeEvent;
+import com.furniture.db.ChangeStreamWatcher;
+import com.furniture.model.FurnitureDetails;
+import com.furniture.model.Material;
+import com.furniture.repository.FurnitureDetailsRepository;
+import com.furniture.repository.MaterialRepository;
+import com.mongodb.MongoException;
+import org.bson.types.ObjectId;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Keeps a {@link CostRollup} in sync with the materials and bills of materials in the database.
+ *
+ * The rollup is filled with one streamed query per collection on first use and
+ * then follows the change streams of both collections: a changed material
+ * cost only re-costs the items that use the material, and the listener is told
+ * which items those were. Without a replica set there are no change streams,
+ * so {@link #ensureLoaded()} reads the collections again once the rollup is older
+ * than the time to live, as {@link com.furniture.repository.WhereUsedIndex} does,
+ * and {@link #reload()} reads them when the user refreshes.
+ *
+ * A load fills a new rollup without holding the lock and then swaps it in; changes
+ * that arrive meanwhile are applied to the new rollup too, so none is lost. If a
+ * query fails, the new rollup is discarded and the previous costs stay in place.
+ */
+public class CostRollupService {
+    private static final long TTL_NANOS = Duration.ofMinutes(1).toNanos();
+    private static final int BATCH_SIZE = 1000;
+    
+    private final MaterialRepository materialRepository;
+    private final FurnitureDetailsRepository furnitureDetailsRepository;
+    private volatile CostRollup rollup = new CostRollup();
+    private final Consumer<Set<ObjectId>> listener;
+    
+    // Guarded by this
+    private boolean loaded;
+    private long loadedAt;
+    private ChangeStreamWatcher<Material> materialWatcher;
+    private ChangeStreamWatcher<FurnitureDetails> detailsWatcher;
+    // Changes seen while a load runs, replayed on the loaded rollup; null when no load runs
+    private List<Consumer<CostRollup>> changesDuringLoad;
+    
+    public CostRollupService(Consumer<Set<ObjectId>> listener) {
+        this(new MaterialRepository(), new FurnitureDetailsRepository(), listener);
+    }
+    
+    public CostRollupService(MaterialRepository materialRepository, FurnitureDetailsRepository furnitureDetailsRepository,
+                             Consumer<Set<ObjectId>> listener) {
+        this.materialRepository = materialRepository;
+        this.furnitureDetailsRepository = furnitureDetailsRepository;
+        this.listener = listener;
+    }
+    
+    /**
+     * Loads the rollup unless it is loaded and either kept current by the change streams
+     * or younger than the time to live.
+     */
+    public void ensureLoaded() {
+        load(false);
+    }
+    
+    /**
+     * Reads the rollup again unless it is kept current by the change streams, e.g. when
+     * the user refreshes the table.
+     */
+    public void reload() {
+        load(true);
+    }
+    
+    private void load(boolean force) {
+        synchronized (this) {
+            // Without any costs yet, wait for a load running on another thread
+            while (changesDuringLoad != null && !loaded) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            if (changesDuringLoad != null) {
+                // Another thread is reloading, the costs it reads are as fresh as ours would be
+                return;
+            }
+            if (loaded && materialWatcher.isLive() && detailsWatcher.isLive()) {
+                return;
+            }
+            if (loaded && !force && System.nanoTime() - loadedAt < TTL_NANOS) {
+                return;
+            }
+            if (materialWatcher == null) {
+                // Watch first, so nothing changed during the load is missed; applying a change twice is harmless
+                materialWatcher = materialRepository.watchMaterials(this::materialChanged);
+                detailsWatcher = furnitureDetailsRepository.watchFurnitureDetails(this::detailsChanged);
+            }
+            changesDuringLoad = new ArrayList<>();
+        }
+        
+        CostRollup loading = new CostRollup();
+        boolean complete = false;
+        try {
+            materialRepository.streamMaterials(BATCH_SIZE, material -> loading.setMaterialCost(material.getId(), material.getCostPerUnit()));
+            furnitureDetailsRepository.streamBillOfMaterials(BATCH_SIZE, details -> {
+                if (details.getFurnitureId() != null) {
+                    loading.setBillOfMaterials(details.getId(), details.getFurnitureId(), details.getMaterialUsages());
+                }
+            });
+            complete = true;
+        } catch (MongoException e) {
+            System.err.println("Error loading material costs: " + e.getMessage());
+        } finally {
+            synchronized (this) {
+                // A failed or interrupted load keeps the previous costs instead of a partial rollup,
+                // and the next call tries again
+                if (complete) {
+                    for (Consumer<CostRollup> change : changesDuringLoad) {
+                        change.accept(loading);
+                    }
+                    rollup = loading;
+                    loaded = true;
+                    loadedAt = System.nanoTime();
+                }
+                changesDuringLoad = null;
+                notifyAll();
+            }
+        }
+    }
+    
+    /**
+     * Returns the unit material cost of the item, or null if it has no bill of materials.
+     */
+    public Double getUnitCost(ObjectId furnitureId) {
+        return rollup.getUnitCost(furnitureId);
+    }
+    
+    private void materialChanged(ChangeEvent<Material> change) {
+        if (change.getType() == ChangeEvent.Type.DELETE) {
+            applyChange(target -> target.removeMaterial(change.getId()));
+        } else {
+            double costPerUnit = change.getEntity().getCostPerUnit();
+            applyChange(target -> target.setMaterialCost(change.getId(), costPerUnit));
+        }
+    }
+    
+    private void detailsChanged(ChangeEvent<FurnitureDetails> change) {
+        FurnitureDetails details = change.getEntity();
+        if (change.getType() == ChangeEvent.Type.DELETE || details.getFurnitureId() == null) {
+            applyChange(target -> target.removeBillOfMaterials(change.getId()));
+        } else {
+            applyChange(target -> target.setBillOfMaterials(change.getId(), details.getFurnitureId(), details.getMaterialUsages()));
+        }
+    }
+    
+    /**
+     * Applies a change to the current rollup and, while a load runs, remembers it for the new one.
+     */
+    private void applyChange(Function<CostRollup, Set<ObjectId>> change) {
+        Set<ObjectId> affected;
+        synchronized (this) {
+            if (changesDuringLoad != null) {
+                changesDuringLoad.add(change::apply);
+            }
+            affected = change.apply(rollup);
+        }
+        notifyListener(affected);
+    }
+    
+    private void notifyListener(Set<ObjectId> affected) {
+        if (!affected.isEmpty()) {
+            listener.accept(affected);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,24 @@
+package com.furniture.planning;
+
+import lombok.Value;
+import org.bson.types.ObjectId;
+
+/**
+ * Net requirement of one material for the open orders.
+ */
+@Value
+public class MaterialRequirement {
+    ObjectId materialId;
+    String name;
+    String unit;
+    double required;
+    double inStock;
+    
+    public double getShortage() {
+        return Math.max(0, required - inStock);
+    }
+    
+    public boolean isShort() {
+        return required > inStock;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,106 @@
+package com.furniture.planning;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Material requirements planning over a {@link PlanningData} snapshot.
+ *
+ * Every open order line is exploded through the bill of materials of its
+ * furniture and the quantities are summed per material. The lines are split in
+ * halves with fork-join until a range is small enough; each leaf sums into its
+ * own array of material totals and the arrays are added on the way back, so
+ * no totals are shared between threads.
+ */
+public class MrpEngine {
+    // Below this many order lines a range is summed directly instead of split further
+    private static final int SEQUENTIAL_THRESHOLD = 8192;
+    
+    private final ForkJoinPool pool;
+    
+    public MrpEngine() {
+        this(ForkJoinPool.commonPool());
+    }
+    
+    public MrpEngine(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+    
+    public ShortageReport plan(PlanningData data) {
+        long start = System.nanoTime();
+        double[] required = computeRequirements(data);
+        
+        List<MaterialRequirement> requirements = new ArrayList<>();
+        for (int material = 0; material < data.getMaterialCount(); material++) {
+            if (required[material] > 0) {
+                requirements.add(new MaterialRequirement(data.getMaterialIds()[material], data.getMaterialNames()[material],
+                        data.getMaterialUnits()[material], required[material], data.getMaterialStock()[material]));
+            }
+        }
+        requirements.sort(Comparator.comparingDouble(MaterialRequirement::getShortage).reversed()
+                .thenComparing(MaterialRequirement::getName, Comparator.nullsLast(Comparator.naturalOrder())));
+        
+        return new ShortageReport(requirements, data.getOrderCount(), data.getLineCount(), data.getUnplannedLines(),
+                System.nanoTime() - start);
+    }
+    
+    /**
+     * Returns the gross requirement per material index.
+     */
+    public double[] computeRequirements(PlanningData data) {
+        if (data.getLineCount() == 0) {
+            return new double[data.getMaterialCount()];
+        }
+        return pool.invoke(new ExplodeTask(data, 0, data.getLineCount()));
+    }
+    
+    private static class ExplodeTask extends RecursiveTask<double[]> {
+        private final PlanningData data;
+        private final int from;
+        private final int to;
+        
+        ExplodeTask(PlanningData data, int from, int to) {
+            this.data = data;
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected double[] compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                return explode();
+            }
+            
+            int middle = (from + to) >>> 1;
+            ExplodeTask left = new ExplodeTask(data, from, middle);
+            left.fork();
+            double[] totals = new ExplodeTask(data, middle, to).compute();
+            double[] leftTotals = left.join();
+            for (int material = 0; material < totals.length; material++) {
+                totals[material] += leftTotals[material];
+            }
+            return totals;
+        }
+        
+        private double[] explode() {
+            int[] lineFurniture = data.getLineFurniture();
+            int[] lineQuantities = data.getLineQuantities();
+            int[] bomOffsets = data.getBomOffsets();
+            int[] bomMaterials = data.getBomMaterials();
+            double[] bomQuantities = data.getBomQuantities();
+            
+            double[] totals = new double[data.getMaterialCount()];
+            for (int line = from; line < to; line++) {
+                int furniture = lineFurniture[line];
+                int quantity = lineQuantities[line];
+                for (int usage = bomOffsets[furniture]; usage < bomOffsets[furniture + 1]; usage++) {
+                    totals[bomMaterials[usage]] += bomQuantities[usage] * quantity;
+                }
+            }
+            return totals;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,155 @@
+package com.furniture.planning;
+
+import lombok.Getter;
+import org.bson.types.ObjectId;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Snapshot of materials, bills of materials and open order lines in flat
+ * primitive arrays, indexed by dense int ids instead of ObjectIds.
+ *
+ * Material i has stock {@code materialStock[i]}. The bill of materials of
+ * furniture f is the slice {@code bomOffsets[f] .. bomOffsets[f + 1]} of
+ * {@code bomMaterials} / {@code bomQuantities}. Order line l asks for
+ * {@code lineQuantities[l]} pieces of furniture {@code lineFurniture[l]}.
+ * Exploding a line is then a few array reads with no hashing or boxing,
+ * and lines can be split into ranges for parallel work.
+ */
+@Getter
+public class PlanningData {
+    private final ObjectId[] materialIds;
+    private final String[] materialNames;
+    private final String[] materialUnits;
+    private final double[] materialStock;
+    private final int[] bomOffsets;
+    private final int[] bomMaterials;
+    private final double[] bomQuantities;
+    private final int[] lineFurniture;
+    private final int[] lineQuantities;
+    private final long orderCount;
+    // Order lines whose furniture has no bill of materials, they cannot be exploded
+    private final long unplannedLines;
+    
+    private PlanningData(Builder builder) {
+        this.materialIds = Arrays.copyOf(builder.materialIds, builder.materialCount);
+        this.materialNames = Arrays.copyOf(builder.materialNames, builder.materialCount);
+        this.materialUnits = Arrays.copyOf(builder.materialUnits, builder.materialCount);
+        this.materialStock = Arrays.copyOf(builder.materialStock, builder.materialCount);
+        this.bomOffsets = Arrays.copyOf(builder.bomOffsets, builder.furnitureCount + 1);
+        this.bomMaterials = Arrays.copyOf(builder.bomMaterials, builder.bomSize);
+        this.bomQuantities = Arrays.copyOf(builder.bomQuantities, builder.bomSize);
+        this.lineFurniture = Arrays.copyOf(builder.lineFurniture, builder.lineCount);
+        this.lineQuantities = Arrays.copyOf(builder.lineQuantities, builder.lineCount);
+        this.orderCount = builder.orderCount;
+        this.unplannedLines = builder.unplannedLines;
+    }
+    
+    public int getMaterialCount() {
+        return materialIds.length;
+    }
+    
+    public int getLineCount() {
+        return lineFurniture.length;
+    }
+    
+    /**
+     * Collects the snapshot in load order: all materials, then all bills of
+     * materials, then the order lines. Arrays grow by doubling and are trimmed
+     * by {@link #build()}.
+     */
+    public static class Builder {
+        private final Map<ObjectId, Integer> materialIndex = new HashMap<>();
+        private final Map<ObjectId, Integer> furnitureIndex = new HashMap<>();
+        
+        private ObjectId[] materialIds = new ObjectId[16];
+        private String[] materialNames = new String[16];
+        private String[] materialUnits = new String[16];
+        private double[] materialStock = new double[16];
+        private int materialCount;
+        
+        private int[] bomOffsets = new int[17];
+        private int[] bomMaterials = new int[64];
+        private double[] bomQuantities = new double[64];
+        private int furnitureCount;
+        private int bomSize;
+        
+        private int[] lineFurniture = new int[1024];
+        private int[] lineQuantities = new int[1024];
+        private int lineCount;
+        private long orderCount;
+        private long unplannedLines;
+        
+        public void addMaterial(ObjectId id, String name, String unit, double stock) {
+            if (materialCount == materialIds.length) {
+                int capacity = materialCount * 2;
+                materialIds = Arrays.copyOf(materialIds, capacity);
+                materialNames = Arrays.copyOf(materialNames, capacity);
+                materialUnits = Arrays.copyOf(materialUnits, capacity);
+                materialStock = Arrays.copyOf(materialStock, capacity);
+            }
+            materialIndex.put(id, materialCount);
+            materialIds[materialCount] = id;
+            materialNames[materialCount] = name;
+            materialUnits[materialCount] = unit;
+            materialStock[materialCount] = stock;
+            materialCount++;
+        }
+        
+        /**
+         * Starts the bill of materials of a furniture item, followed by {@link #addUsage} calls.
+         */
+        public void startBillOfMaterials(ObjectId furnitureId) {
+            if (furnitureCount + 1 == bomOffsets.length) {
+                bomOffsets = Arrays.copyOf(bomOffsets, bomOffsets.length * 2);
+            }
+            furnitureIndex.put(furnitureId, furnitureCount);
+            bomOffsets[furnitureCount] = bomSize;
+            furnitureCount++;
+            bomOffsets[furnitureCount] = bomSize;
+        }
+        
+        /**
+         * Adds a material to the current bill of materials; unknown materials are skipped.
+         */
+        public void addUsage(ObjectId materialId, double quantity) {
+            Integer material = materialIndex.get(materialId);
+            if (material == null) {
+                return;
+            }
+            if (bomSize == bomMaterials.length) {
+                bomMaterials = Arrays.copyOf(bomMaterials, bomSize * 2);
+                bomQuantities = Arrays.copyOf(bomQuantities, bomSize * 2);
+            }
+            bomMaterials[bomSize] = material;
+            bomQuantities[bomSize] = quantity;
+            bomSize++;
+            bomOffsets[furnitureCount] = bomSize;
+        }
+        
+        public void addOrder() {
+            orderCount++;
+        }
+        
+        public void addLine(ObjectId furnitureId, int quantity) {
+            Integer furniture = furnitureIndex.get(furnitureId);
+            if (furniture == null) {
+                unplannedLines++;
+                return;
+            }
+            if (lineCount == lineFurniture.length) {
+                lineFurniture = Arrays.copyOf(lineFurniture, lineCount * 2);
+                lineQuantities = Arrays.copyOf(lineQuantities, lineCount * 2);
+            }
+            lineFurniture[lineCount] = furniture;
+            lineQuantities[lineCount] = quantity;
+            lineCount++;
+        }
+        
+        public PlanningData build() {
+            return new PlanningData(this);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,63 @@
+package com.furniture.planning;
+
+import com.furniture.model.FurnitureDetails;
+import com.furniture.model.FurnitureDetails.MaterialUsage;
+import com.furniture.model.Material;
+import com.furniture.model.Order;
+import com.furniture.model.Order.OrderItem;
+import com.furniture.repository.FurnitureDetailsRepository;
+import com.furniture.repository.MaterialRepository;
+import com.furniture.repository.OrderRepository;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads the planning snapshot with one streamed query per collection.
+ * Orders are read with only their items, and each order is dropped as soon as
+ * its lines are copied into the arrays. A failed query is thrown to the caller
+ * rather than leaving a partial snapshot.
+ */
+public class PlanningDataLoader {
+    // Orders that still have to be produced
+    public static final List<String> OPEN_STATUSES = Arrays.asList("Ожидается", "В процессе");
+    private static final int BATCH_SIZE = 1000;
+    
+    private final MaterialRepository materialRepository;
+    private final FurnitureDetailsRepository furnitureDetailsRepository;
+    private final OrderRepository orderRepository;
+    
+    public PlanningDataLoader() {
+        this(new MaterialRepository(), new FurnitureDetailsRepository(), new OrderRepository());
+    }
+    
+    public PlanningDataLoader(MaterialRepository materialRepository, FurnitureDetailsRepository furnitureDetailsRepository,
+                              OrderRepository orderRepository) {
+        this.materialRepository = materialRepository;
+        this.furnitureDetailsRepository = furnitureDetailsRepository;
+        this.orderRepository = orderRepository;
+    }
+    
+    public PlanningData load() {
+        PlanningData.Builder builder = new PlanningData.Builder();
+        
+        materialRepository.streamMaterials(BATCH_SIZE, (Material material) ->
+                builder.addMaterial(material.getId(), material.getName(), material.getUnit(), material.getStockQuantity()));
+        
+        furnitureDetailsRepository.streamBillOfMaterials(BATCH_SIZE, (FurnitureDetails details) -> {
+            builder.startBillOfMaterials(details.getFurnitureId());
+            for (MaterialUsage usage : details.getMaterialUsages()) {
+                builder.addUsage(usage.getMaterialId(), usage.getQuantity());
+            }
+        });
+        
+        orderRepository.streamOrderItemsByStatus(OPEN_STATUSES, BATCH_SIZE, (Order order) -> {
+            builder.addOrder();
+            for (OrderItem item : order.getItems()) {
+                builder.addLine(item.getFurnitureId(), item.getQuantity());
+            }
+        });
+        
+        return builder.build();
+    }
+}
\ No newline at end of file
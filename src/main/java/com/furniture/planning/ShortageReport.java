@@ -0,0 +1,28 @@
+package com.furniture.planning;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Result of {@link MrpEngine#plan}: the requirement of every material used by
+ * open orders, materials that are short first.
+ */
+@Value
+public class ShortageReport {
+    List<MaterialRequirement> requirements;
+    long orderCount;
+    int lineCount;
+    long unplannedLines;
+    long computeNanos;
+    
+    public long getShortCount() {
+        return requirements.stream().filter(MaterialRequirement::isShort).count();
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("MRP: %d orders, %d lines (%d without bill of materials), %d materials needed, %d short, %.1f ms",
+                orderCount, lineCount, unplannedLines, requirements.size(), getShortCount(), computeNanos / 1_000_000.0);
+    }
+}
\ No newline at end of file
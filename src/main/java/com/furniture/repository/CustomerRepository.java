@@ -1,102 +1,184 @@
 package com.furniture.repository;
 
+import com.furniture.db.BulkWriteReport;
+import com.furniture.db.ChangeEvent;
+import com.furniture.db.ChangeStreamWatcher;
+import com.furniture.db.IndexDefinition;
+import com.furniture.db.IndexRegistry;
 import com.furniture.db.MongoDBService;
+import com.furniture.db.SearchText;
 import com.furniture.model.Customer;
-import com.mongodb.client.model.Filters;
-import org.bson.Document;
+import com.mongodb.client.model.Sorts;
 import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
 
-import java.util.ArrayList;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
-import java.util.regex.Pattern;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public class CustomerRepository {
     private static final String COLLECTION_NAME = "customers";
+    // Shared by all repository instances, the panels each create their own
+    private static final EntityCache<Customer> CACHE = new EntityCache<>(COLLECTION_NAME, 2000, Duration.ofMinutes(5));
     private final MongoDBService mongoDBService;
     
     public CustomerRepository() {
         this.mongoDBService = MongoDBService.getInstance();
     }
     
+    /**
+     * Declares the indexes backing the queries of this repository.
+     */
+    public static void declareIndexes(IndexRegistry registry) {
+        // Sorting by name or email
+        registry.register(IndexDefinition.ascending(COLLECTION_NAME, "name"));
+        registry.register(IndexDefinition.ascending(COLLECTION_NAME, "email"));
+        // findCustomersByName and findCustomersByEmail
+        registry.register(IndexDefinition.ascending(COLLECTION_NAME, SearchText.shadowField("name")));
+        registry.register(IndexDefinition.ascending(COLLECTION_NAME, SearchText.shadowField("email")));
+        // searchCustomers
+        registry.register(IndexDefinition.text(COLLECTION_NAME, SearchText.TEXT_LANGUAGE, "name", "email"));
+    }
+    
     public List<Customer> getAllCustomers() {
-        List<Customer> customers = new ArrayList<>();
-        List<Document> documents = mongoDBService.getAllDocuments(COLLECTION_NAME);
+        return mongoDBService.getAllDocuments(COLLECTION_NAME, Customer.class);
+    }
+    
+    public static EntityCache<Customer> getCache() {
+        return CACHE;
+    }
+    
+    public Customer getCustomerById(ObjectId id) {
+        Customer cached = CACHE.get(id);
+        if (cached != null) {
+            return cached;
+        }
+        Customer customer = mongoDBService.getDocumentById(COLLECTION_NAME, id, Customer.class);
+        CACHE.put(id, customer);
+        return customer;
+    }
+    
+    public Map<ObjectId, Customer> getCustomersByIds(Collection<ObjectId> ids) {
+        Map<ObjectId, Customer> customers = new HashMap<>();
+        List<ObjectId> missingIds = CACHE.getAll(ids, customers);
+        List<Customer> found = mongoDBService.findDocumentsByIds(COLLECTION_NAME, missingIds, Customer.class);
         
-        for (Document doc : documents) {
-            customers.add(documentToCustomer(doc));
+        for (Customer customer : found) {
+            customers.put(customer.getId(), customer);
+            CACHE.put(customer.getId(), customer);
         }
         
         return customers;
     }
     
-    public Customer getCustomerById(ObjectId id) {
-        Document doc = mongoDBService.getDocumentById(COLLECTION_NAME, id);
-        return doc != null ? documentToCustomer(doc) : null;
-    }
-    
+    /**
+     * Finds customers whose name starts with the given text, ignoring case.
+     */
     public List<Customer> findCustomersByName(String name) {
-        Pattern pattern = Pattern.compile(name, Pattern.CASE_INSENSITIVE);
-        Bson filter = Filters.regex("name", pattern);
-        return findCustomers(filter);
+        return findCustomers(SearchText.startsWith("name", name));
     }
     
     public List<Customer> findCustomersByEmail(String email) {
-        Pattern pattern = Pattern.compile(email, Pattern.CASE_INSENSITIVE);
-        Bson filter = Filters.regex("email", pattern);
-        return findCustomers(filter);
+        return findCustomers(SearchText.startsWith("email", email));
+    }
+    
+    /**
+     * Finds customers with any of the words in their name or email, best matches first.
+     */
+    public List<Customer> searchCustomers(String words) {
+        return mongoDBService.findDocumentsByText(COLLECTION_NAME, words, Customer.class);
+    }
+    
+    /**
+     * Fills the search fields of customers stored before those fields existed.
+     */
+    public long backfillSearchFields() {
+        return mongoDBService.fillSearchFields(COLLECTION_NAME, "name", "email");
     }
     
     public List<Customer> getSortedCustomers(String sortField, boolean ascending) {
-        List<Customer> customers = new ArrayList<>();
-        List<Document> documents = mongoDBService.getSortedDocuments(COLLECTION_NAME, sortField, ascending);
-        
-        for (Document doc : documents) {
-            customers.add(documentToCustomer(doc));
-        }
-        
-        return customers;
+        return mongoDBService.getSortedDocuments(COLLECTION_NAME, sortField, ascending, Customer.class);
+    }
+    
+    public void forEachCustomer(Consumer<Customer> action) {
+        mongoDBService.forEachDocument(COLLECTION_NAME, null, null, Customer.class, action);
+    }
+    
+    /**
+     * Streams all customers in _id order with the given cursor batch size, for exports.
+     * Errors are thrown rather than logged, so an incomplete export can be detected.
+     */
+    public void streamCustomers(int batchSize, Consumer<Customer> action) {
+        mongoDBService.streamDocuments(COLLECTION_NAME, null, Sorts.ascending("_id"), Customer.class, batchSize, action);
+    }
+    
+    public void forEachSortedCustomer(String sortField, boolean ascending, Consumer<Customer> action) {
+        Bson sort = ascending ? Sorts.ascending(sortField) : Sorts.descending(sortField);
+        mongoDBService.forEachDocument(COLLECTION_NAME, null, sort, Customer.class, action);
+    }
+    
+    public long countCustomers() {
+        return mongoDBService.countDocuments(COLLECTION_NAME, null);
     }
     
     private List<Customer> findCustomers(Bson filter) {
-        List<Customer> customers = new ArrayList<>();
-        List<Document> documents = mongoDBService.findDocuments(COLLECTION_NAME, filter);
-        
-        for (Document doc : documents) {
-            customers.add(documentToCustomer(doc));
-        }
-        
-        return customers;
+        return mongoDBService.findDocuments(COLLECTION_NAME, filter, Customer.class);
     }
     
-    public boolean addCustomer(Customer customer) {
-        Document doc = customerToDocument(customer);
-        return mongoDBService.insertDocument(COLLECTION_NAME, doc);
+    /**
+     * Reports changes made to the collection by any client. Cached entries are
+     * dropped before the listener sees the change.
+     */
+    public ChangeStreamWatcher<Customer> watchCustomers(Consumer<ChangeEvent<Customer>> listener) {
+        return mongoDBService.watch(COLLECTION_NAME, Customer.class, change -> {
+            CACHE.invalidate(change.getId());
+            listener.accept(change);
+        });
+    }
+    
+    /**
+     * Inserts the customer and returns it with its generated id, or null if the insert failed.
+     */
+    public Customer addCustomer(Customer customer) {
+        ObjectId id = mongoDBService.insertDocument(COLLECTION_NAME, customer);
+        if (customer.getId() != null) {
+            CACHE.invalidate(customer.getId());
+        }
+        return id != null ? customer : null;
     }
     
     public boolean deleteCustomer(ObjectId id) {
+        CACHE.invalidate(id);
         return mongoDBService.deleteDocument(COLLECTION_NAME, id);
     }
     
-    private Customer documentToCustomer(Document doc) {
-        Customer customer = new Customer();
-        customer.setId(doc.getObjectId("_id"));
-        customer.setName(doc.getString("name"));
-        customer.setEmail(doc.getString("email"));
-        customer.setPhone(doc.getString("phone"));
-        customer.setAddress(doc.getString("address"));
-        return customer;
+    public BulkWriteReport addAll(List<Customer> customers) {
+        BulkWriteReport report = mongoDBService.bulkInsert(COLLECTION_NAME, Customer.class, customers);
+        invalidateCached(customers);
+        return report;
     }
     
-    private Document customerToDocument(Customer customer) {
-        Document doc = new Document();
-        if (customer.getId() != null) {
-            doc.append("_id", customer.getId());
+    public BulkWriteReport upsertAll(List<Customer> customers) {
+        BulkWriteReport report = mongoDBService.bulkUpsert(COLLECTION_NAME, Customer.class, customers, Customer::getId);
+        invalidateCached(customers);
+        return report;
+    }
+    
+    public BulkWriteReport deleteAll(List<ObjectId> ids) {
+        for (ObjectId id : ids) {
+            CACHE.invalidate(id);
+        }
+        return mongoDBService.bulkDelete(COLLECTION_NAME, ids);
+    }
+    
+    private static void invalidateCached(List<Customer> customers) {
+        for (Customer customer : customers) {
+            if (customer.getId() != null) {
+                CACHE.invalidate(customer.getId());
+            }
         }
-        doc.append("name", customer.getName())
-           .append("email", customer.getEmail())
-           .append("phone", customer.getPhone())
-           .append("address", customer.getAddress());
-        return doc;
     }
-} 
\ No newline at end of file
+}
\ No newline at end of file
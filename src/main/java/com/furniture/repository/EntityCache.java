@@ -0,0 +1,161 @@
+package com.furniture.repository;
+
+import org.bson.types.ObjectId;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Size-bounded cache of entities by id, shared by all instances of a repository.
+ *
+ * When the cache is full the least recently used entry is evicted, and entries
+ * older than the time to live are dropped on access, so changes made by other
+ * clients become visible after at most one TTL, or right away when the
+ * repository follows the change stream. Repositories invalidate the entries
+ * they write themselves. Hits, misses, evictions and expirations are
+ * counted to help choose the size for production.
+ */
+public class EntityCache<T> {
+    // Set to true to have printStatistics() log every cache, e.g. when tuning the sizes
+    public static final String STATISTICS_PROPERTY = "furniture.cache.stats";
+    private static final List<EntityCache<?>> CACHES = new CopyOnWriteArrayList<>();
+    
+    private final String name;
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LinkedHashMap<ObjectId, Entry<T>> entries;
+    
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+    
+    public EntityCache(String name, int maxSize, Duration ttl) {
+        this.name = name;
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        CACHES.add(this);
+    }
+    
+    public synchronized T get(ObjectId id) {
+        Entry<T> entry = entries.get(id);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (entry.isExpired(System.nanoTime())) {
+            entries.remove(id);
+            expirations++;
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+    
+    /**
+     * Copies the cached entities among the given ids into the result map and
+     * returns the ids that still have to be loaded.
+     */
+    public synchronized List<ObjectId> getAll(Collection<ObjectId> ids, Map<ObjectId, T> result) {
+        List<ObjectId> missing = new ArrayList<>();
+        for (ObjectId id : ids) {
+            T value = get(id);
+            if (value != null) {
+                result.put(id, value);
+            } else {
+                missing.add(id);
+            }
+        }
+        return missing;
+    }
+    
+    public synchronized void put(ObjectId id, T value) {
+        if (id == null || value == null) {
+            return;
+        }
+        entries.put(id, new Entry<>(value, System.nanoTime() + ttlNanos));
+        evictOverflow();
+    }
+    
+    public synchronized void invalidate(ObjectId id) {
+        entries.remove(id);
+    }
+    
+    public synchronized void invalidateAll() {
+        entries.clear();
+    }
+    
+    public synchronized int size() {
+        return entries.size();
+    }
+    
+    public synchronized long getHits() {
+        return hits;
+    }
+    
+    public synchronized long getMisses() {
+        return misses;
+    }
+    
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+    
+    public synchronized long getExpirations() {
+        return expirations;
+    }
+    
+    public synchronized double getHitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 0.0 : (double) hits / requests;
+    }
+    
+    /**
+     * Prints the statistics of every cache if the {@link #STATISTICS_PROPERTY} system property is set.
+     */
+    public static void printStatistics() {
+        if (!Boolean.getBoolean(STATISTICS_PROPERTY)) {
+            return;
+        }
+        for (EntityCache<?> cache : CACHES) {
+            System.out.println(cache);
+        }
+    }
+    
+    private void evictOverflow() {
+        Iterator<Map.Entry<ObjectId, Entry<T>>> iterator = entries.entrySet().iterator();
+        while (entries.size() > maxSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evictions++;
+        }
+    }
+    
+    @Override
+    public synchronized String toString() {
+        return String.format("Cache %s: %d/%d entries, %d hits, %d misses (%.1f%% hit rate), %d evictions, %d expirations",
+                name, entries.size(), maxSize, hits, misses, getHitRate() * 100, evictions, expirations);
+    }
+    
+    private static class Entry<T> {
+        private final T value;
+        private final long expiresAt;
+        
+        Entry(T value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+        
+        boolean isExpired(long now) {
+            return now - expiresAt > 0;
+        }
+    }
+}
\ No newline at end of file
@@ -1,126 +1,206 @@
 package com.furniture.repository;
 
+import com.furniture.db.BulkWriteReport;
+import com.furniture.db.ChangeEvent;
+import com.furniture.db.ChangeStreamWatcher;
+import com.furniture.db.IndexDefinition;
+import com.furniture.db.IndexRegistry;
 import com.furniture.db.MongoDBService;
 import com.furniture.model.FurnitureDetails;
 import com.furniture.model.FurnitureDetails.MaterialUsage;
+import com.furniture.model.FurnitureDetailsSummary;
 import com.mongodb.client.model.Filters;
-import org.bson.Document;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
 import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
 
-import java.util.ArrayList;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public class FurnitureDetailsRepository {
     private static final String COLLECTION_NAME = "furnitureDetails";
+    // Fields of FurnitureDetailsSummary: no description, material usages reduced to their count
+    private static final Bson SUMMARY_PROJECTION = Projections.fields(
+            Projections.include("furnitureId", "dimensions", "weight"),
+            Projections.computed("materialCount", MongoDBService.sizeOf("materialUsages")));
+    private static final Bson BILL_OF_MATERIALS_PROJECTION = Projections.include("furnitureId", "materialUsages");
+    private static final int BILL_OF_MATERIALS_BATCH_SIZE = 1000;
+    private static final WhereUsedIndex WHERE_USED = new WhereUsedIndex(Duration.ofMinutes(1));
+    // Keeps WHERE_USED current with changes made by other clients, guarded by WHERE_USED
+    private static ChangeStreamWatcher<FurnitureDetails> whereUsedWatcher;
     private final MongoDBService mongoDBService;
     
     public FurnitureDetailsRepository() {
         this.mongoDBService = MongoDBService.getInstance();
     }
     
+    /**
+     * Declares the indexes backing the queries of this repository.
+     */
+    public static void declareIndexes(IndexRegistry registry) {
+        // getFurnitureDetailsByFurnitureId, every furniture item has at most one details document
+        registry.register(IndexDefinition.ascending(COLLECTION_NAME, "furnitureId").asUnique());
+        // Sorting by weight
+        registry.register(IndexDefinition.ascending(COLLECTION_NAME, "weight"));
+        // findWhereUsed, multikey: one entry per material of every bill of materials
+        registry.register(IndexDefinition.ascending(COLLECTION_NAME, "materialUsages.materialId"));
+    }
+    
     public List<FurnitureDetails> getAllFurnitureDetails() {
-        List<FurnitureDetails> detailsList = new ArrayList<>();
-        List<Document> documents = mongoDBService.getAllDocuments(COLLECTION_NAME);
-        
-        for (Document doc : documents) {
-            detailsList.add(documentToFurnitureDetails(doc));
-        }
-        
-        return detailsList;
+        return mongoDBService.getAllDocuments(COLLECTION_NAME, FurnitureDetails.class);
     }
     
     public FurnitureDetails getFurnitureDetailsById(ObjectId id) {
-        Document doc = mongoDBService.getDocumentById(COLLECTION_NAME, id);
-        return doc != null ? documentToFurnitureDetails(doc) : null;
+        return mongoDBService.getDocumentById(COLLECTION_NAME, id, FurnitureDetails.class);
     }
     
     public FurnitureDetails getFurnitureDetailsByFurnitureId(ObjectId furnitureId) {
         Bson filter = Filters.eq("furnitureId", furnitureId);
-        List<Document> docs = mongoDBService.findDocuments(COLLECTION_NAME, filter);
-        return !docs.isEmpty() ? documentToFurnitureDetails(docs.get(0)) : null;
+        List<FurnitureDetails> detailsList = mongoDBService.findDocuments(COLLECTION_NAME, filter, FurnitureDetails.class);
+        return !detailsList.isEmpty() ? detailsList.get(0) : null;
+    }
+    
+    public List<FurnitureDetails> getFurnitureDetailsByFurnitureIds(Collection<ObjectId> furnitureIds) {
+        return mongoDBService.findDocumentsByFieldValues(COLLECTION_NAME, "furnitureId", furnitureIds, FurnitureDetails.class);
     }
     
     public List<FurnitureDetails> getSortedFurnitureDetails(String sortField, boolean ascending) {
-        List<FurnitureDetails> detailsList = new ArrayList<>();
-        List<Document> documents = mongoDBService.getSortedDocuments(COLLECTION_NAME, sortField, ascending);
-        
-        for (Document doc : documents) {
-            detailsList.add(documentToFurnitureDetails(doc));
-        }
-        
-        return detailsList;
+        return mongoDBService.getSortedDocuments(COLLECTION_NAME, sortField, ascending, FurnitureDetails.class);
     }
     
-    public boolean addFurnitureDetails(FurnitureDetails details) {
-        Document doc = furnitureDetailsToDocument(details);
-        return mongoDBService.insertDocument(COLLECTION_NAME, doc);
+    public void forEachFurnitureDetails(Consumer<FurnitureDetails> action) {
+        mongoDBService.forEachDocument(COLLECTION_NAME, null, null, FurnitureDetails.class, action);
     }
     
-    public boolean deleteFurnitureDetails(ObjectId id) {
-        return mongoDBService.deleteDocument(COLLECTION_NAME, id);
-    }
-    
-    private FurnitureDetails documentToFurnitureDetails(Document doc) {
-        FurnitureDetails details = new FurnitureDetails();
-        details.setId(doc.getObjectId("_id"));
-        details.setFurnitureId(doc.getObjectId("furnitureId"));
-        details.setDescription(doc.getString("description"));
-        details.setDimensions(doc.getString("dimensions"));
-        
-        Object weightObj = doc.get("weight");
-        double weight = 0.0;
-        if (weightObj instanceof Integer) {
-            weight = ((Integer) weightObj).doubleValue();
-        } else if (weightObj instanceof Double) {
-            weight = (Double) weightObj;
-        }
-        details.setWeight(weight);
-        
-        List<MaterialUsage> materialUsages = new ArrayList<>();
-        List<Document> usageDocs = (List<Document>) doc.get("materialUsages");
-        if (usageDocs != null) {
-            for (Document usageDoc : usageDocs) {
-                ObjectId materialId = usageDoc.getObjectId("materialId");
-                
-                Object quantityObj = usageDoc.get("quantity");
-                double quantity = 0.0;
-                if (quantityObj instanceof Integer) {
-                    quantity = ((Integer) quantityObj).doubleValue();
-                } else if (quantityObj instanceof Double) {
-                    quantity = (Double) quantityObj;
-                }
-                
-                MaterialUsage usage = new MaterialUsage(materialId, quantity);
-                materialUsages.add(usage);
+    public void forEachSortedFurnitureDetails(String sortField, boolean ascending, Consumer<FurnitureDetails> action) {
+        Bson sort = ascending ? Sorts.ascending(sortField) : Sorts.descending(sortField);
+        mongoDBService.forEachDocument(COLLECTION_NAME, null, sort, FurnitureDetails.class, action);
+    }
+    
+    public List<FurnitureDetailsSummary> getFurnitureDetailsSummariesByFurnitureIds(Collection<ObjectId> furnitureIds) {
+        return mongoDBService.findDocumentsByFieldValues(COLLECTION_NAME, "furnitureId", furnitureIds,
+                SUMMARY_PROJECTION, FurnitureDetailsSummary.class);
+    }
+    
+    public void forEachFurnitureDetailsSummary(Consumer<FurnitureDetailsSummary> action) {
+        mongoDBService.forEachDocument(COLLECTION_NAME, null, null, SUMMARY_PROJECTION, FurnitureDetailsSummary.class, action);
+    }
+    
+    public void forEachSortedFurnitureDetailsSummary(String sortField, boolean ascending, Consumer<FurnitureDetailsSummary> action) {
+        Bson sort = ascending ? Sorts.ascending(sortField) : Sorts.descending(sortField);
+        mongoDBService.forEachDocument(COLLECTION_NAME, null, sort, SUMMARY_PROJECTION, FurnitureDetailsSummary.class, action);
+    }
+    
+    /**
+     * Streams the bills of materials: furniture id and material usages, without the description,
+     * with the given cursor batch size. Errors are thrown rather than logged, so a snapshot
+     * built from it is never silently incomplete.
+     */
+    public void streamBillOfMaterials(int batchSize, Consumer<FurnitureDetails> action) {
+        mongoDBService.streamDocuments(COLLECTION_NAME, null, null, BILL_OF_MATERIALS_PROJECTION, FurnitureDetails.class,
+                batchSize, action);
+    }
+    
+    /**
+     * Returns the furniture items whose bill of materials uses the material, with the
+     * quantity per item. Queries the database through the multikey index on
+     * materialUsages.materialId; see {@link #getWhereUsed(ObjectId)} for the in-memory variant.
+     */
+    public Map<ObjectId, Double> findWhereUsed(ObjectId materialId) {
+        Bson filter = Filters.eq("materialUsages.materialId", materialId);
+        Map<ObjectId, Double> whereUsed = new LinkedHashMap<>();
+        mongoDBService.forEachDocument(COLLECTION_NAME, filter, null, BILL_OF_MATERIALS_PROJECTION, FurnitureDetails.class,
+                details -> {
+                    for (MaterialUsage usage : details.getMaterialUsages()) {
+                        if (materialId.equals(usage.getMaterialId())) {
+                            whereUsed.merge(details.getFurnitureId(), usage.getQuantity(), Double::sum);
+                        }
+                    }
+                });
+        return whereUsed;
+    }
+    
+    /**
+     * Same as {@link #findWhereUsed(ObjectId)}, answered from the in-memory index shared by
+     * all instances of the repository. The first call builds the index; if reading the
+     * bills of materials fails, the error is thrown and the next call tries again.
+     */
+    public Map<ObjectId, Double> getWhereUsed(ObjectId materialId) {
+        boolean live;
+        synchronized (WHERE_USED) {
+            if (whereUsedWatcher == null) {
+                whereUsedWatcher = mongoDBService.watch(COLLECTION_NAME, FurnitureDetails.class, change -> {
+                    if (change.getType() == ChangeEvent.Type.DELETE) {
+                        WHERE_USED.remove(change.getId());
+                    } else {
+                        WHERE_USED.put(change.getEntity());
+                    }
+                });
             }
+            live = whereUsedWatcher.isLive();
         }
-        details.setMaterialUsages(materialUsages);
-        
+        // Watch first, so nothing changed during the rebuild is missed; the index replays those changes
+        WHERE_USED.ensureBuilt(live, action -> streamBillOfMaterials(BILL_OF_MATERIALS_BATCH_SIZE, action));
+        return WHERE_USED.lookup(materialId);
+    }
+    
+    public ChangeStreamWatcher<FurnitureDetails> watchFurnitureDetails(Consumer<ChangeEvent<FurnitureDetails>> listener) {
+        return mongoDBService.watch(COLLECTION_NAME, FurnitureDetails.class, listener);
+    }
+    
+    /**
+     * Inserts the details and returns them with their generated id, or null if the insert failed.
+     */
+    public FurnitureDetails addFurnitureDetails(FurnitureDetails details) {
+        ObjectId id = mongoDBService.insertDocument(COLLECTION_NAME, details);
+        if (id == null) {
+            return null;
+        }
+        WHERE_USED.put(details);
         return details;
     }
     
-    private Document furnitureDetailsToDocument(FurnitureDetails details) {
-        Document doc = new Document();
-        if (details.getId() != null) {
-            doc.append("_id", details.getId());
+    public boolean deleteFurnitureDetails(ObjectId id) {
+        boolean success = mongoDBService.deleteDocument(COLLECTION_NAME, id);
+        if (success) {
+            WHERE_USED.remove(id);
         }
-        doc.append("furnitureId", details.getFurnitureId())
-           .append("description", details.getDescription())
-           .append("dimensions", details.getDimensions())
-           .append("weight", details.getWeight());
-        
-        List<Document> usageDocs = new ArrayList<>();
-        if (details.getMaterialUsages() != null) {
-            for (MaterialUsage usage : details.getMaterialUsages()) {
-                Document usageDoc = new Document()
-                    .append("materialId", usage.getMaterialId())
-                    .append("quantity", usage.getQuantity());
-                usageDocs.add(usageDoc);
-            }
+        return success;
+    }
+    
+    public BulkWriteReport addAll(List<FurnitureDetails> detailsList) {
+        BulkWriteReport report = mongoDBService.bulkInsert(COLLECTION_NAME, FurnitureDetails.class, detailsList);
+        indexWritten(detailsList, report);
+        return report;
+    }
+    
+    public BulkWriteReport upsertAll(List<FurnitureDetails> detailsList) {
+        BulkWriteReport report = mongoDBService.bulkUpsert(COLLECTION_NAME, FurnitureDetails.class, detailsList, FurnitureDetails::getId);
+        indexWritten(detailsList, report);
+        return report;
+    }
+    
+    public BulkWriteReport deleteAll(List<ObjectId> ids) {
+        BulkWriteReport report = mongoDBService.bulkDelete(COLLECTION_NAME, ids);
+        if (report.isSuccessful()) {
+            ids.forEach(WHERE_USED::remove);
+        } else {
+            WHERE_USED.invalidate();
+        }
+        return report;
+    }
+    
+    // Partly failed bulk writes are rare, the index simply starts over after one
+    private static void indexWritten(List<FurnitureDetails> detailsList, BulkWriteReport report) {
+        if (report.isSuccessful()) {
+            detailsList.forEach(WHERE_USED::put);
+        } else {
+            WHERE_USED.invalidate();
         }
-        doc.append("materialUsages", usageDocs);
-        
-        return doc;
     }
-} 
\ No newline at end of file
+}
\ No newline at end of file
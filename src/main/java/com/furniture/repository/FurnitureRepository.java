@@ -1,44 +1,101 @@
 package com.furniture.repository;
 
+import com.furniture.db.BulkWriteReport;
+import com.furniture.db.ChangeEvent;
+import com.furniture.db.ChangeStreamWatcher;
+import com.furniture.db.IndexDefinition;
+import com.furniture.db.IndexRegistry;
 import com.furniture.db.MongoDBService;
+import com.furniture.db.SearchText;
 import com.furniture.model.Furniture;
 import com.mongodb.client.model.Filters;
-import org.bson.Document;
+import com.mongodb.client.model.Sorts;
 import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
 
-import java.util.ArrayList;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
-import java.util.regex.Pattern;
+import java.util.function.Consumer;
+import java.util.Map;
 
 public class FurnitureRepository {
     private static final String COLLECTION_NAME = "furniture";
+    // Shared by all repository instances, the panels each create their own
+    private static final EntityCache<Furniture> CACHE = new EntityCache<>(COLLECTION_NAME, 2000, Duration.ofMinutes(5));
     private final MongoDBService mongoDBService;
     
     public FurnitureRepository() {
         this.mongoDBService = MongoDBService.getInstance();
     }
     
+    /**
+     * Declares the indexes backing the queries of this repository.
+     */
+    public static void declareIndexes(IndexRegistry registry) {
+        // findFurnitureByCategory
+        registry.register(IndexDefinition.ascending(COLLECTION_NAME, "category"));
+        // Sorting by name, price or stock
+        registry.register(IndexDefinition.ascending(COLLECTION_NAME, "name"));
+        registry.register(IndexDefinition.ascending(COLLECTION_NAME, "price"));
+        registry.register(IndexDefinition.ascending(COLLECTION_NAME, "stockQuantity"));
+        // findFurnitureByName
+        registry.register(IndexDefinition.ascending(COLLECTION_NAME, SearchText.shadowField("name")));
+        // searchFurniture
+        registry.register(IndexDefinition.text(COLLECTION_NAME, SearchText.TEXT_LANGUAGE, "name", "category"));
+    }
+    
     public List<Furniture> getAllFurniture() {
-        List<Furniture> furnitureList = new ArrayList<>();
-        List<Document> documents = mongoDBService.getAllDocuments(COLLECTION_NAME);
+        return mongoDBService.getAllDocuments(COLLECTION_NAME, Furniture.class);
+    }
+    
+    public static EntityCache<Furniture> getCache() {
+        return CACHE;
+    }
+    
+    public Furniture getFurnitureById(ObjectId id) {
+        Furniture cached = CACHE.get(id);
+        if (cached != null) {
+            return cached;
+        }
+        Furniture furniture = mongoDBService.getDocumentById(COLLECTION_NAME, id, Furniture.class);
+        CACHE.put(id, furniture);
+        return furniture;
+    }
+    
+    public Map<ObjectId, Furniture> getFurnitureByIds(Collection<ObjectId> ids) {
+        Map<ObjectId, Furniture> furnitureMap = new HashMap<>();
+        List<ObjectId> missingIds = CACHE.getAll(ids, furnitureMap);
+        List<Furniture> found = mongoDBService.findDocumentsByIds(COLLECTION_NAME, missingIds, Furniture.class);
         
-        for (Document doc : documents) {
-            furnitureList.add(documentToFurniture(doc));
+        for (Furniture furniture : found) {
+            furnitureMap.put(furniture.getId(), furniture);
+            CACHE.put(furniture.getId(), furniture);
         }
         
-        return furnitureList;
+        return furnitureMap;
     }
     
-    public Furniture getFurnitureById(ObjectId id) {
-        Document doc = mongoDBService.getDocumentById(COLLECTION_NAME, id);
-        return doc != null ? documentToFurniture(doc) : null;
+    /**
+     * Finds furniture whose name starts with the given text, ignoring case.
+     */
+    public List<Furniture> findFurnitureByName(String name) {
+        return findFurniture(SearchText.startsWith("name", name));
     }
     
-    public List<Furniture> findFurnitureByName(String name) {
-        Pattern pattern = Pattern.compile(name, Pattern.CASE_INSENSITIVE);
-        Bson filter = Filters.regex("name", pattern);
-        return findFurniture(filter);
+    /**
+     * Finds furniture with any of the words in its name or category, best matches first.
+     */
+    public List<Furniture> searchFurniture(String words) {
+        return mongoDBService.findDocumentsByText(COLLECTION_NAME, words, Furniture.class);
+    }
+    
+    /**
+     * Fills the search field of furniture stored before that field existed.
+     */
+    public long backfillSearchFields() {
+        return mongoDBService.fillSearchFields(COLLECTION_NAME, "name");
     }
     
     public List<Furniture> findFurnitureByCategory(String category) {
@@ -47,64 +104,81 @@ public class FurnitureRepository {
     }
     
     public List<Furniture> getSortedFurniture(String sortField, boolean ascending) {
-        List<Furniture> furnitureList = new ArrayList<>();
-        List<Document> documents = mongoDBService.getSortedDocuments(COLLECTION_NAME, sortField, ascending);
-        
-        for (Document doc : documents) {
-            furnitureList.add(documentToFurniture(doc));
-        }
-        
-        return furnitureList;
+        return mongoDBService.getSortedDocuments(COLLECTION_NAME, sortField, ascending, Furniture.class);
+    }
+    
+    public void forEachFurniture(Consumer<Furniture> action) {
+        mongoDBService.forEachDocument(COLLECTION_NAME, null, null, Furniture.class, action);
+    }
+    
+    /**
+     * Streams all furniture in _id order with the given cursor batch size, for exports.
+     * Errors are thrown rather than logged, so an incomplete export can be detected.
+     */
+    public void streamFurniture(int batchSize, Consumer<Furniture> action) {
+        mongoDBService.streamDocuments(COLLECTION_NAME, null, Sorts.ascending("_id"), Furniture.class, batchSize, action);
+    }
+    
+    public void forEachSortedFurniture(String sortField, boolean ascending, Consumer<Furniture> action) {
+        Bson sort = ascending ? Sorts.ascending(sortField) : Sorts.descending(sortField);
+        mongoDBService.forEachDocument(COLLECTION_NAME, null, sort, Furniture.class, action);
     }
     
     private List<Furniture> findFurniture(Bson filter) {
-        List<Furniture> furnitureList = new ArrayList<>();
-        List<Document> documents = mongoDBService.findDocuments(COLLECTION_NAME, filter);
-        
-        for (Document doc : documents) {
-            furnitureList.add(documentToFurniture(doc));
-        }
-        
-        return furnitureList;
+        return mongoDBService.findDocuments(COLLECTION_NAME, filter, Furniture.class);
+    }
+    
+    /**
+     * Reports changes made to the collection by any client. Cached entries are
+     * dropped before the listener sees the change.
+     */
+    public ChangeStreamWatcher<Furniture> watchFurniture(Consumer<ChangeEvent<Furniture>> listener) {
+        return mongoDBService.watch(COLLECTION_NAME, Furniture.class, change -> {
+            CACHE.invalidate(change.getId());
+            listener.accept(change);
+        });
     }
     
-    public boolean addFurniture(Furniture furniture) {
-        Document doc = furnitureToDocument(furniture);
-        return mongoDBService.insertDocument(COLLECTION_NAME, doc);
+    /**
+     * Inserts the furniture and returns it with its generated id, or null if the insert failed.
+     */
+    public Furniture addFurniture(Furniture furniture) {
+        ObjectId id = mongoDBService.insertDocument(COLLECTION_NAME, furniture);
+        if (furniture.getId() != null) {
+            CACHE.invalidate(furniture.getId());
+        }
+        return id != null ? furniture : null;
     }
     
     public boolean deleteFurniture(ObjectId id) {
+        CACHE.invalidate(id);
         return mongoDBService.deleteDocument(COLLECTION_NAME, id);
     }
     
-    private Furniture documentToFurniture(Document doc) {
-        Furniture furniture = new Furniture();
-        furniture.setId(doc.getObjectId("_id"));
-        furniture.setName(doc.getString("name"));
-        furniture.setCategory(doc.getString("category"));
-        
-        Object priceObj = doc.get("price");
-        double price = 0.0;
-        if (priceObj instanceof Integer) {
-            price = ((Integer) priceObj).doubleValue();
-        } else if (priceObj instanceof Double) {
-            price = (Double) priceObj;
+    public BulkWriteReport addAll(List<Furniture> furnitureList) {
+        BulkWriteReport report = mongoDBService.bulkInsert(COLLECTION_NAME, Furniture.class, furnitureList);
+        invalidateCached(furnitureList);
+        return report;
+    }
+    
+    public BulkWriteReport upsertAll(List<Furniture> furnitureList) {
+        BulkWriteReport report = mongoDBService.bulkUpsert(COLLECTION_NAME, Furniture.class, furnitureList, Furniture::getId);
+        invalidateCached(furnitureList);
+        return report;
+    }
+    
+    public BulkWriteReport deleteAll(List<ObjectId> ids) {
+        for (ObjectId id : ids) {
+            CACHE.invalidate(id);
         }
-        furniture.setPrice(price);
-        
-        furniture.setStockQuantity(doc.getInteger("stockQuantity"));
-        return furniture;
+        return mongoDBService.bulkDelete(COLLECTION_NAME, ids);
     }
     
-    private Document furnitureToDocument(Furniture furniture) {
-        Document doc = new Document();
-        if (furniture.getId() != null) {
-            doc.append("_id", furniture.getId());
+    private static void invalidateCached(List<Furniture> furnitureList) {
+        for (Furniture furniture : furnitureList) {
+            if (furniture.getId() != null) {
+                CACHE.invalidate(furniture.getId());
+            }
         }
-        doc.append("name", furniture.getName())
-           .append("category", furniture.getCategory())
-           .append("price", furniture.getPrice())
-           .append("stockQuantity", furniture.getStockQuantity());
-        return doc;
     }
-} 
\ No newline at end of file
+}
\ No newline at end of file
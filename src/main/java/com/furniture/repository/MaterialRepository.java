@@ -1,44 +1,85 @@
 package com.furniture.repository;
 
+import com.furniture.db.BulkWriteReport;
+import com.furniture.db.ChangeEvent;
+import com.furniture.db.ChangeStreamWatcher;
+import com.furniture.db.IndexDefinition;
+import com.furniture.db.IndexRegistry;
 import com.furniture.db.MongoDBService;
+import com.furniture.db.SearchText;
 import com.furniture.model.Material;
 import com.mongodb.client.model.Filters;
-import org.bson.Document;
+import com.mongodb.client.model.Sorts;
 import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
 
-import java.util.ArrayList;
+import java.time.Duration;
 import java.util.List;
-import java.util.regex.Pattern;
+import java.util.function.Consumer;
 
 public class MaterialRepository {
     private static final String COLLECTION_NAME = "materials";
+    // Shared by all repository instances, the panels each create their own
+    private static final EntityCache<Material> CACHE = new EntityCache<>(COLLECTION_NAME, 2000, Duration.ofMinutes(5));
     private final MongoDBService mongoDBService;
     
     public MaterialRepository() {
         this.mongoDBService = MongoDBService.getInstance();
     }
     
+    /**
+     * Declares the indexes backing the queries of this repository.
+     */
+    public static void declareIndexes(IndexRegistry registry) {
+        // findMaterialsByType, also serves sorting by type
+        registry.register(IndexDefinition.ascending(COLLECTION_NAME, "type"));
+        // Sorting by name, cost or stock
+        registry.register(IndexDefinition.ascending(COLLECTION_NAME, "name"));
+        registry.register(IndexDefinition.ascending(COLLECTION_NAME, "costPerUnit"));
+        registry.register(IndexDefinition.ascending(COLLECTION_NAME, "stockQuantity"));
+        // findMaterialsByName
+        registry.register(IndexDefinition.ascending(COLLECTION_NAME, SearchText.shadowField("name")));
+        // searchMaterials
+        registry.register(IndexDefinition.text(COLLECTION_NAME, SearchText.TEXT_LANGUAGE, "name", "type"));
+    }
+    
     public List<Material> getAllMaterials() {
-        List<Material> materials = new ArrayList<>();
-        List<Document> documents = mongoDBService.getAllDocuments(COLLECTION_NAME);
-        
-        for (Document doc : documents) {
-            materials.add(documentToMaterial(doc));
-        }
-        
-        return materials;
+        return mongoDBService.getAllDocuments(COLLECTION_NAME, Material.class);
+    }
+    
+    public static EntityCache<Material> getCache() {
+        return CACHE;
     }
     
     public Material getMaterialById(ObjectId id) {
-        Document doc = mongoDBService.getDocumentById(COLLECTION_NAME, id);
-        return doc != null ? documentToMaterial(doc) : null;
+        Material cached = CACHE.get(id);
+        if (cached != null) {
+            return cached;
+        }
+        Material material = mongoDBService.getDocumentById(COLLECTION_NAME, id, Material.class);
+        CACHE.put(id, material);
+        return material;
     }
     
+    /**
+     * Finds materials whose name starts with the given text, ignoring case.
+     */
     public List<Material> findMaterialsByName(String name) {
-        Pattern pattern = Pattern.compile(name, Pattern.CASE_INSENSITIVE);
-        Bson filter = Filters.regex("name", pattern);
-        return findMaterials(filter);
+        return findMaterials(SearchText.startsWith("name", name));
+    }
+    
+    /**
+     * Finds materials with any of the words in their name or type, best matches first.
+     */
+    public List<Material> searchMaterials(String words) {
+        return mongoDBService.findDocumentsByText(COLLECTION_NAME, words, Material.class);
+    }
+    
+    /**
+     * Fills the search field of materials stored before that field existed.
+     */
+    public long backfillSearchFields() {
+        return mongoDBService.fillSearchFields(COLLECTION_NAME, "name");
     }
     
     public List<Material> findMaterialsByType(String type) {
@@ -47,66 +88,81 @@ public class MaterialRepository {
     }
     
     public List<Material> getSortedMaterials(String sortField, boolean ascending) {
-        List<Material> materials = new ArrayList<>();
-        List<Document> documents = mongoDBService.getSortedDocuments(COLLECTION_NAME, sortField, ascending);
-        
-        for (Document doc : documents) {
-            materials.add(documentToMaterial(doc));
-        }
-        
-        return materials;
+        return mongoDBService.getSortedDocuments(COLLECTION_NAME, sortField, ascending, Material.class);
+    }
+    
+    public void forEachMaterial(Consumer<Material> action) {
+        mongoDBService.forEachDocument(COLLECTION_NAME, null, null, Material.class, action);
+    }
+    
+    /**
+     * Streams all materials in _id order with the given cursor batch size, for exports and
+     * planning. Errors are thrown rather than logged, so an incomplete read can be detected.
+     */
+    public void streamMaterials(int batchSize, Consumer<Material> action) {
+        mongoDBService.streamDocuments(COLLECTION_NAME, null, Sorts.ascending("_id"), Material.class, batchSize, action);
+    }
+    
+    public void forEachSortedMaterial(String sortField, boolean ascending, Consumer<Material> action) {
+        Bson sort = ascending ? Sorts.ascending(sortField) : Sorts.descending(sortField);
+        mongoDBService.forEachDocument(COLLECTION_NAME, null, sort, Material.class, action);
     }
     
     private List<Material> findMaterials(Bson filter) {
-        List<Material> materials = new ArrayList<>();
-        List<Document> documents = mongoDBService.findDocuments(COLLECTION_NAME, filter);
-        
-        for (Document doc : documents) {
-            materials.add(documentToMaterial(doc));
-        }
-        
-        return materials;
+        return mongoDBService.findDocuments(COLLECTION_NAME, filter, Material.class);
     }
     
-    public boolean addMaterial(Material material) {
-        Document doc = materialToDocument(material);
-        return mongoDBService.insertDocument(COLLECTION_NAME, doc);
+    /**
+     * Reports changes made to the collection by any client. Cached entries are
+     * dropped before the listener sees the change.
+     */
+    public ChangeStreamWatcher<Material> watchMaterials(Consumer<ChangeEvent<Material>> listener) {
+        return mongoDBService.watch(COLLECTION_NAME, Material.class, change -> {
+            CACHE.invalidate(change.getId());
+            listener.accept(change);
+        });
+    }
+    
+    /**
+     * Inserts the material and returns it with its generated id, or null if the insert failed.
+     */
+    public Material addMaterial(Material material) {
+        ObjectId id = mongoDBService.insertDocument(COLLECTION_NAME, material);
+        if (material.getId() != null) {
+            CACHE.invalidate(material.getId());
+        }
+        return id != null ? material : null;
     }
     
     public boolean deleteMaterial(ObjectId id) {
+        CACHE.invalidate(id);
         return mongoDBService.deleteDocument(COLLECTION_NAME, id);
     }
     
-    private Material documentToMaterial(Document doc) {
-        Material material = new Material();
-        material.setId(doc.getObjectId("_id"));
-        material.setName(doc.getString("name"));
-        material.setType(doc.getString("type"));
-        
-        Object costObj = doc.get("costPerUnit");
-        double cost = 0.0;
-        if (costObj instanceof Integer) {
-            cost = ((Integer) costObj).doubleValue();
-        } else if (costObj instanceof Double) {
-            cost = (Double) costObj;
+    public BulkWriteReport addAll(List<Material> materials) {
+        BulkWriteReport report = mongoDBService.bulkInsert(COLLECTION_NAME, Material.class, materials);
+        invalidateCached(materials);
+        return report;
+    }
+    
+    public BulkWriteReport upsertAll(List<Material> materials) {
+        BulkWriteReport report = mongoDBService.bulkUpsert(COLLECTION_NAME, Material.class, materials, Material::getId);
+        invalidateCached(materials);
+        return report;
+    }
+    
+    public BulkWriteReport deleteAll(List<ObjectId> ids) {
+        for (ObjectId id : ids) {
+            CACHE.invalidate(id);
         }
-        material.setCostPerUnit(cost);
-        
-        material.setUnit(doc.getString("unit"));
-        material.setStockQuantity(doc.getInteger("stockQuantity"));
-        return material;
+        return mongoDBService.bulkDelete(COLLECTION_NAME, ids);
     }
     
-    private Document materialToDocument(Material material) {
-        Document doc = new Document();
-        if (material.getId() != null) {
-            doc.append("_id", material.getId());
+    private static void invalidateCached(List<Material> materials) {
+        for (Material material : materials) {
+            if (material.getId() != null) {
+                CACHE.invalidate(material.getId());
+            }
         }
-        doc.append("name", material.getName())
-           .append("type", material.getType())
-           .append("costPerUnit", material.getCostPerUnit())
-           .append("unit", material.getUnit())
-           .append("stockQuantity", material.getStockQuantity());
-        return doc;
-    }
-} 
\ No newline at end of file
+    }
+}
\ No newline at end of file
@@ -1,39 +1,59 @@
 package com.furniture.repository;
 
+import com.furniture.db.BulkWriteReport;
+import com.furniture.db.ChangeEvent;
+import com.furniture.db.ChangeStreamWatcher;
+import com.furniture.db.IndexDefinition;
+import com.furniture.db.IndexRegistry;
+import com.furniture.db.KeysetCursor;
+import com.furniture.db.KeysetPage;
 import com.furniture.db.MongoDBService;
 import com.furniture.model.Order;
-import com.furniture.model.Order.OrderItem;
+import com.furniture.model.OrderSummary;
 import com.mongodb.client.model.Filters;
-import org.bson.Document;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
 import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
 
-import java.util.ArrayList;
-import java.util.Date;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 public class OrderRepository {
     private static final String COLLECTION_NAME = "orders";
+    // Fields of OrderSummary, the items array is reduced to its size on the server
+    private static final Bson SUMMARY_PROJECTION = Projections.fields(
+            Projections.include("customerId", "orderDate", "status", "totalPrice"),
+            Projections.computed("itemCount", MongoDBService.sizeOf("items")));
     private final MongoDBService mongoDBService;
     
     public OrderRepository() {
         this.mongoDBService = MongoDBService.getInstance();
     }
     
+    /**
+     * Declares the indexes backing the queries of this repository.
+     */
+    public static void declareIndexes(IndexRegistry registry) {
+        // getOrdersByCustomerId
+        registry.register(IndexDefinition.ascending(COLLECTION_NAME, "customerId"));
+        // getOrdersByStatus, newest orders of a status
+        registry.register(IndexDefinition.ascending(COLLECTION_NAME, "status", "orderDate"));
+        // getSortedOrders("orderDate") and keyset pages sorted by date
+        registry.register(IndexDefinition.ascending(COLLECTION_NAME, "orderDate", "_id"));
+        // Keyset pages sorted by total price
+        registry.register(IndexDefinition.ascending(COLLECTION_NAME, "totalPrice", "_id"));
+        // Keyset pages sorted by status
+        registry.register(IndexDefinition.ascending(COLLECTION_NAME, "status", "_id"));
+    }
+    
     public List<Order> getAllOrders() {
-        List<Order> orders = new ArrayList<>();
-        List<Document> documents = mongoDBService.getAllDocuments(COLLECTION_NAME);
-        
-        for (Document doc : documents) {
-            orders.add(documentToOrder(doc));
-        }
-        
-        return orders;
+        return mongoDBService.getAllDocuments(COLLECTION_NAME, Order.class);
     }
     
     public Order getOrderById(ObjectId id) {
-        Document doc = mongoDBService.getDocumentById(COLLECTION_NAME, id);
-        return doc != null ? documentToOrder(doc) : null;
+        return mongoDBService.getDocumentById(COLLECTION_NAME, id, Order.class);
     }
     
     public List<Order> getOrdersByCustomerId(ObjectId customerId) {
@@ -46,99 +66,111 @@ public class OrderRepository {
         return findOrders(filter);
     }
     
+    public List<OrderSummary> getOrderSummariesByCustomerId(ObjectId customerId) {
+        return findOrderSummaries(Filters.eq("customerId", customerId));
+    }
+    
+    public List<OrderSummary> getOrderSummariesByCustomerIds(Collection<ObjectId> customerIds) {
+        return mongoDBService.findDocumentsByFieldValues(COLLECTION_NAME, "customerId", customerIds,
+                SUMMARY_PROJECTION, OrderSummary.class);
+    }
+    
+    public List<OrderSummary> getOrderSummariesByStatus(String status) {
+        return findOrderSummaries(Filters.eq("status", status));
+    }
+    
     public List<Order> getSortedOrders(String sortField, boolean ascending) {
-        List<Order> orders = new ArrayList<>();
-        List<Document> documents = mongoDBService.getSortedDocuments(COLLECTION_NAME, sortField, ascending);
-        
-        for (Document doc : documents) {
-            orders.add(documentToOrder(doc));
+        return mongoDBService.getSortedDocuments(COLLECTION_NAME, sortField, ascending, Order.class);
+    }
+    
+    public void forEachOrder(Consumer<Order> action) {
+        mongoDBService.forEachDocument(COLLECTION_NAME, null, null, Order.class, action);
+    }
+    
+    /**
+     * Streams all orders in _id order with the given cursor batch size, for exports.
+     * Errors are thrown rather than logged, so an incomplete export can be detected.
+     */
+    public void streamOrders(int batchSize, Consumer<Order> action) {
+        mongoDBService.streamDocuments(COLLECTION_NAME, null, Sorts.ascending("_id"), Order.class, batchSize, action);
+    }
+    
+    /**
+     * Streams only the items of the orders with one of the given statuses, e.g. for material planning.
+     * Errors are thrown rather than logged, so a plan is never made from part of the orders.
+     */
+    public void streamOrderItemsByStatus(Collection<String> statuses, int batchSize, Consumer<Order> action) {
+        mongoDBService.streamDocuments(COLLECTION_NAME, Filters.in("status", statuses), null,
+                Projections.include("items"), Order.class, batchSize, action);
+    }
+    
+    public void streamOrderSummaries(int batchSize, Consumer<OrderSummary> action) {
+        mongoDBService.streamDocuments(COLLECTION_NAME, null, Sorts.ascending("_id"), SUMMARY_PROJECTION,
+                OrderSummary.class, batchSize, action);
+    }
+    
+    public void forEachSortedOrder(String sortField, boolean ascending, Consumer<Order> action) {
+        Bson sort = ascending ? Sorts.ascending(sortField) : Sorts.descending(sortField);
+        mongoDBService.forEachDocument(COLLECTION_NAME, null, sort, Order.class, action);
+    }
+    
+    public long countOrders() {
+        return mongoDBService.countDocuments(COLLECTION_NAME, null);
+    }
+    
+    public KeysetPage<OrderSummary> getOrderSummariesPage(String sortField, boolean ascending, KeysetCursor after,
+                                                          long skip, int pageSize) {
+        return mongoDBService.findPage(COLLECTION_NAME, null, sortField, ascending, after, skip, pageSize,
+                SUMMARY_PROJECTION, OrderSummary.class, order -> new KeysetCursor(sortValue(order, sortField), order.getId()));
+    }
+    
+    private static Object sortValue(OrderSummary order, String sortField) {
+        switch (sortField) {
+            case "orderDate":
+                return order.getOrderDate();
+            case "status":
+                return order.getStatus();
+            case "totalPrice":
+                return order.getTotalPrice();
+            case "customerId":
+                return order.getCustomerId();
+            default:
+                return order.getId();
         }
-        
-        return orders;
     }
     
     private List<Order> findOrders(Bson filter) {
-        List<Order> orders = new ArrayList<>();
-        List<Document> documents = mongoDBService.findDocuments(COLLECTION_NAME, filter);
-        
-        for (Document doc : documents) {
-            orders.add(documentToOrder(doc));
-        }
-        
-        return orders;
+        return mongoDBService.findDocuments(COLLECTION_NAME, filter, Order.class);
+    }
+    
+    private List<OrderSummary> findOrderSummaries(Bson filter) {
+        return mongoDBService.findDocuments(COLLECTION_NAME, filter, SUMMARY_PROJECTION, OrderSummary.class);
+    }
+    
+    public ChangeStreamWatcher<Order> watchOrders(Consumer<ChangeEvent<Order>> listener) {
+        return mongoDBService.watch(COLLECTION_NAME, Order.class, listener);
     }
     
-    public boolean addOrder(Order order) {
-        Document doc = orderToDocument(order);
-        return mongoDBService.insertDocument(COLLECTION_NAME, doc);
+    /**
+     * Inserts the order and returns it with its generated id, or null if the insert failed.
+     */
+    public Order addOrder(Order order) {
+        return mongoDBService.insertDocument(COLLECTION_NAME, order) != null ? order : null;
     }
     
     public boolean deleteOrder(ObjectId id) {
         return mongoDBService.deleteDocument(COLLECTION_NAME, id);
     }
     
-    private Order documentToOrder(Document doc) {
-        Order order = new Order();
-        order.setId(doc.getObjectId("_id"));
-        order.setCustomerId(doc.getObjectId("customerId"));
-        order.setOrderDate(doc.getDate("orderDate"));
-        order.setStatus(doc.getString("status"));
-        
-        Object priceObj = doc.get("totalPrice");
-        double totalPrice = 0.0;
-        if (priceObj instanceof Integer) {
-            totalPrice = ((Integer) priceObj).doubleValue();
-        } else if (priceObj instanceof Double) {
-            totalPrice = (Double) priceObj;
-        }
-        order.setTotalPrice(totalPrice);
-        
-        List<OrderItem> items = new ArrayList<>();
-        List<Document> itemDocs = (List<Document>) doc.get("items");
-        if (itemDocs != null) {
-            for (Document itemDoc : itemDocs) {
-                ObjectId furnitureId = itemDoc.getObjectId("furnitureId");
-                int quantity = itemDoc.getInteger("quantity");
-                
-                Object itemPriceObj = itemDoc.get("price");
-                double itemPrice = 0.0;
-                if (itemPriceObj instanceof Integer) {
-                    itemPrice = ((Integer) itemPriceObj).doubleValue();
-                } else if (itemPriceObj instanceof Double) {
-                    itemPrice = (Double) itemPriceObj;
-                }
-                
-                OrderItem item = new OrderItem(furnitureId, quantity, itemPrice);
-                items.add(item);
-            }
-        }
-        order.setItems(items);
-        
-        return order;
+    public BulkWriteReport addAll(List<Order> orders) {
+        return mongoDBService.bulkInsert(COLLECTION_NAME, Order.class, orders);
     }
     
-    private Document orderToDocument(Order order) {
-        Document doc = new Document();
-        if (order.getId() != null) {
-            doc.append("_id", order.getId());
-        }
-        doc.append("customerId", order.getCustomerId())
-           .append("orderDate", order.getOrderDate() != null ? order.getOrderDate() : new Date())
-           .append("status", order.getStatus())
-           .append("totalPrice", order.getTotalPrice());
-        
-        List<Document> itemDocs = new ArrayList<>();
-        if (order.getItems() != null) {
-            for (OrderItem item : order.getItems()) {
-                Document itemDoc = new Document()
-                    .append("furnitureId", item.getFurnitureId())
-                    .append("quantity", item.getQuantity())
-                    .append("price", item.getPrice());
-                itemDocs.add(itemDoc);
-            }
-        }
-        doc.append("items", itemDocs);
-        
-        return doc;
+    public BulkWriteReport upsertAll(List<Order> orders) {
+        return mongoDBService.bulkUpsert(COLLECTION_NAME, Order.class, orders, Order::getId);
+    }
+    
+    public BulkWriteReport deleteAll(List<ObjectId> ids) {
+        return mongoDBService.bulkDelete(COLLECTION_NAME, ids);
     }
-} 
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,70 @@
+package com.furniture.repository;
+
+import org.bson.types.ObjectId;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Identity map for entities referenced by id from another result set
+ * (e.g. the customers of a list of orders).
+ *
+ * A resolver is meant to live for a single request: the caller first
+ * prefetches every referenced id in one go, which the batch loader turns into
+ * chunked $in queries, and then resolves the ids row by row from memory.
+ * Ids that do not exist in the database are remembered as well, so they are
+ * never queried twice.
+ */
+public class ReferenceResolver<T> {
+    private final Function<Collection<ObjectId>, Map<ObjectId, T>> batchLoader;
+    private final Map<ObjectId, T> identityMap = new HashMap<>();
+    
+    public ReferenceResolver(Function<Collection<ObjectId>, Map<ObjectId, T>> batchLoader) {
+        this.batchLoader = batchLoader;
+    }
+    
+    public <S> void prefetch(Collection<S> sources, Function<S, ObjectId> idExtractor) {
+        Set<ObjectId> ids = new LinkedHashSet<>();
+        for (S source : sources) {
+            ids.add(idExtractor.apply(source));
+        }
+        prefetch(ids);
+    }
+    
+    public void prefetch(Collection<ObjectId> ids) {
+        Set<ObjectId> unresolved = new LinkedHashSet<>();
+        for (ObjectId id : ids) {
+            if (id != null && !identityMap.containsKey(id)) {
+                unresolved.add(id);
+            }
+        }
+        if (unresolved.isEmpty()) {
+            return;
+        }
+        
+        Map<ObjectId, T> loaded = batchLoader.apply(unresolved);
+        for (ObjectId id : unresolved) {
+            // Missing entities are stored as null so they are not requested again
+            identityMap.put(id, loaded.get(id));
+        }
+    }
+    
+    public void put(ObjectId id, T entity) {
+        identityMap.put(id, entity);
+    }
+    
+    public T resolve(ObjectId id) {
+        if (id == null) {
+            return null;
+        }
+        if (!identityMap.containsKey(id)) {
+            prefetch(Collections.singleton(id));
+        }
+        return identityMap.get(id);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,155 @@
+package com.furniture.repository;
+
+import com.furniture.model.FurnitureDetails;
+import com.furniture.model.FurnitureDetails.MaterialUsage;
+import org.bson.types.ObjectId;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * In-memory inverted index from material to the furniture items whose bill of
+ * materials uses it, with the quantity per item.
+ *
+ * The index is built from one streamed query and then updated by the writes of
+ * the repository and by the change stream of the collection, so a lookup never
+ * touches the database. Without change streams the index is rebuilt once it is
+ * older than the time to live, so changes made by other clients show up after
+ * at most one TTL, as with {@link EntityCache}.
+ *
+ * A rebuild reads into new maps without holding the lock and then swaps them in;
+ * changes that arrive meanwhile are replayed on the new maps, so none is lost. If
+ * the read fails, the previous index stays and the next lookup tries again.
+ */
+public class WhereUsedIndex {
+    private final long ttlNanos;
+    // material id -> furniture id -> quantity per item
+    private Map<ObjectId, Map<ObjectId, Double>> usagesByMaterial = new HashMap<>();
+    // details id -> indexed bill of materials, needed to unlink on delete
+    private Map<ObjectId, FurnitureDetails> billsByDetails = new HashMap<>();
+    private boolean built;
+    private long builtAt;
+    // Changes seen while a rebuild runs, replayed on the rebuilt index; null when no rebuild runs
+    private List<Runnable> changesDuringRebuild;
+    
+    public WhereUsedIndex(Duration ttl) {
+        this.ttlNanos = ttl.toNanos();
+    }
+    
+    /**
+     * Returns the items using the material with their quantity per item, in no particular order.
+     */
+    public synchronized Map<ObjectId, Double> lookup(ObjectId materialId) {
+        Map<ObjectId, Double> usages = usagesByMaterial.get(materialId);
+        return usages != null ? new LinkedHashMap<>(usages) : Collections.emptyMap();
+    }
+    
+    /**
+     * Rebuilds the index from the bills of materials read from the source unless it is
+     * built and either kept current by a live change stream or younger than the time to
+     * live. Errors of the source are passed on to the caller.
+     */
+    public void ensureBuilt(boolean live, Consumer<Consumer<FurnitureDetails>> source) {
+        synchronized (this) {
+            // Without an index yet, wait for a rebuild running on another thread
+            while (changesDuringRebuild != null && !built) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            if (changesDuringRebuild != null || (built && (live || System.nanoTime() - builtAt <= ttlNanos))) {
+                return;
+            }
+            changesDuringRebuild = new ArrayList<>();
+        }
+        
+        Map<ObjectId, Map<ObjectId, Double>> usages = new HashMap<>();
+        Map<ObjectId, FurnitureDetails> bills = new HashMap<>();
+        boolean complete = false;
+        try {
+            source.accept(details -> link(usages, bills, details));
+            complete = true;
+        } finally {
+            synchronized (this) {
+                List<Runnable> changes = changesDuringRebuild;
+                changesDuringRebuild = null;
+                if (complete) {
+                    usagesByMaterial = usages;
+                    billsByDetails = bills;
+                    built = true;
+                    builtAt = System.nanoTime();
+                    changes.forEach(Runnable::run);
+                }
+                notifyAll();
+            }
+        }
+    }
+    
+    public synchronized void put(FurnitureDetails details) {
+        if (details.getId() == null) {
+            return;
+        }
+        if (changesDuringRebuild != null) {
+            changesDuringRebuild.add(() -> put(details));
+        }
+        if (built) {
+            unlink(details.getId());
+            link(usagesByMaterial, billsByDetails, details);
+        }
+    }
+    
+    public synchronized void remove(ObjectId detailsId) {
+        if (changesDuringRebuild != null) {
+            changesDuringRebuild.add(() -> remove(detailsId));
+        }
+        unlink(detailsId);
+    }
+    
+    /**
+     * Forces a rebuild on the next lookup, e.g. after a bulk write that partly failed.
+     */
+    public synchronized void invalidate() {
+        if (changesDuringRebuild != null) {
+            changesDuringRebuild.add(this::invalidate);
+        }
+        built = false;
+    }
+    
+    private void unlink(ObjectId detailsId) {
+        FurnitureDetails previous = billsByDetails.remove(detailsId);
+        if (previous == null || previous.getMaterialUsages() == null) {
+            return;
+        }
+        for (MaterialUsage usage : previous.getMaterialUsages()) {
+            Map<ObjectId, Double> usages = usagesByMaterial.get(usage.getMaterialId());
+            if (usages != null) {
+                usages.remove(previous.getFurnitureId());
+                if (usages.isEmpty()) {
+                    usagesByMaterial.remove(usage.getMaterialId());
+                }
+            }
+        }
+    }
+    
+    private static void link(Map<ObjectId, Map<ObjectId, Double>> usagesByMaterial, Map<ObjectId, FurnitureDetails> billsByDetails,
+                             FurnitureDetails details) {
+        if (details.getFurnitureId() == null || details.getMaterialUsages() == null) {
+            return;
+        }
+        billsByDetails.put(details.getId(), details);
+        for (MaterialUsage usage : details.getMaterialUsages()) {
+            // A material listed twice in one bill counts once with the summed quantity
+            usagesByMaterial.computeIfAbsent(usage.getMaterialId(), id -> new HashMap<>())
+                    .merge(details.getFurnitureId(), usage.getQuantity(), Double::sum);
+        }
+    }
+}
\ No newline at end of file
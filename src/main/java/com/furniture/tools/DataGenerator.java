@@ -0,0 +1,447 @@
+package com.furniture.tools;
+
+import com.furniture.db.BulkWriteReport;
+import com.furniture.db.MongoDBService;
+import com.furniture.model.Customer;
+import com.furniture.model.Furniture;
+import com.furniture.model.FurnitureDetails;
+import com.furniture.model.FurnitureDetails.MaterialUsage;
+import com.furniture.model.Material;
+import com.furniture.model.Order;
+import com.furniture.model.Order.OrderItem;
+import com.furniture.repository.CustomerRepository;
+import com.furniture.repository.FurnitureDetailsRepository;
+import com.furniture.repository.FurnitureRepository;
+import com.furniture.repository.MaterialRepository;
+import com.furniture.repository.OrderRepository;
+import org.bson.types.ObjectId;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Fills a database with synthetic data to test how the application scales.
+ *
+ * The data is built from the model classes and written with the repositories' bulk
+ * inserts, so it is stored exactly as the application stores it:
+ *   - materials of several types, with units and prices that fit the type
+ *   - a furniture catalog, every item with FurnitureDetails listing 2 to 8 materials
+ *   - customers, who order with a Zipf distribution: a few regulars place a large share
+ *     of all orders, the long tail orders rarely
+ *   - orders of 1 to 12 items, best sellers again Zipf distributed, spread over three
+ *     years with more orders recently, and statuses that depend on the age of the order
+ *
+ * Everything is drawn from one seeded Random, ids included, so the same seed and end
+ * date produce the same documents. Customers and orders are written in chunks by several
+ * threads while the next chunk is generated. Indexes are not touched; the application
+ * creates them at its next start, which is faster than maintaining them during the load.
+ *
+ * The target is the configured database; use another one with
+ * -Dfurniture.mongo.database=... Collections that already hold customers or orders are
+ * only added to with --append.
+ *
+ * Usage: DataGenerator [small|medium|large] [--seed N] [--until yyyy-MM-dd] [--append]
+ */
+public class DataGenerator {
+
+    public enum Preset {
+        SMALL(1_000, 300, 120, 20_000),
+        MEDIUM(20_000, 2_000, 500, 500_000),
+        LARGE(50_000, 5_000, 1_500, 3_000_000);
+        
+        private final int customers;
+        private final int furniture;
+        private final int materials;
+        private final int orders;
+        
+        Preset(int customers, int furniture, int materials, int orders) {
+            this.customers = customers;
+            this.furniture = furniture;
+            this.materials = materials;
+            this.orders = orders;
+        }
+    }
+    
+    private static final String[] FIRST_NAMES = {
+        "Александр", "Дмитрий", "Максим", "Сергей", "Андрей", "Алексей", "Иван", "Михаил", "Николай", "Павел",
+        "Анна", "Мария", "Елена", "Ольга", "Наталья", "Татьяна", "Ирина", "Екатерина", "Светлана", "Юлия"
+    };
+    private static final String[] LAST_NAMES = {
+        "Иванов", "Смирнов", "Кузнецов", "Попов", "Васильев", "Петров", "Соколов", "Михайлов", "Новиков",
+        "Федоров", "Морозов", "Волков", "Алексеев", "Лебедев", "Семенов", "Егоров", "Павлов", "Козлов"
+    };
+    private static final String[] CITIES = {
+        "Москва", "Санкт-Петербург", "Новосибирск", "Екатеринбург", "Казань", "Нижний Новгород", "Самара", "Тула"
+    };
+    private static final String[] STREETS = {
+        "Лесная", "Садовая", "Центральная", "Молодежная", "Школьная", "Новая", "Советская", "Набережная"
+    };
+    private static final String[] MAIL_DOMAINS = {"mail.ru", "yandex.ru", "gmail.com", "example.com"};
+    
+    // Category, singular name, price range in rubles
+    private static final String[][] CATEGORIES = {
+        {"Стулья", "Стул", "2000", "15000"},
+        {"Столы", "Стол", "8000", "60000"},
+        {"Шкафы", "Шкаф", "15000", "120000"},
+        {"Диваны", "Диван", "25000", "200000"},
+        {"Кровати", "Кровать", "20000", "150000"},
+        {"Полки", "Полка", "2000", "20000"},
+        {"Тумбы", "Тумба", "4000", "30000"}
+    };
+    private static final String[] MODELS = {
+        "Осло", "Берген", "Милан", "Верона", "Лофт", "Сканди", "Прованс", "Нордик", "Турин", "Женева", "Рига", "Бриз"
+    };
+    // Type, material name, unit, price range per unit
+    private static final String[][] MATERIALS = {
+        {"Дерево", "Массив дуба", "м²", "3000", "9000"},
+        {"Дерево", "Массив сосны", "м²", "1200", "3500"},
+        {"Плита", "ЛДСП", "м²", "400", "1200"},
+        {"Плита", "МДФ", "м²", "600", "1800"},
+        {"Металл", "Сталь", "кг", "90", "300"},
+        {"Металл", "Алюминий", "кг", "250", "600"},
+        {"Ткань", "Велюр", "м", "600", "2500"},
+        {"Ткань", "Рогожка", "м", "400", "1500"},
+        {"Кожа", "Экокожа", "м²", "700", "2200"},
+        {"Стекло", "Стекло закаленное", "м²", "1500", "4000"},
+        {"Фурнитура", "Петля", "шт", "60", "400"},
+        {"Фурнитура", "Ручка", "шт", "80", "900"},
+        {"Фурнитура", "Направляющая", "шт", "150", "1200"}
+    };
+    private static final String[] FINISHES = {"натуральный", "белый", "венге", "орех", "графит", "дуб сонома"};
+    
+    // Zipf exponent; the share of the top 1% of customers depends on the preset and is printed at the end
+    private static final double CUSTOMER_SKEW = 0.8;
+    private static final double PRODUCT_SKEW = 0.9;
+    private static final int HISTORY_DAYS = 3 * 365;
+    private static final int MAX_ITEMS_PER_ORDER = 12;
+    private static final long DAY_MILLIS = 86_400_000L;
+    
+    private static final int CHUNK_SIZE = 10_000;
+    private static final int WRITERS = 4;
+    private static final int PROGRESS_EVERY = 100_000;
+    
+    private final Preset preset;
+    private final Random random;
+    private final long endMillis;
+    
+    private final MaterialRepository materialRepository = new MaterialRepository();
+    private final FurnitureRepository furnitureRepository = new FurnitureRepository();
+    private final FurnitureDetailsRepository furnitureDetailsRepository = new FurnitureDetailsRepository();
+    private final CustomerRepository customerRepository = new CustomerRepository();
+    private final OrderRepository orderRepository = new OrderRepository();
+    
+    private final ExecutorService writers = Executors.newFixedThreadPool(WRITERS);
+    // At most two chunks per writer wait in memory, the generator blocks beyond that
+    private final Semaphore chunksInFlight = new Semaphore(WRITERS * 2);
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    
+    // Catalog and customers, by popularity rank: index 0 is ordered most often
+    private ObjectId[] customersByRank;
+    private Furniture[] furnitureByRank;
+    
+    public DataGenerator(Preset preset, long seed, LocalDate until) {
+        this.preset = preset;
+        this.random = new Random(seed);
+        this.endMillis = until.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+    }
+    
+    public static void main(String[] args) {
+        Preset preset = Preset.SMALL;
+        long seed = 42;
+        LocalDate until = LocalDate.now(ZoneOffset.UTC);
+        boolean append = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                case "--until":
+                    until = LocalDate.parse(args[++i]);
+                    break;
+                case "--append":
+                    append = true;
+                    break;
+                default:
+                    preset = Preset.valueOf(args[i].toUpperCase(Locale.ROOT));
+            }
+        }
+        
+        MongoDBService mongoDBService = MongoDBService.getInstance();
+        DataGenerator generator = new DataGenerator(preset, seed, until);
+        try {
+            if (!append && generator.hasData()) {
+                System.err.println("Database " + mongoDBService.getConfig().getDatabaseName()
+                        + " already has customers or orders. Use --append, or another database with -Dfurniture.mongo.database=...");
+                System.exit(1);
+            }
+            generator.generate();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Generation interrupted");
+        } finally {
+            mongoDBService.close();
+        }
+    }
+    
+    public boolean hasData() {
+        return customerRepository.countCustomers() > 0 || orderRepository.countOrders() > 0;
+    }
+    
+    public void generate() throws InterruptedException {
+        System.out.printf("Generating %s: %d materials, %d furniture, %d customers, %d orders%n",
+                preset.name().toLowerCase(Locale.ROOT), preset.materials, preset.furniture, preset.customers, preset.orders);
+        long start = System.nanoTime();
+        
+        List<Material> materials = generateMaterials();
+        report("materials", materialRepository.addAll(materials));
+        
+        List<Furniture> catalog = generateFurniture();
+        report("furniture", furnitureRepository.addAll(catalog));
+        report("furnitureDetails", furnitureDetailsRepository.addAll(generateDetails(catalog, materials)));
+        furnitureByRank = catalog.toArray(new Furniture[0]);
+        shuffle(furnitureByRank);
+        
+        generateCustomers();
+        generateOrders();
+        
+        writers.shutdown();
+        writers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        
+        double seconds = (System.nanoTime() - start) / 1e9;
+        ZipfDistribution customerDistribution = new ZipfDistribution(preset.customers, CUSTOMER_SKEW);
+        System.out.printf("Written %d documents in %.1f s (%.0f/s), %d failed%n",
+                written.get(), seconds, written.get() / seconds, failed.get());
+        System.out.printf("The top 1%% of customers place about %.0f%% of the orders%n",
+                100 * customerDistribution.topShare(preset.customers / 100));
+    }
+    
+    private List<Material> generateMaterials() {
+        List<Material> materials = new ArrayList<>(preset.materials);
+        for (int i = 0; i < preset.materials; i++) {
+            String[] kind = MATERIALS[i % MATERIALS.length];
+            String name = kind[1] + " " + FINISHES[random.nextInt(FINISHES.length)] + " №" + (i / MATERIALS.length + 1);
+            Material material = new Material(name, kind[0], priceBetween(kind[3], kind[4]), kind[2], random.nextInt(5_000));
+            material.setId(nextId(endMillis - HISTORY_DAYS * DAY_MILLIS));
+            materials.add(material);
+        }
+        return materials;
+    }
+    
+    private List<Furniture> generateFurniture() {
+        List<Furniture> catalog = new ArrayList<>(preset.furniture);
+        for (int i = 0; i < preset.furniture; i++) {
+            String[] category = CATEGORIES[random.nextInt(CATEGORIES.length)];
+            String name = category[1] + " «" + MODELS[random.nextInt(MODELS.length)] + "» " + (i + 1);
+            Furniture furniture = new Furniture(name, category[0], Math.rint(priceBetween(category[2], category[3])),
+                    random.nextInt(300));
+            furniture.setId(nextId(endMillis - HISTORY_DAYS * DAY_MILLIS));
+            catalog.add(furniture);
+        }
+        return catalog;
+    }
+    
+    private List<FurnitureDetails> generateDetails(List<Furniture> catalog, List<Material> materials) {
+        List<FurnitureDetails> detailsList = new ArrayList<>(catalog.size());
+        for (Furniture furniture : catalog) {
+            int usageCount = 2 + random.nextInt(7);
+            List<MaterialUsage> usages = new ArrayList<>(usageCount);
+            List<ObjectId> used = new ArrayList<>(usageCount);
+            while (usages.size() < usageCount) {
+                Material material = materials.get(random.nextInt(materials.size()));
+                if (used.contains(material.getId())) {
+                    continue;
+                }
+                used.add(material.getId());
+                usages.add(new MaterialUsage(material.getId(), quantityFor(material.getUnit())));
+            }
+            
+            String dimensions = (40 + random.nextInt(200)) + "x" + (30 + random.nextInt(80)) + "x" + (40 + random.nextInt(200)) + " см";
+            FurnitureDetails details = new FurnitureDetails(furniture.getId(),
+                    furniture.getName() + ", " + FINISHES[random.nextInt(FINISHES.length)], dimensions,
+                    Math.round((3 + random.nextDouble() * 120) * 10) / 10.0, usages);
+            details.setId(nextId(endMillis - HISTORY_DAYS * DAY_MILLIS));
+            detailsList.add(details);
+        }
+        return detailsList;
+    }
+    
+    private double quantityFor(String unit) {
+        switch (unit) {
+            case "шт":
+                return 2 + random.nextInt(23);
+            case "кг":
+                return Math.round((0.5 + random.nextDouble() * 15) * 10) / 10.0;
+            default:
+                return Math.round((0.3 + random.nextDouble() * 6) * 100) / 100.0;
+        }
+    }
+    
+    private void generateCustomers() throws InterruptedException {
+        ObjectId[] customerIds = new ObjectId[preset.customers];
+        List<Customer> chunk = new ArrayList<>(CHUNK_SIZE);
+        for (int i = 0; i < preset.customers; i++) {
+            String lastName = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+            int firstName = random.nextInt(FIRST_NAMES.length);
+            // Surnames agree with the first name, women are the second half of the list
+            boolean female = firstName >= FIRST_NAMES.length / 2;
+            String name = lastName + (female ? "а" : "") + " " + FIRST_NAMES[firstName];
+            String email = "client" + (i + 1) + "@" + MAIL_DOMAINS[random.nextInt(MAIL_DOMAINS.length)];
+            String phone = String.format("+7 9%02d %03d-%02d-%02d", random.nextInt(100), random.nextInt(1000),
+                    random.nextInt(100), random.nextInt(100));
+            String address = "г. " + CITIES[random.nextInt(CITIES.length)] + ", ул. " + STREETS[random.nextInt(STREETS.length)]
+                    + ", д. " + (1 + random.nextInt(150)) + ", кв. " + (1 + random.nextInt(300));
+            
+            Customer customer = new Customer(name, email, phone, address);
+            customer.setId(nextId(endMillis - random.nextInt(HISTORY_DAYS) * DAY_MILLIS));
+            customerIds[i] = customer.getId();
+            chunk.add(customer);
+            if (chunk.size() == CHUNK_SIZE) {
+                submit("customers", chunk, customerRepository::addAll);
+                chunk = new ArrayList<>(CHUNK_SIZE);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            submit("customers", chunk, customerRepository::addAll);
+        }
+        
+        customersByRank = customerIds;
+        shuffle(customersByRank);
+    }
+    
+    private void generateOrders() throws InterruptedException {
+        ZipfDistribution customerDistribution = new ZipfDistribution(customersByRank.length, CUSTOMER_SKEW);
+        ZipfDistribution productDistribution = new ZipfDistribution(furnitureByRank.length, PRODUCT_SKEW);
+        long start = System.nanoTime();
+        
+        List<Order> chunk = new ArrayList<>(CHUNK_SIZE);
+        for (int i = 1; i <= preset.orders; i++) {
+            chunk.add(generateOrder(customerDistribution, productDistribution));
+            if (chunk.size() == CHUNK_SIZE) {
+                submit("orders", chunk, orderRepository::addAll);
+                chunk = new ArrayList<>(CHUNK_SIZE);
+            }
+            if (i % PROGRESS_EVERY == 0) {
+                System.out.printf("orders: %d / %d (%.0f/s)%n", i, preset.orders, i / ((System.nanoTime() - start) / 1e9));
+            }
+        }
+        if (!chunk.isEmpty()) {
+            submit("orders", chunk, orderRepository::addAll);
+        }
+    }
+    
+    private Order generateOrder(ZipfDistribution customerDistribution, ZipfDistribution productDistribution) {
+        // More orders in recent months, as a growing business would have
+        int daysAgo = (int) (HISTORY_DAYS * (1 - Math.sqrt(random.nextDouble())));
+        long orderMillis = endMillis - daysAgo * DAY_MILLIS - random.nextInt((int) DAY_MILLIS);
+        
+        int itemCount = 1;
+        while (itemCount < MAX_ITEMS_PER_ORDER && random.nextDouble() < 0.45) {
+            itemCount++;
+        }
+        List<OrderItem> items = new ArrayList<>(itemCount);
+        double total = 0;
+        while (items.size() < itemCount) {
+            Furniture furniture = furnitureByRank[productDistribution.sample(random)];
+            if (containsFurniture(items, furniture.getId())) {
+                continue;
+            }
+            double roll = random.nextDouble();
+            int quantity = roll < 0.7 ? 1 : roll < 0.9 ? 2 : 3 + random.nextInt(4);
+            items.add(new OrderItem(furniture.getId(), quantity, furniture.getPrice()));
+            total += quantity * furniture.getPrice();
+        }
+        
+        Order order = new Order(customersByRank[customerDistribution.sample(random)], new Date(orderMillis),
+                statusFor(daysAgo), Math.round(total * 100) / 100.0, items);
+        order.setId(nextId(orderMillis));
+        return order;
+    }
+    
+    private String statusFor(int daysAgo) {
+        double roll = random.nextDouble();
+        if (daysAgo < 14) {
+            return roll < 0.5 ? "Ожидается" : "В процессе";
+        }
+        if (daysAgo < 60) {
+            return roll < 0.4 ? "В процессе" : roll < 0.95 ? "Завершен" : "Отменен";
+        }
+        return roll < 0.93 ? "Завершен" : "Отменен";
+    }
+    
+    private static boolean containsFurniture(List<OrderItem> items, ObjectId furnitureId) {
+        for (OrderItem item : items) {
+            if (item.getFurnitureId().equals(furnitureId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Hands a chunk to a writer thread, waiting while too many chunks are pending.
+     */
+    private <T> void submit(String collection, List<T> chunk, Function<List<T>, BulkWriteReport> write)
+            throws InterruptedException {
+        chunksInFlight.acquire();
+        writers.execute(() -> {
+            try {
+                record(collection, write.apply(chunk));
+            } finally {
+                chunksInFlight.release();
+            }
+        });
+    }
+    
+    private void report(String collection, BulkWriteReport report) {
+        record(collection, report);
+        System.out.println(collection + ": " + report);
+    }
+    
+    private void record(String collection, BulkWriteReport report) {
+        written.addAndGet(report.getWritten());
+        if (!report.isSuccessful()) {
+            failed.addAndGet(report.getFailures().size());
+            System.err.println("Failed to write " + report.getFailures().size() + " " + collection + ": "
+                    + report.getFailures().get(0).getMessage());
+        }
+    }
+    
+    /**
+     * ObjectId with the given creation time and the rest drawn from the seeded Random,
+     * so ids are reproducible and sort roughly by the time the entity was created.
+     */
+    private ObjectId nextId(long millis) {
+        ByteBuffer bytes = ByteBuffer.allocate(12);
+        bytes.putInt((int) (millis / 1000));
+        bytes.putLong(random.nextLong());
+        return new ObjectId(bytes.array());
+    }
+    
+    private double priceBetween(String min, String max) {
+        double low = Double.parseDouble(min);
+        double high = Double.parseDouble(max);
+        return Math.round((low + random.nextDouble() * (high - low)) * 100) / 100.0;
+    }
+    
+    private <T> void shuffle(T[] values) {
+        for (int i = values.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            T value = values[i];
+            values[i] = values[j];
+            values[j] = value;
+        }
+    }
+}
\ No newline at end of file
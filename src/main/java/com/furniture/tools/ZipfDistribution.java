@@ -0,0 +1,42 @@
+package com.furniture.tools;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Draws ranks 0..n-1 with a probability proportional to 1 / (rank + 1)^exponent, so a
+ * few ranks are drawn very often and most rarely, like customers and best sellers.
+ *
+ * The cumulative weights are computed once; a draw is one binary search.
+ */
+final class ZipfDistribution {
+    private final double[] cumulative;
+    
+    ZipfDistribution(int n, double exponent) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("Number of ranks must be positive: " + n);
+        }
+        cumulative = new double[n];
+        double total = 0;
+        for (int rank = 0; rank < n; rank++) {
+            total += 1.0 / Math.pow(rank + 1, exponent);
+            cumulative[rank] = total;
+        }
+        for (int rank = 0; rank < n; rank++) {
+            cumulative[rank] /= total;
+        }
+    }
+    
+    int sample(Random random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        int rank = index >= 0 ? index : -index - 1;
+        return Math.min(rank, cumulative.length - 1);
+    }
+    
+    /**
+     * Share of all draws that fall on the given number of top ranks.
+     */
+    double topShare(int ranks) {
+        return ranks <= 0 ? 0 : cumulative[Math.min(ranks, cumulative.length) - 1];
+    }
+}
\ No newline at end of file
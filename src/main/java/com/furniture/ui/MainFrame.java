@@ -1,12 +1,29 @@
 package com.furniture.ui;
 
+import com.furniture.StartupTimer;
+import com.furniture.db.MongoDBService;
+import com.furniture.db.monitoring.DatabaseMonitor;
+import com.furniture.db.monitoring.LatencyHistogram;
 import com.furniture.ui.panels.*;
 
 import javax.swing.*;
 import java.awt.*;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 public class MainFrame extends JFrame {
+    private static final int STATUS_REFRESH_MILLIS = 2000;
+    private static final int PREFETCH_FALLBACK_MILLIS = 3000;
+    
     private JTabbedPane tabbedPane;
+    private final Set<Component> initializedTabs = new HashSet<>();
+    private boolean loadingStarted;
+    private boolean prefetchStarted;
+    private JLabel statusLabel;
+    private LatencyHistogram.Snapshot previousLatency;
+    private long previousLatencyTime;
     
     public MainFrame() {
         setTitle("Система управления мебельным производством");
@@ -17,12 +34,13 @@ public class MainFrame extends JFrame {
         // Create the main tabbed pane
         tabbedPane = new JTabbedPane();
         
-        // Create panels for each entity
+        // Create panels for each entity, their data is loaded by startLoading
         CustomersPanel customersPanel = new CustomersPanel();
         OrdersPanel ordersPanel = new OrdersPanel();
         FurniturePanel furniturePanel = new FurniturePanel();
         MaterialsPanel materialsPanel = new MaterialsPanel();
         FurnitureDetailsPanel furnitureDetailsPanel = new FurnitureDetailsPanel();
+        AnalyticsPanel analyticsPanel = new AnalyticsPanel();
         
         // Add panels to tabbed pane
         tabbedPane.addTab("Клиенты", new ImageIcon(), customersPanel, "Управление клиентами");
@@ -30,13 +48,14 @@ public class MainFrame extends JFrame {
         tabbedPane.addTab("Мебель", new ImageIcon(), furniturePanel, "Управление каталогом мебели");
         tabbedPane.addTab("Материалы", new ImageIcon(), materialsPanel, "Управление материалами");
         tabbedPane.addTab("Детали мебели", new ImageIcon(), furnitureDetailsPanel, "Управление деталями мебели");
+        tabbedPane.addTab("Аналитика", new ImageIcon(), analyticsPanel, "Выручка и объёмы продаж");
         
-        // Initialize all panels
-        customersPanel.initialize();
-        ordersPanel.initialize();
-        furniturePanel.initialize();
-        materialsPanel.initialize();
-        furnitureDetailsPanel.initialize();
+        // A tab opened before it was prefetched loads right away
+        tabbedPane.addChangeListener(e -> {
+            if (loadingStarted) {
+                initializeTab(tabbedPane.getSelectedComponent(), null);
+            }
+        });
         
         // Add the tabbed pane to the frame
         getContentPane().add(tabbedPane, BorderLayout.CENTER);
@@ -46,14 +65,109 @@ public class MainFrame extends JFrame {
         getContentPane().add(statusBar, BorderLayout.SOUTH);
     }
     
+    /**
+     * Loads the visible tab first. Once its first rows are shown, the other tabs are
+     * prefetched; their loads run in parallel on background threads. Called when the
+     * window is on screen.
+     */
+    public void startLoading() {
+        if (loadingStarted) {
+            return;
+        }
+        loadingStarted = true;
+        String title = tabbedPane.getTitleAt(tabbedPane.getSelectedIndex());
+        initializeTab(tabbedPane.getSelectedComponent(), () -> {
+            StartupTimer.mark("tab \"" + title + "\" interactive");
+            prefetchOtherTabs();
+        });
+        
+        // Prefetch anyway if the visible tab takes long, e.g. while the server is unreachable
+        Timer fallback = new Timer(PREFETCH_FALLBACK_MILLIS, e -> prefetchOtherTabs());
+        fallback.setRepeats(false);
+        fallback.start();
+    }
+    
+    private void prefetchOtherTabs() {
+        if (prefetchStarted) {
+            return;
+        }
+        prefetchStarted = true;
+        
+        List<Component> pending = new ArrayList<>();
+        for (int index = 0; index < tabbedPane.getTabCount(); index++) {
+            Component tab = tabbedPane.getComponentAt(index);
+            if (!initializedTabs.contains(tab)) {
+                pending.add(tab);
+            }
+        }
+        int[] remaining = {pending.size()};
+        for (Component tab : pending) {
+            initializeTab(tab, () -> {
+                if (--remaining[0] == 0) {
+                    StartupTimer.mark("all tabs prefetched");
+                }
+            });
+        }
+    }
+    
+    private void initializeTab(Component tab, Runnable onFirstRows) {
+        if (!initializedTabs.add(tab)) {
+            return;
+        }
+        if (tab instanceof EntityPanel) {
+            ((EntityPanel) tab).initialize(onFirstRows);
+        } else if (tab instanceof AnalyticsPanel) {
+            // Reports come from the report cache or one aggregation, nothing to wait for
+            ((AnalyticsPanel) tab).initialize();
+            if (onFirstRows != null) {
+                onFirstRows.run();
+            }
+        }
+    }
+    
     private JPanel createStatusBar() {
         JPanel statusBar = new JPanel();
         statusBar.setBorder(BorderFactory.createEtchedBorder());
         statusBar.setLayout(new FlowLayout(FlowLayout.LEFT));
         
-        JLabel statusLabel = new JLabel("Подключено к MongoDB");
+        statusLabel = new JLabel("MongoDB: подключение...");
         statusBar.add(statusLabel);
         
+        // Figures of the last interval, read from the driver listeners of the client
+        Timer statusTimer = new Timer(STATUS_REFRESH_MILLIS, e -> updateStatus());
+        statusTimer.setInitialDelay(0);
+        statusTimer.start();
+        
         return statusBar;
     }
+    
+    private void updateStatus() {
+        DatabaseMonitor monitor = MongoDBService.getInstance().getMonitor();
+        Boolean reachable = monitor.getServerReachable();
+        if (reachable == null) {
+            statusLabel.setForeground(UIManager.getColor("Label.foreground"));
+            statusLabel.setText("MongoDB: подключение...");
+            return;
+        }
+        if (!reachable) {
+            statusLabel.setForeground(Color.RED);
+            statusLabel.setText("MongoDB: нет связи — " + monitor.getLastHeartbeatError());
+            return;
+        }
+        
+        LatencyHistogram.Snapshot latency = monitor.snapshotLatency();
+        long now = System.nanoTime();
+        LatencyHistogram.Snapshot interval = previousLatency != null ? latency.minus(previousLatency) : latency;
+        double seconds = previousLatency != null ? (now - previousLatencyTime) / 1e9 : 0;
+        previousLatency = latency;
+        previousLatencyTime = now;
+        
+        statusLabel.setForeground(UIManager.getColor("Label.foreground"));
+        statusLabel.setText(String.format(
+                "MongoDB: подключено · соединений %d (занято %d) · запросов %.1f/с · задержка p50 %.1f мс, p99 %.1f мс · ошибок %d",
+                monitor.getOpenConnections(), monitor.getCheckedOutConnections(),
+                seconds > 0 ? interval.getCount() / seconds : 0.0,
+                interval.getPercentileMillis(0.50), interval.getPercentileMillis(0.99),
+                monitor.getCommandErrors()));
+    }
 } 
\ No newline at end of file
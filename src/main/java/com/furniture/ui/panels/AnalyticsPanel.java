@@ -0,0 +1,139 @@
+package com.furniture.ui.panels;
+
+import com.furniture.analytics.AnalyticsService;
+import com.furniture.analytics.AnalyticsService.Report;
+import com.furniture.analytics.ReportResult;
+import com.furniture.analytics.RevenueRow;
+
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Revenue reports computed by {@link AnalyticsService}. Reports run in the
+ * background; results come from the service's short-lived cache unless the
+ * refresh button is pressed.
+ */
+public class AnalyticsPanel extends JPanel {
+    private static final Report[] REPORTS = {Report.BY_STATUS, Report.BY_CUSTOMER, Report.BY_FURNITURE, Report.BY_MONTH};
+    private static final String[] REPORT_NAMES = {"Выручка по статусам", "Лучшие клиенты", "Лучшая мебель", "Выручка по месяцам"};
+    private static final String[] GROUP_COLUMNS = {"Статус", "Клиент", "Мебель", "Месяц"};
+    
+    private final AnalyticsService analyticsService;
+    private JComboBox<String> reportComboBox;
+    private JButton refreshButton;
+    private JLabel statusLabel;
+    private JLabel totalLabel;
+    private DefaultTableModel tableModel;
+    private ReportLoader currentLoad;
+    
+    public AnalyticsPanel() {
+        analyticsService = new AnalyticsService();
+        setLayout(new BorderLayout());
+        initComponents();
+        reportComboBox.addActionListener(e -> loadReport(false));
+        refreshButton.addActionListener(e -> loadReport(true));
+    }
+    
+    public void initialize() {
+        loadReport(false);
+    }
+    
+    private void initComponents() {
+        JPanel topPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        topPanel.setBorder(new EmptyBorder(5, 5, 5, 5));
+        reportComboBox = new JComboBox<>(REPORT_NAMES);
+        refreshButton = new JButton("Обновить");
+        statusLabel = new JLabel();
+        topPanel.add(new JLabel("Отчёт:"));
+        topPanel.add(reportComboBox);
+        topPanel.add(refreshButton);
+        topPanel.add(statusLabel);
+        add(topPanel, BorderLayout.NORTH);
+        
+        tableModel = new DefaultTableModel(new String[]{GROUP_COLUMNS[0], "Заказов", "Количество", "Выручка"}, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        JTable table = new JTable(tableModel);
+        add(new JScrollPane(table), BorderLayout.CENTER);
+        
+        JPanel bottomPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        bottomPanel.setBorder(new EmptyBorder(5, 5, 5, 5));
+        totalLabel = new JLabel();
+        bottomPanel.add(totalLabel);
+        add(bottomPanel, BorderLayout.SOUTH);
+    }
+    
+    /**
+     * Runs the selected report off the Event Dispatch Thread; a refresh bypasses the cache.
+     */
+    private void loadReport(boolean refresh) {
+        // A report that is still running is not interrupted, its result is cached for later
+        if (refresh) {
+            analyticsService.invalidate();
+        }
+        
+        int index = reportComboBox.getSelectedIndex();
+        statusLabel.setText("Расчёт...");
+        currentLoad = new ReportLoader(index);
+        currentLoad.execute();
+    }
+    
+    private void showReport(int index, ReportResult result) {
+        tableModel.setRowCount(0);
+        tableModel.setColumnIdentifiers(new String[]{GROUP_COLUMNS[index], "Заказов", "Количество", "Выручка"});
+        
+        long orders = 0;
+        double revenue = 0;
+        for (RevenueRow row : result.getRows()) {
+            tableModel.addRow(new Object[]{
+                row.getLabel(),
+                row.getOrderCount(),
+                row.getQuantity(),
+                String.format("$%.2f", row.getRevenue())
+            });
+            orders += row.getOrderCount();
+            revenue += row.getRevenue();
+        }
+        
+        String time = new SimpleDateFormat("HH:mm:ss").format(new Date(result.getComputedAtMillis()));
+        statusLabel.setText("Рассчитано в " + time + (result.isCached() ? " (из кэша)" : ""));
+        totalLabel.setText(String.format("Итого: заказов %d, выручка $%.2f", orders, revenue));
+    }
+    
+    private class ReportLoader extends SwingWorker<ReportResult, Void> {
+        private final int index;
+        
+        ReportLoader(int index) {
+            this.index = index;
+        }
+        
+        @Override
+        protected ReportResult doInBackground() {
+            return analyticsService.getReport(REPORTS[index]);
+        }
+        
+        @Override
+        protected void done() {
+            if (this != currentLoad) {
+                return;
+            }
+            try {
+                showReport(index, get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                System.err.println("Error loading report: " + e.getCause().getMessage());
+                statusLabel.setText("");
+                JOptionPane.showMessageDialog(AnalyticsPanel.this, "Не удалось построить отчёт!", "Ошибка", JOptionPane.ERROR_MESSAGE);
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,109 @@
+package com.furniture.ui.panels;
+
+import org.bson.types.ObjectId;
+
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.Date;
+
+/**
+ * Type of a table column: how {@link ColumnarTableModel} stores its values and how
+ * {@link TypedCellRenderer} formats them. Values are formatted only when a cell is painted.
+ */
+public enum ColumnType {
+    ID(ObjectId.class),
+    TEXT(String.class),
+    INTEGER(Integer.class),
+    DECIMAL(Double.class),
+    MONEY(Double.class),
+    PERCENT(Double.class),
+    DATE(Date.class);
+    
+    // Shown for missing values, e.g. the cost of an item without a bill of materials
+    static final String MISSING = "—";
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd").withZone(ZoneId.systemDefault());
+    private static final Comparator<Object> TEXT_ORDER = (a, b) -> compareText((String) a, (String) b);
+    private static final Comparator<Object> NUMBER_ORDER = (a, b) -> Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue());
+    private static final Comparator<Object> ID_ORDER = (a, b) -> ((ObjectId) a).compareTo((ObjectId) b);
+    private static final Comparator<Object> DATE_ORDER = (a, b) -> ((Date) a).compareTo((Date) b);
+    
+    private final Class<?> valueClass;
+    
+    ColumnType(Class<?> valueClass) {
+        this.valueClass = valueClass;
+    }
+    
+    public Class<?> getValueClass() {
+        return valueClass;
+    }
+    
+    public boolean isNumeric() {
+        return Number.class.isAssignableFrom(valueClass);
+    }
+    
+    /**
+     * Orders the values of this type for the table's row sorter, which places nulls itself.
+     * Texts are compared ignoring case and with "ё" next to "е", like the search. The sorter's
+     * default Collator is locale-exact but an order of magnitude slower on large tables.
+     */
+    public Comparator<Object> comparator() {
+        switch (this) {
+            case TEXT:
+                return TEXT_ORDER;
+            case ID:
+                return ID_ORDER;
+            case DATE:
+                return DATE_ORDER;
+            default:
+                return NUMBER_ORDER;
+        }
+    }
+    
+    /**
+     * Formats a value of this type for display. Values of other types, e.g. the
+     * placeholder of a page that is still loading, are shown as they are.
+     */
+    public String format(Object value) {
+        if (value == null) {
+            return this == TEXT ? "" : MISSING;
+        }
+        if (!valueClass.isInstance(value)) {
+            return value.toString();
+        }
+        switch (this) {
+            case DECIMAL:
+                return String.format("%.2f", (Double) value);
+            case MONEY:
+                return String.format("$%.2f", (Double) value);
+            case PERCENT:
+                return String.format("%.1f%%", (Double) value);
+            case DATE:
+                return DATE_FORMAT.format(((Date) value).toInstant());
+            default:
+                return value.toString();
+        }
+    }
+    
+    // Allocation-free, since the sorter compares each row many times
+    private static int compareText(String a, String b) {
+        int length = Math.min(a.length(), b.length());
+        for (int i = 0; i < length; i++) {
+            char x = fold(a.charAt(i));
+            char y = fold(b.charAt(i));
+            if (x != y) {
+                return x - y;
+            }
+        }
+        if (a.length() != b.length()) {
+            return a.length() - b.length();
+        }
+        // Equal when folded, still a stable order between "Стол" and "стол"
+        return a.compareTo(b);
+    }
+    
+    private static char fold(char c) {
+        char lower = Character.toLowerCase(c);
+        return lower == 'ё' ? 'е' : lower;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,505 @@
+package com.furniture.ui.panels;
+
+import org.bson.types.ObjectId;
+
+import javax.swing.table.AbstractTableModel;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Read-only table model that stores every column in a typed array instead of a
+ * vector of boxed, pre-formatted values per row.
+ *
+ * Ids take 12 bytes per row, numbers and dates a primitive slot, and repeated
+ * texts such as categories or statuses share one String instance. Values are
+ * only boxed when the table asks for a visible cell, and formatted by
+ * {@link TypedCellRenderer}. Rows are added as Object[] with one value of the
+ * column's type per column, the first column holds the entity id.
+ * Rows are found by id through a hash index over the stored id bytes, built on
+ * the first lookup. Only used on the Event Dispatch Thread.
+ */
+public class ColumnarTableModel extends AbstractTableModel {
+    private static final int INITIAL_CAPACITY = 256;
+    
+    private final String[] columnNames;
+    private final ColumnType[] columnTypes;
+    private final Column[] columns;
+    private int rowCount;
+    private int capacity = INITIAL_CAPACITY;
+    // Open addressing over the rows' ids, a slot holds row + 1 and 0 when empty; null until needed
+    private int[] idSlots;
+    
+    public ColumnarTableModel(String[] columnNames, ColumnType[] columnTypes) {
+        if (columnNames.length != columnTypes.length) {
+            throw new IllegalArgumentException("Expected a type for each of the " + columnNames.length + " columns");
+        }
+        this.columnNames = columnNames;
+        this.columnTypes = columnTypes;
+        this.columns = new Column[columnTypes.length];
+        for (int i = 0; i < columnTypes.length; i++) {
+            columns[i] = createColumn(columnTypes[i], capacity);
+        }
+    }
+    
+    public ColumnType getColumnType(int column) {
+        return columnTypes[column];
+    }
+    
+    /**
+     * Returns the entity id of the row, taken from the first column.
+     */
+    public ObjectId getId(int row) {
+        return (ObjectId) columns[0].get(row);
+    }
+    
+    /**
+     * Returns the index of the row with the given id, or -1.
+     */
+    public int findRow(ObjectId id) {
+        if (idSlots == null) {
+            rebuildIndex();
+        }
+        IdColumn ids = idColumn();
+        byte[] key = id.toByteArray();
+        int mask = idSlots.length - 1;
+        for (int slot = IdColumn.hash(key, 0) & mask; idSlots[slot] != 0; slot = (slot + 1) & mask) {
+            int row = idSlots[slot] - 1;
+            if (ids.matches(row, key)) {
+                return row;
+            }
+        }
+        return -1;
+    }
+    
+    public void addRow(Object[] values) {
+        ensureCapacity(rowCount + 1);
+        setValues(rowCount, values);
+        rowCount++;
+        indexAdded(rowCount - 1);
+        fireTableRowsInserted(rowCount - 1, rowCount - 1);
+    }
+    
+    /**
+     * Appends the rows with a single insert event.
+     */
+    public void addRows(List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        int firstRow = rowCount;
+        ensureCapacity(rowCount + rows.size());
+        for (Object[] values : rows) {
+            setValues(rowCount, values);
+            rowCount++;
+            indexAdded(rowCount - 1);
+        }
+        fireTableRowsInserted(firstRow, rowCount - 1);
+    }
+    
+    public void setRow(int row, Object[] values) {
+        ObjectId previousId = getId(row);
+        setValues(row, values);
+        if (!Objects.equals(previousId, getId(row))) {
+            idSlots = null;
+        }
+        fireTableRowsUpdated(row, row);
+    }
+    
+    public void removeRow(int row) {
+        removeRows(row, row);
+    }
+    
+    /**
+     * Removes the rows from first to last inclusive with a single delete event.
+     */
+    public void removeRows(int firstRow, int lastRow) {
+        int count = lastRow - firstRow + 1;
+        for (Column column : columns) {
+            column.remove(firstRow, count, rowCount);
+        }
+        rowCount -= count;
+        // The following rows moved up, the index is rebuilt on the next lookup
+        idSlots = null;
+        fireTableRowsDeleted(firstRow, lastRow);
+    }
+    
+    public void clear() {
+        capacity = INITIAL_CAPACITY;
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = createColumn(columnTypes[i], capacity);
+        }
+        rowCount = 0;
+        idSlots = null;
+        fireTableDataChanged();
+    }
+    
+    /**
+     * Makes the model hold the given rows while firing events only for what changed, so
+     * the table keeps its selection and scroll position. Rows that are still there keep
+     * their position and are only repainted if a value changed, rows that are gone are
+     * removed, and new rows are appended in the given order.
+     */
+    public void reconcile(List<Object[]> rows) {
+        boolean[] kept = new boolean[rowCount];
+        List<Object[]> added = new ArrayList<>();
+        for (Object[] values : rows) {
+            ObjectId id = getId(values);
+            int row = id != null ? findRow(id) : -1;
+            if (row < 0 || kept[row]) {
+                added.add(values);
+                continue;
+            }
+            kept[row] = true;
+            if (!hasValues(row, values)) {
+                setRow(row, values);
+            }
+        }
+        
+        // From the bottom, so the rows above keep their indexes; one event per run of removed rows
+        int row = kept.length - 1;
+        while (row >= 0) {
+            if (kept[row]) {
+                row--;
+                continue;
+            }
+            int lastRow = row;
+            while (row >= 0 && !kept[row]) {
+                row--;
+            }
+            removeRows(row + 1, lastRow);
+        }
+        addRows(added);
+    }
+    
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+    
+    @Override
+    public int getColumnCount() {
+        return columns.length;
+    }
+    
+    @Override
+    public String getColumnName(int column) {
+        return columnNames[column];
+    }
+    
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return columnTypes[column].getValueClass();
+    }
+    
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+    
+    @Override
+    public Object getValueAt(int row, int column) {
+        return columns[column].get(row);
+    }
+    
+    private void setValues(int row, Object[] values) {
+        for (int i = 0; i < columns.length; i++) {
+            columns[i].set(row, values[i]);
+        }
+    }
+    
+    private boolean hasValues(int row, Object[] values) {
+        for (int i = 0; i < columns.length; i++) {
+            // The stored value is read back, e.g. an id given as a String compares as an ObjectId
+            if (!Objects.equals(columns[i].get(row), normalized(i, values[i]))) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private Object normalized(int column, Object value) {
+        if (value instanceof String && columnTypes[column] == ColumnType.ID) {
+            return new ObjectId((String) value);
+        }
+        if (value instanceof Number && columnTypes[column] == ColumnType.INTEGER) {
+            return ((Number) value).intValue();
+        }
+        if (value instanceof Number && columnTypes[column].isNumeric()) {
+            return ((Number) value).doubleValue();
+        }
+        return value;
+    }
+    
+    private ObjectId getId(Object[] values) {
+        return (ObjectId) normalized(0, values[0]);
+    }
+    
+    private IdColumn idColumn() {
+        return (IdColumn) columns[0];
+    }
+    
+    private void rebuildIndex() {
+        // At most half full, so probe sequences stay short
+        idSlots = new int[Integer.highestOneBit(Math.max(16, capacity) - 1) << 2];
+        for (int row = 0; row < rowCount; row++) {
+            insertIndex(row);
+        }
+    }
+    
+    // Keeps an existing index current, a missing one is built on the next lookup
+    private void indexAdded(int row) {
+        if (idSlots == null) {
+            return;
+        }
+        if (rowCount * 2 > idSlots.length) {
+            rebuildIndex();
+        } else {
+            insertIndex(row);
+        }
+    }
+    
+    private void insertIndex(int row) {
+        IdColumn ids = idColumn();
+        if (!ids.isPresent(row)) {
+            return;
+        }
+        int mask = idSlots.length - 1;
+        int slot = ids.hash(row) & mask;
+        while (idSlots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        idSlots[slot] = row + 1;
+    }
+    
+    private void ensureCapacity(int required) {
+        if (required <= capacity) {
+            return;
+        }
+        capacity = Math.max(required, capacity * 2);
+        for (Column column : columns) {
+            column.grow(capacity);
+        }
+    }
+    
+    private static Column createColumn(ColumnType type, int capacity) {
+        switch (type) {
+            case ID:
+                return new IdColumn(capacity);
+            case TEXT:
+                return new TextColumn(capacity);
+            case INTEGER:
+                return new IntColumn(capacity);
+            case DATE:
+                return new DateColumn(capacity);
+            default:
+                return new DoubleColumn(capacity);
+        }
+    }
+    
+    private abstract static class Column {
+        abstract Object get(int row);
+        
+        abstract void set(int row, Object value);
+        
+        abstract void grow(int capacity);
+        
+        /**
+         * Shifts the rows after the removed ones up by count.
+         */
+        abstract void remove(int row, int count, int rowCount);
+    }
+    
+    private static class IdColumn extends Column {
+        private static final int ID_BYTES = 12;
+        private byte[] bytes;
+        // Rows without an id, all-zero bytes would be a valid id
+        private boolean[] present;
+        
+        IdColumn(int capacity) {
+            bytes = new byte[capacity * ID_BYTES];
+            present = new boolean[capacity];
+        }
+        
+        @Override
+        Object get(int row) {
+            return present[row] ? new ObjectId(ByteBuffer.wrap(bytes, row * ID_BYTES, ID_BYTES)) : null;
+        }
+        
+        boolean isPresent(int row) {
+            return present[row];
+        }
+        
+        // Compares the stored bytes, so no ObjectId is created per probe
+        boolean matches(int row, byte[] key) {
+            int offset = row * ID_BYTES;
+            return present[row] && Arrays.equals(bytes, offset, offset + ID_BYTES, key, 0, ID_BYTES);
+        }
+        
+        int hash(int row) {
+            return hash(bytes, row * ID_BYTES);
+        }
+        
+        static int hash(byte[] idBytes, int offset) {
+            int hash = 1;
+            for (int i = offset; i < offset + ID_BYTES; i++) {
+                hash = 31 * hash + idBytes[i];
+            }
+            // Spreads the bits, the low ones pick the slot
+            return hash * 0x9E3779B9 ^ (hash >>> 16);
+        }
+        
+        @Override
+        void set(int row, Object value) {
+            ObjectId id = value instanceof String ? new ObjectId((String) value) : (ObjectId) value;
+            present[row] = id != null;
+            if (id != null) {
+                System.arraycopy(id.toByteArray(), 0, bytes, row * ID_BYTES, ID_BYTES);
+            }
+        }
+        
+        @Override
+        void grow(int capacity) {
+            bytes = Arrays.copyOf(bytes, capacity * ID_BYTES);
+            present = Arrays.copyOf(present, capacity);
+        }
+        
+        @Override
+        void remove(int row, int count, int rowCount) {
+            System.arraycopy(bytes, (row + count) * ID_BYTES, bytes, row * ID_BYTES, (rowCount - row - count) * ID_BYTES);
+            System.arraycopy(present, row + count, present, row, rowCount - row - count);
+        }
+    }
+    
+    private static class TextColumn extends Column {
+        // Beyond this many distinct values the column is not low-cardinality, stop sharing
+        private static final int MAX_SHARED_VALUES = 4096;
+        private String[] values;
+        private final Map<String, String> shared = new HashMap<>();
+        
+        TextColumn(int capacity) {
+            values = new String[capacity];
+        }
+        
+        @Override
+        Object get(int row) {
+            return values[row];
+        }
+        
+        @Override
+        void set(int row, Object value) {
+            String text = value != null ? value.toString() : null;
+            if (text != null) {
+                String existing = shared.get(text);
+                if (existing != null) {
+                    text = existing;
+                } else if (shared.size() < MAX_SHARED_VALUES) {
+                    shared.put(text, text);
+                }
+            }
+            values[row] = text;
+        }
+        
+        @Override
+        void grow(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+        
+        @Override
+        void remove(int row, int count, int rowCount) {
+            System.arraycopy(values, row + count, values, row, rowCount - row - count);
+            Arrays.fill(values, rowCount - count, rowCount, null);
+        }
+    }
+    
+    private static class IntColumn extends Column {
+        private int[] values;
+        
+        IntColumn(int capacity) {
+            values = new int[capacity];
+        }
+        
+        @Override
+        Object get(int row) {
+            return values[row];
+        }
+        
+        @Override
+        void set(int row, Object value) {
+            values[row] = value != null ? ((Number) value).intValue() : 0;
+        }
+        
+        @Override
+        void grow(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+        
+        @Override
+        void remove(int row, int count, int rowCount) {
+            System.arraycopy(values, row + count, values, row, rowCount - row - count);
+        }
+    }
+    
+    // Decimals, amounts and percentages, NaN stands for a missing value
+    private static class DoubleColumn extends Column {
+        private double[] values;
+        
+        DoubleColumn(int capacity) {
+            values = new double[capacity];
+        }
+        
+        @Override
+        Object get(int row) {
+            return Double.isNaN(values[row]) ? null : values[row];
+        }
+        
+        @Override
+        void set(int row, Object value) {
+            values[row] = value != null ? ((Number) value).doubleValue() : Double.NaN;
+        }
+        
+        @Override
+        void grow(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+        
+        @Override
+        void remove(int row, int count, int rowCount) {
+            System.arraycopy(values, row + count, values, row, rowCount - row - count);
+        }
+    }
+    
+    // Epoch milliseconds, Long.MIN_VALUE stands for a missing date
+    private static class DateColumn extends Column {
+        private long[] values;
+        
+        DateColumn(int capacity) {
+            values = new long[capacity];
+        }
+        
+        @Override
+        Object get(int row) {
+            return values[row] == Long.MIN_VALUE ? null : new Date(values[row]);
+        }
+        
+        @Override
+        void set(int row, Object value) {
+            values[row] = value != null ? ((Date) value).getTime() : Long.MIN_VALUE;
+        }
+        
+        @Override
+        void grow(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+        
+        @Override
+        void remove(int row, int count, int rowCount) {
+            System.arraycopy(values, row + count, values, row, rowCount - row - count);
+        }
+    }
+}
\ No newline at end of file
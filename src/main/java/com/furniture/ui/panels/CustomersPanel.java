@@ -1,5 +1,7 @@
 package com.furniture.ui.panels;
 
+import com.furniture.io.CustomerRecordMapper;
+import com.furniture.io.Exports;
 import com.furniture.model.Customer;
 import com.furniture.repository.CustomerRepository;
 import org.bson.types.ObjectId;
@@ -10,7 +12,10 @@ import java.util.List;
 
 public class CustomersPanel extends EntityPanel {
     private static final String[] COLUMN_NAMES = {"ID", "Имя", "Email", "Телефон", "Адрес"};
-    private static final String[] SEARCH_FIELDS = {"Имя", "Email"};
+    private static final ColumnType[] COLUMN_TYPES = {
+        ColumnType.ID, ColumnType.TEXT, ColumnType.TEXT, ColumnType.TEXT, ColumnType.TEXT
+    };
+    private static final String[] SEARCH_FIELDS = {"Имя", "Email", "Слова"};
     private static final String[] SORT_FIELDS = {"Имя", "Email"};
     
     private CustomerRepository customerRepository;
@@ -18,6 +23,8 @@ public class CustomersPanel extends EntityPanel {
     public CustomersPanel() {
         super();
         customerRepository = new CustomerRepository();
+        enableImport(new CustomerRecordMapper(), customerRepository::addAll);
+        enableExport(Exports.customers(customerRepository));
     }
     
     @Override
@@ -25,6 +32,11 @@ public class CustomersPanel extends EntityPanel {
         return COLUMN_NAMES;
     }
     
+    @Override
+    protected ColumnType[] getColumnTypes() {
+        return COLUMN_TYPES;
+    }
+    
     @Override
     protected String[] getSearchFieldNames() {
         return SEARCH_FIELDS;
@@ -37,12 +49,16 @@ public class CustomersPanel extends EntityPanel {
     
     @Override
     protected void refreshData() {
-        clearTable();
-        List<Customer> customers = customerRepository.getAllCustomers();
-        
-        for (Customer customer : customers) {
-            addCustomerToTable(customer);
+        loadRows(LoadKind.REFRESH, sink ->
+                customerRepository.forEachCustomer(customer -> sink.accept(customerToRow(customer))));
+    }
+    
+    @Override
+    protected int getPrefixSearchColumn(String searchType, String searchText) {
+        if ("Имя".equals(searchType)) {
+            return 1;
         }
+        return "Email".equals(searchType) ? 2 : -1;
     }
     
     @Override
@@ -53,19 +69,21 @@ public class CustomersPanel extends EntityPanel {
             return;
         }
         
-        clearTable();
-        List<Customer> customers;
-        
         String searchType = (String) searchTypeComboBox.getSelectedItem();
-        if ("Имя".equals(searchType)) {
-            customers = customerRepository.findCustomersByName(searchText);
-        } else { // Email
-            customers = customerRepository.findCustomersByEmail(searchText);
-        }
-        
-        for (Customer customer : customers) {
-            addCustomerToTable(customer);
-        }
+        loadRows(LoadKind.SEARCH, sink -> {
+            List<Customer> customers;
+            if ("Имя".equals(searchType)) {
+                customers = customerRepository.findCustomersByName(searchText);
+            } else if ("Email".equals(searchType)) {
+                customers = customerRepository.findCustomersByEmail(searchText);
+            } else { // Слова
+                customers = customerRepository.searchCustomers(searchText);
+            }
+            
+            for (Customer customer : customers) {
+                sink.accept(customerToRow(customer));
+            }
+        });
     }
     
     @Override
@@ -111,11 +129,11 @@ public class CustomersPanel extends EntityPanel {
             }
             
             Customer customer = new Customer(name, email, phone, address);
-            boolean success = customerRepository.addCustomer(customer);
+            Customer added = customerRepository.addCustomer(customer);
             
-            if (success) {
+            if (added != null) {
                 dialog.dispose();
-                refreshData();
+                rowInserted(added.getId(), customerToRow(added));
             } else {
                 JOptionPane.showMessageDialog(dialog, "Не удалось добавить клиента!", "Ошибка", JOptionPane.ERROR_MESSAGE);
             }
@@ -136,8 +154,7 @@ public class CustomersPanel extends EntityPanel {
             return;
         }
         
-        String idString = (String) tableModel.getValueAt(selectedRow, 0);
-        ObjectId id = new ObjectId(idString);
+        ObjectId id = tableModel.getId(selectedRow);
         
         int confirm = JOptionPane.showConfirmDialog(this, 
                 "Вы уверены, что хотите удалить этого клиента?", 
@@ -148,42 +165,45 @@ public class CustomersPanel extends EntityPanel {
             boolean success = customerRepository.deleteCustomer(id);
             
             if (success) {
-                refreshData();
+                rowDeleted(id);
             } else {
                 JOptionPane.showMessageDialog(this, "Не удалось удалить клиента!", "Ошибка", JOptionPane.ERROR_MESSAGE);
             }
         }
     }
     
+    @Override
+    protected void watchChanges() {
+        customerRepository.watchCustomers(liveRows(this::customerToRow));
+    }
+    
     @Override
     protected void sortData() {
         String sortField = (String) sortFieldComboBox.getSelectedItem();
         boolean ascending = "По возрастанию".equals(sortOrderComboBox.getSelectedItem());
         
-        clearTable();
-        
         String fieldName;
+        int column;
         if ("Имя".equals(sortField)) {
             fieldName = "name";
+            column = 1;
         } else { // Email
             fieldName = "email";
+            column = 2;
         }
         
-        List<Customer> customers = customerRepository.getSortedCustomers(fieldName, ascending);
-        
-        for (Customer customer : customers) {
-            addCustomerToTable(customer);
-        }
+        sortRows(column, ascending, () -> loadRows(LoadKind.SORT, sink ->
+                customerRepository.forEachSortedCustomer(fieldName, ascending, customer -> sink.accept(customerToRow(customer)))));
     }
     
-    private void addCustomerToTable(Customer customer) {
+    private Object[] customerToRow(Customer customer) {
         Object[] rowData = {
-            customer.getId().toString(),
+            customer.getId(),
             customer.getName(),
             customer.getEmail(),
             customer.getPhone(),
             customer.getAddress()
         };
-        tableModel.addRow(rowData);
+        return rowData;
     }
 } 
\ No newline at end of file
@@ -1,24 +1,90 @@
 package com.furniture.ui.panels;
 
+import com.furniture.db.BulkWriteReport;
+import com.furniture.db.ChangeEvent;
+import com.furniture.io.ExportResult;
+import com.furniture.io.ImportPipeline;
+import com.furniture.io.ImportProgress;
+import com.furniture.io.ImportResult;
+import com.furniture.io.RecordMapper;
+import com.furniture.io.StreamingExporter;
+import org.bson.types.ObjectId;
+
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.swing.table.TableRowSorter;
 import java.awt.*;
-import java.util.Vector;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 public abstract class EntityPanel extends JPanel {
+    // Single loader thread, so pages of a paged table are fetched in scroll order
+    private static final ExecutorService PAGE_LOADER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "page-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Queries block on the network, so every load gets its own virtual thread
+    private static final ExecutorService DATA_LOADER = Executors.newVirtualThreadPerTaskExecutor();
+    protected static final int ROW_CHUNK_SIZE = 500;
+    // Pause in typing after which the search runs
+    private static final int SEARCH_DELAY_MILLIS = 300;
+    // Changes to a paged table within this time cause one reload
+    private static final int PAGED_RELOAD_DELAY_MILLIS = 500;
+    private static final int CACHED_SEARCHES = 16;
+    private static final long SEARCH_CACHE_TTL_MILLIS = 30_000;
+    // Larger results are not cached, filtering them would not be cheaper than the query
+    private static final int MAX_CACHED_SEARCH_ROWS = 10_000;
+    
+    protected enum LoadKind { REFRESH, SEARCH, SORT }
+    
+    /**
+     * Background query that pushes table rows into the sink as soon as they are built.
+     */
+    @FunctionalInterface
+    protected interface RowQuery {
+        void run(Consumer<Object[]> sink) throws Exception;
+    }
+    
     protected JTable table;
-    protected DefaultTableModel tableModel;
+    protected ColumnarTableModel tableModel;
+    private PagingTableModel pagingTableModel;
     protected JTextField searchField;
     protected JComboBox<String> searchTypeComboBox;
     protected JComboBox<String> sortFieldComboBox;
     protected JButton addButton;
+    protected JButton importButton;
+    protected JButton exportButton;
     protected JButton deleteButton;
     protected JButton searchButton;
     protected JButton refreshButton;
     protected JComboBox<String> sortOrderComboBox;
     protected JButton sortButton;
+    protected JLabel loadingLabel;
+    private JPanel buttonPanel;
+    private RowLoader currentLoad;
+    private LoadKind lastLoadKind;
+    // Whether the table holds the complete result of the last load, so it can be sorted in memory
+    private boolean allRowsLoaded;
+    private ImportPipeline<?> importPipeline;
+    private StreamingExporter<?> exporter;
+    private boolean importing;
+    private final SearchResultCache searchCache = new SearchResultCache(CACHED_SEARCHES, SEARCH_CACHE_TTL_MILLIS);
+    private Timer searchTimer;
+    private Timer pagedReloadTimer;
+    // Told once when the first load has put rows on screen, see initialize(Runnable)
+    private Runnable firstRowsListener;
     
     public EntityPanel() {
         setLayout(new BorderLayout());
@@ -27,7 +93,25 @@ public abstract class EntityPanel extends JPanel {
     }
     
     public void initialize() {
+        initialize(null);
+    }
+    
+    /**
+     * Starts loading the panel's data. The listener, if any, is called on the Event
+     * Dispatch Thread once the first rows are on screen, or the first load ended without any.
+     */
+    public void initialize(Runnable onFirstRows) {
+        firstRowsListener = onFirstRows;
         refreshData();
+        watchChanges();
+    }
+    
+    private void firstRowsShown() {
+        if (firstRowsListener != null) {
+            Runnable listener = firstRowsListener;
+            firstRowsListener = null;
+            listener.run();
+        }
     }
     
     protected void initComponents() {
@@ -40,6 +124,14 @@ public abstract class EntityPanel extends JPanel {
         searchField = new JTextField(20);
         searchTypeComboBox = new JComboBox<>(getSearchFieldNames());
         searchButton = new JButton("Поиск");
+        searchTimer = new Timer(SEARCH_DELAY_MILLIS, e -> runSearch());
+        searchTimer.setRepeats(false);
+        pagedReloadTimer = new Timer(PAGED_RELOAD_DELAY_MILLIS, e -> {
+            if (pagingTableModel != null) {
+                pagingTableModel.reload();
+            }
+        });
+        pagedReloadTimer.setRepeats(false);
         refreshButton = new JButton("Обновить");
         searchPanel.add(new JLabel("Искать по:"));
         searchPanel.add(searchTypeComboBox);
@@ -49,9 +141,16 @@ public abstract class EntityPanel extends JPanel {
         topPanel.add(searchPanel, BorderLayout.WEST);
         
         // Button panel
-        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
         addButton = new JButton("Добавить");
         deleteButton = new JButton("Удалить");
+        importButton = new JButton("Импорт...");
+        // Only shown by panels that call enableImport
+        importButton.setVisible(false);
+        exportButton = new JButton("Экспорт...");
+        exportButton.setVisible(false);
+        buttonPanel.add(importButton);
+        buttonPanel.add(exportButton);
         buttonPanel.add(addButton);
         buttonPanel.add(deleteButton);
         topPanel.add(buttonPanel, BorderLayout.EAST);
@@ -62,7 +161,8 @@ public abstract class EntityPanel extends JPanel {
         tableModel = createTableModel();
         table = new JTable(tableModel);
         table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
-        table.setAutoCreateRowSorter(true);
+        table.setRowSorter(createRowSorter());
+        installRenderers();
         
         JScrollPane scrollPane = new JScrollPane(table);
         add(scrollPane, BorderLayout.CENTER);
@@ -80,19 +180,60 @@ public abstract class EntityPanel extends JPanel {
         bottomPanel.add(sortOrderComboBox);
         bottomPanel.add(sortButton);
         
+        loadingLabel = new JLabel();
+        bottomPanel.add(loadingLabel);
+        
         add(bottomPanel, BorderLayout.SOUTH);
     }
     
     protected void initEventListeners() {
-        searchButton.addActionListener(e -> searchData());
-        refreshButton.addActionListener(e -> refreshData());
+        searchButton.addActionListener(e -> runSearch());
+        searchField.addActionListener(e -> runSearch());
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                searchTextChanged();
+            }
+            
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                searchTextChanged();
+            }
+            
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+            }
+        });
+        searchTypeComboBox.addActionListener(e -> {
+            if (!searchField.getText().trim().isEmpty()) {
+                searchTextChanged();
+            }
+        });
+        refreshButton.addActionListener(e -> requestRefresh());
         addButton.addActionListener(e -> showAddDialog());
+        importButton.addActionListener(e -> importFile());
+        exportButton.addActionListener(e -> exportFile());
         deleteButton.addActionListener(e -> deleteSelectedEntity());
         sortButton.addActionListener(e -> sortData());
     }
     
     protected abstract String[] getColumnNames();
     
+    /**
+     * Types of the columns named by {@link #getColumnNames()}, the first column is the entity id.
+     * Rows hold values of these types, they are formatted when the cells are painted.
+     */
+    protected abstract ColumnType[] getColumnTypes();
+    
+    /**
+     * Column whose value starts with the search text in every result row of the given
+     * search, ignoring case, or -1 if the results of a longer text are not a subset of
+     * these (e.g. exact or word matches). Lets a refined search filter cached rows.
+     */
+    protected int getPrefixSearchColumn(String searchType, String searchText) {
+        return -1;
+    }
+    
     protected abstract String[] getSearchFieldNames();
     
     protected abstract String[] getSortFieldNames();
@@ -107,17 +248,524 @@ public abstract class EntityPanel extends JPanel {
     
     protected abstract void sortData();
     
-    protected DefaultTableModel createTableModel() {
-        return new DefaultTableModel(getColumnNames(), 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
+    /**
+     * Subscribes to the change stream of the panel's collection, see {@link #liveRows(Function)}.
+     */
+    protected void watchChanges() {
+    }
+    
+    protected ColumnarTableModel createTableModel() {
+        return new ColumnarTableModel(getColumnNames(), getColumnTypes());
+    }
+    
+    private TableRowSorter<ColumnarTableModel> createRowSorter() {
+        TableRowSorter<ColumnarTableModel> sorter = new TableRowSorter<>(tableModel);
+        ColumnType[] columnTypes = getColumnTypes();
+        for (int column = 0; column < columnTypes.length; column++) {
+            sorter.setComparator(column, columnTypes[column].comparator());
+        }
+        return sorter;
+    }
+    
+    /**
+     * Sorts by the column in memory when the table holds the whole result set, which
+     * needs no query. Otherwise, e.g. for a paged table or while rows are still
+     * loading, runs the given server-side sort, which is backed by an index.
+     */
+    protected void sortRows(int column, boolean ascending, Runnable serverSort) {
+        RowSorter<?> sorter = table.getRowSorter();
+        if (sorter != null && allRowsLoaded) {
+            sorter.setSortKeys(List.of(new RowSorter.SortKey(column, ascending ? SortOrder.ASCENDING : SortOrder.DESCENDING)));
+            return;
+        }
+        if (sorter != null) {
+            // Show the rows in the order the server returns them
+            sorter.setSortKeys(null);
+        }
+        serverSort.run();
+    }
+    
+    // Setting a model recreates the columns, so this runs after every switch of models
+    private void installRenderers() {
+        ColumnType[] columnTypes = getColumnTypes();
+        for (int column = 0; column < columnTypes.length; column++) {
+            table.getColumnModel().getColumn(column).setCellRenderer(new TypedCellRenderer(columnTypes[column]));
+        }
+    }
+    
+    /**
+     * Runs the search for the text in the search field, from the result cache if possible.
+     */
+    private void runSearch() {
+        searchTimer.stop();
+        String searchText = searchField.getText().trim();
+        String searchType = (String) searchTypeComboBox.getSelectedItem();
+        if (!searchText.isEmpty()) {
+            List<Object[]> cached = searchCache.get(searchType, searchText, getPrefixSearchColumn(searchType, searchText));
+            if (cached != null) {
+                showRows(LoadKind.SEARCH, cached);
+                return;
+            }
+        }
+        searchData();
+    }
+    
+    /**
+     * Called on every edit of the search text: a running search is outdated, and the new
+     * search starts once the user pauses typing.
+     */
+    private void searchTextChanged() {
+        if (currentLoad != null && currentLoad.kind == LoadKind.SEARCH) {
+            cancelLoad();
+        }
+        searchTimer.restart();
+    }
+    
+    /**
+     * Refreshes the table unless a refresh is already running, so repeated clicks
+     * on the refresh button end up as a single load.
+     */
+    protected void requestRefresh() {
+        if (currentLoad != null && !currentLoad.isDone() && currentLoad.kind == LoadKind.REFRESH) {
+            return;
+        }
+        refreshData();
+    }
+    
+    /**
+     * Clears the table and runs the query off the Event Dispatch Thread.
+     * Rows are appended in chunks while the query is still running. A load that is
+     * still in progress is cancelled, since its rows would be replaced anyway.
+     *
+     * Refreshing a table that already holds all rows keeps it on screen instead: the
+     * rows are collected and reconciled with the table at the end, so only changed rows
+     * are repainted and the selection and scroll position stay where they were.
+     */
+    protected void loadRows(LoadKind kind, RowQuery query) {
+        cancelLoad();
+        boolean reconcile = kind == LoadKind.REFRESH && lastLoadKind == LoadKind.REFRESH
+                && allRowsLoaded && pagingTableModel == null;
+        if (!reconcile) {
+            clearTable();
+        }
+        if (kind != LoadKind.SEARCH) {
+            // Refreshes follow changes to the data, earlier search results may be outdated
+            searchCache.clear();
+        }
+        
+        currentLoad = new RowLoader(kind, query, reconcile);
+        lastLoadKind = kind;
+        loadingLabel.setText("Загрузка...");
+        DATA_LOADER.execute(currentLoad);
+    }
+    
+    protected void cancelLoad() {
+        if (currentLoad != null) {
+            currentLoad.cancel(true);
+            currentLoad = null;
+            loadingLabel.setText("");
+        }
+    }
+    
+    /**
+     * Feeds the items produced by the source to the chunk action in lists of
+     * {@link #ROW_CHUNK_SIZE}, e.g. to resolve references once per chunk of streamed rows.
+     */
+    protected static <T> void forEachChunk(Consumer<Consumer<T>> source, Consumer<List<T>> chunkAction) {
+        List<T> chunk = new ArrayList<>(ROW_CHUNK_SIZE);
+        source.accept(item -> {
+            chunk.add(item);
+            if (chunk.size() == ROW_CHUNK_SIZE) {
+                chunkAction.accept(new ArrayList<>(chunk));
+                chunk.clear();
             }
+        });
+        if (!chunk.isEmpty()) {
+            chunkAction.accept(chunk);
+        }
+    }
+    
+    /**
+     * Adds a panel specific action to the buttons at the top, before the import button.
+     */
+    protected void addToolbarButton(JButton button) {
+        buttonPanel.add(button, 0);
+        buttonPanel.revalidate();
+    }
+    
+    /**
+     * Shows the import button, files are imported through the given mapper and bulk writer.
+     */
+    protected <T> void enableImport(RecordMapper<T> mapper, Function<List<T>, BulkWriteReport> writer) {
+        importPipeline = new ImportPipeline<>(mapper, writer);
+        importButton.setVisible(true);
+    }
+    
+    /**
+     * Asks for a CSV or JSON Lines file and imports it in the background.
+     * Live updates are paused meanwhile, the table is reloaded once at the end.
+     */
+    protected void importFile() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(new FileNameExtensionFilter("CSV и JSON Lines", "csv", "jsonl", "ndjson"));
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        
+        cancelLoad();
+        importing = true;
+        importButton.setEnabled(false);
+        loadingLabel.setText("Импорт...");
+        new ImportWorker(chooser.getSelectedFile().toPath()).execute();
+    }
+    
+    /**
+     * Shows the export button, the whole collection is written by the given exporter.
+     */
+    protected void enableExport(StreamingExporter<?> exporter) {
+        this.exporter = exporter;
+        exportButton.setVisible(true);
+    }
+    
+    /**
+     * Asks for a target file and exports the collection in the background.
+     * The format follows the extension, CSV unless it is .jsonl.
+     */
+    protected void exportFile() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(new FileNameExtensionFilter("CSV и JSON Lines", "csv", "jsonl", "ndjson"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        
+        Path file = chooser.getSelectedFile().toPath();
+        if (!file.getFileName().toString().contains(".")) {
+            file = file.resolveSibling(file.getFileName() + ".csv");
+        }
+        exportButton.setEnabled(false);
+        loadingLabel.setText("Экспорт...");
+        new ExportWorker(file).execute();
+    }
+    
+    /**
+     * Returns a change stream listener that builds the row for a changed entity on
+     * the watcher thread and applies it to the table on the Event Dispatch Thread.
+     */
+    protected <T> Consumer<ChangeEvent<T>> liveRows(Function<T, Object[]> toRow) {
+        return change -> {
+            Object[] row = change.getEntity() != null ? toRow.apply(change.getEntity()) : null;
+            SwingUtilities.invokeLater(() -> applyChange(change.getType(), change.getId(), row));
         };
     }
     
+    /**
+     * Shows an entity this client just inserted without reloading the table. The change
+     * stream reports the same insert later, which then finds the row and updates it in place.
+     */
+    protected void rowInserted(ObjectId id, Object[] row) {
+        applyChange(ChangeEvent.Type.INSERT, id, row);
+    }
+    
+    /**
+     * Removes an entity this client just deleted without reloading the table.
+     */
+    protected void rowDeleted(ObjectId id) {
+        applyChange(ChangeEvent.Type.DELETE, id, null);
+    }
+    
+    /**
+     * Applies a change made by any client to the rows on screen without reloading them.
+     * The first column of every row holds the entity id. Search results only get
+     * updates and deletes, since a new entity may not match the search. A paged
+     * table cannot place a row without the server, so it reloads the visible pages,
+     * at most once per {@link #PAGED_RELOAD_DELAY_MILLIS}. Changes that arrive while
+     * rows are loading are applied once the load is done, since the cursor may have
+     * passed the changed entity already.
+     */
+    protected void applyChange(ChangeEvent.Type type, ObjectId id, Object[] row) {
+        searchCache.clear();
+        // The table is reloaded after the import instead of applying every inserted row
+        if (importing) {
+            return;
+        }
+        if (pagingTableModel != null) {
+            // A burst of writes, e.g. an import by another client, becomes one reload; the timer
+            // is not restarted, so a steady stream of changes still shows every half second
+            if (!pagedReloadTimer.isRunning()) {
+                pagedReloadTimer.start();
+            }
+            return;
+        }
+        if (currentLoad != null && !currentLoad.isDone()) {
+            currentLoad.changesDuringLoad.add(() -> applyChange(type, id, row));
+            return;
+        }
+        
+        int modelRow = tableModel.findRow(id);
+        if (type == ChangeEvent.Type.DELETE) {
+            if (modelRow >= 0) {
+                tableModel.removeRow(modelRow);
+            }
+        } else if (modelRow >= 0) {
+            tableModel.setRow(modelRow, row);
+        } else if (lastLoadKind != LoadKind.SEARCH) {
+            tableModel.addRow(row);
+        }
+    }
+    
+    /**
+     * Replaces the rows on screen whose id is a key of the map, e.g. after a value derived
+     * from another collection changed. Rows that are not shown are ignored.
+     */
+    protected void updateRows(Map<ObjectId, Object[]> rowsById) {
+        searchCache.clear();
+        if (importing || pagingTableModel != null) {
+            return;
+        }
+        if (currentLoad != null && !currentLoad.isDone()) {
+            currentLoad.changesDuringLoad.add(() -> updateRows(rowsById));
+            return;
+        }
+        
+        for (Map.Entry<ObjectId, Object[]> entry : rowsById.entrySet()) {
+            int modelRow = tableModel.findRow(entry.getKey());
+            if (modelRow >= 0) {
+                tableModel.setRow(modelRow, entry.getValue());
+            }
+        }
+    }
+    
+    private void showRows(LoadKind kind, List<Object[]> rows) {
+        cancelLoad();
+        clearTable();
+        lastLoadKind = kind;
+        tableModel.addRows(rows);
+        allRowsLoaded = true;
+        firstRowsShown();
+    }
+    
+    private class RowLoader extends SwingWorker<Void, Object[]> {
+        private final LoadKind kind;
+        private final RowQuery query;
+        // The search the rows belong to, for the result cache
+        private final String searchType;
+        private final String searchText;
+        private final int prefixColumn;
+        private final List<Object[]> searchRows = new ArrayList<>();
+        // Rows are collected and reconciled with the table at the end instead of appended
+        private final boolean reconcile;
+        private final List<Object[]> reconciledRows = new ArrayList<>();
+        // Changes seen while loading, applied after the rows are in; touched only on the EDT
+        private final List<Runnable> changesDuringLoad = new ArrayList<>();
+        private int rowCount;
+        
+        RowLoader(LoadKind kind, RowQuery query, boolean reconcile) {
+            this.kind = kind;
+            this.query = query;
+            this.reconcile = reconcile;
+            this.searchType = (String) searchTypeComboBox.getSelectedItem();
+            this.searchText = searchField.getText().trim();
+            this.prefixColumn = kind == LoadKind.SEARCH ? getPrefixSearchColumn(searchType, searchText) : -1;
+        }
+        
+        @Override
+        protected Void doInBackground() throws Exception {
+            query.run(row -> {
+                if (isCancelled()) {
+                    // Stops the query, the cursor is closed on the way out
+                    throw new CancellationException();
+                }
+                if (kind == LoadKind.SEARCH && searchRows.size() <= MAX_CACHED_SEARCH_ROWS) {
+                    searchRows.add(row);
+                }
+                if (reconcile) {
+                    reconciledRows.add(row);
+                } else {
+                    publish(row);
+                }
+            });
+            return null;
+        }
+        
+        @Override
+        protected void process(List<Object[]> rows) {
+            if (this != currentLoad) {
+                return;
+            }
+            // One event per chunk instead of one per row
+            tableModel.addRows(rows);
+            rowCount += rows.size();
+            loadingLabel.setText("Загрузка... " + rowCount);
+            firstRowsShown();
+        }
+        
+        @Override
+        protected void done() {
+            if (this != currentLoad) {
+                return;
+            }
+            loadingLabel.setText("");
+            firstRowsShown();
+            try {
+                get();
+                if (reconcile) {
+                    tableModel.reconcile(reconciledRows);
+                }
+                allRowsLoaded = true;
+                if (kind == LoadKind.SEARCH && searchRows.size() <= MAX_CACHED_SEARCH_ROWS) {
+                    searchCache.put(searchType, searchText, prefixColumn, searchRows);
+                }
+            } catch (CancellationException | InterruptedException e) {
+                // Superseded by a newer load
+            } catch (ExecutionException e) {
+                System.err.println("Error loading data: " + e.getCause().getMessage());
+                JOptionPane.showMessageDialog(EntityPanel.this, "Не удалось загрузить данные!", "Ошибка", JOptionPane.ERROR_MESSAGE);
+            }
+            changesDuringLoad.forEach(Runnable::run);
+        }
+    }
+    
+    private class ImportWorker extends SwingWorker<ImportResult, ImportProgress> {
+        private final Path file;
+        
+        ImportWorker(Path file) {
+            this.file = file;
+        }
+        
+        @Override
+        protected ImportResult doInBackground() {
+            return importPipeline.run(file, this::publish);
+        }
+        
+        @Override
+        protected void process(List<ImportProgress> progress) {
+            ImportProgress last = progress.get(progress.size() - 1);
+            loadingLabel.setText("Импорт: " + last.getPercent() + "%, добавлено " + last.getImported()
+                    + ", отклонено " + last.getRejected());
+        }
+        
+        @Override
+        protected void done() {
+            importing = false;
+            importButton.setEnabled(true);
+            loadingLabel.setText("");
+            refreshData();
+            
+            ImportResult result;
+            try {
+                result = get();
+            } catch (CancellationException | InterruptedException e) {
+                return;
+            } catch (ExecutionException e) {
+                System.err.println("Error importing " + file + ": " + e.getCause().getMessage());
+                JOptionPane.showMessageDialog(EntityPanel.this, "Не удалось импортировать файл!", "Ошибка", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            System.out.println(result);
+            
+            String message = "Добавлено: " + result.getImported() + "\nОтклонено: " + result.getRejected();
+            if (result.getRejectsFile() != null) {
+                message += "\nОтклонённые строки: " + result.getRejectsFile();
+            }
+            if (result.isCompleted()) {
+                JOptionPane.showMessageDialog(EntityPanel.this, message, "Импорт завершён", JOptionPane.INFORMATION_MESSAGE);
+            } else {
+                JOptionPane.showMessageDialog(EntityPanel.this, "Импорт прерван: " + result.getError() + "\n" + message,
+                        "Ошибка", JOptionPane.ERROR_MESSAGE);
+            }
+        }
+    }
+    
+    private class ExportWorker extends SwingWorker<ExportResult, Long> {
+        private final Path file;
+        
+        ExportWorker(Path file) {
+            this.file = file;
+        }
+        
+        @Override
+        protected ExportResult doInBackground() throws Exception {
+            return exporter.export(file, this::publish);
+        }
+        
+        @Override
+        protected void process(List<Long> progress) {
+            loadingLabel.setText("Экспорт: " + progress.get(progress.size() - 1));
+        }
+        
+        @Override
+        protected void done() {
+            exportButton.setEnabled(true);
+            loadingLabel.setText("");
+            try {
+                ExportResult result = get();
+                System.out.println(result);
+                JOptionPane.showMessageDialog(EntityPanel.this, "Выгружено записей: " + result.getRecords() + "\n" + file,
+                        "Экспорт завершён", JOptionPane.INFORMATION_MESSAGE);
+            } catch (CancellationException | InterruptedException e) {
+                // Nothing was written
+            } catch (ExecutionException e) {
+                System.err.println("Error exporting to " + file + ": " + e.getCause().getMessage());
+                JOptionPane.showMessageDialog(EntityPanel.this, "Не удалось выгрузить данные!", "Ошибка", JOptionPane.ERROR_MESSAGE);
+            }
+        }
+    }
+    
     protected void clearTable() {
-        tableModel.setRowCount(0);
+        if (pagingTableModel != null) {
+            pagingTableModel.dispose();
+            pagingTableModel = null;
+            table.setModel(tableModel);
+            table.setRowSorter(createRowSorter());
+            installRenderers();
+        }
+        tableModel.clear();
+        allRowsLoaded = false;
+    }
+    
+    /**
+     * Replaces the table contents with a lazily paged view over the given loader.
+     * Client-side sorting is switched off while paging, since it would need every row;
+     * the order comes from the loader instead. {@link #clearTable()} switches back.
+     */
+    protected void showPagedData(PagingTableModel.PageLoader loader) {
+        cancelLoad();
+        clearTable();
+        pagingTableModel = new PagingTableModel(getColumnNames(), loader, PAGE_LOADER);
+        table.setRowSorter(null);
+        table.setModel(pagingTableModel);
+        installRenderers();
+        PagingTableModel pagedModel = pagingTableModel;
+        // Events follow the count and every page; the first page or an empty table means rows are
+        // shown. A hidden table requests no pages, for it the count is all there is to prefetch.
+        pagedModel.addTableModelListener(e -> {
+            if (pagedModel.getRowCount() == 0 || pagedModel.isRowLoaded(0) || !table.isShowing()) {
+                firstRowsShown();
+            }
+        });
+        pagingTableModel.load();
+    }
+    
+    /**
+     * Returns a cell of the model currently shown in the table, or null while the row is still loading.
+     */
+    protected Object getModelValueAt(int modelRow, int column) {
+        if (pagingTableModel != null && !pagingTableModel.isRowLoaded(modelRow)) {
+            return null;
+        }
+        return table.getModel().getValueAt(modelRow, column);
+    }
+    
+    /**
+     * Returns the id of the selected entity, or null if no row is selected or it is still loading.
+     */
+    protected ObjectId getSelectedId() {
+        int selectedRow = getSelectedRow();
+        if (selectedRow == -1) {
+            return null;
+        }
+        Object id = getModelValueAt(selectedRow, 0);
+        return id instanceof ObjectId ? (ObjectId) id : null;
     }
     
     protected int getSelectedRow() {
@@ -2,21 +2,28 @@ package com.furniture.ui.panels;
 
 import com.furniture.model.Furniture;
 import com.furniture.model.FurnitureDetails;
+import com.furniture.model.FurnitureDetailsSummary;
 import com.furniture.model.FurnitureDetails.MaterialUsage;
 import com.furniture.model.Material;
 import com.furniture.repository.FurnitureDetailsRepository;
 import com.furniture.repository.FurnitureRepository;
 import com.furniture.repository.MaterialRepository;
+import com.furniture.repository.ReferenceResolver;
 import org.bson.types.ObjectId;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 
 public class FurnitureDetailsPanel extends EntityPanel {
-    private static final String[] COLUMN_NAMES = {"ID", "Мебель", "Размеры", "Вес", "Используемые материалы"};
+    private static final String[] COLUMN_NAMES = {"ID", "Мебель", "Размеры", "Вес, кг", "Используемые материалы"};
+    private static final ColumnType[] COLUMN_TYPES = {
+        ColumnType.ID, ColumnType.TEXT, ColumnType.TEXT, ColumnType.DECIMAL, ColumnType.INTEGER
+    };
     private static final String[] SEARCH_FIELDS = {"Мебель"};
     private static final String[] SORT_FIELDS = {"Вес"};
     
@@ -36,6 +43,11 @@ public class FurnitureDetailsPanel extends EntityPanel {
         return COLUMN_NAMES;
     }
     
+    @Override
+    protected ColumnType[] getColumnTypes() {
+        return COLUMN_TYPES;
+    }
+    
     @Override
     protected String[] getSearchFieldNames() {
         return SEARCH_FIELDS;
@@ -48,12 +60,14 @@ public class FurnitureDetailsPanel extends EntityPanel {
     
     @Override
     protected void refreshData() {
-        clearTable();
-        List<FurnitureDetails> detailsList = furnitureDetailsRepository.getAllFurnitureDetails();
-        
-        for (FurnitureDetails details : detailsList) {
-            addFurnitureDetailsToTable(details);
-        }
+        loadRows(LoadKind.REFRESH, sink -> forEachChunk(furnitureDetailsRepository::forEachFurnitureDetailsSummary,
+                chunk -> emitFurnitureDetailsRows(chunk, sink)));
+    }
+    
+    @Override
+    protected int getPrefixSearchColumn(String searchType, String searchText) {
+        // A valid id is looked up as a furniture id rather than a name prefix
+        return ObjectId.isValid(searchText) ? -1 : 1;
     }
     
     @Override
@@ -64,25 +78,28 @@ public class FurnitureDetailsPanel extends EntityPanel {
             return;
         }
         
-        clearTable();
-        
-        try {
-            // Try to find by furniture ID
-            ObjectId furnitureId = new ObjectId(searchText);
-            FurnitureDetails details = furnitureDetailsRepository.getFurnitureDetailsByFurnitureId(furnitureId);
-            if (details != null) {
-                addFurnitureDetailsToTable(details);
-            }
-        } catch (Exception e) {
-            // Try to find by furniture name
-            List<Furniture> furnitureList = furnitureRepository.findFurnitureByName(searchText);
-            for (Furniture furniture : furnitureList) {
-                FurnitureDetails details = furnitureDetailsRepository.getFurnitureDetailsByFurnitureId(furniture.getId());
-                if (details != null) {
-                    addFurnitureDetailsToTable(details);
+        loadRows(LoadKind.SEARCH, sink -> {
+            List<FurnitureDetailsSummary> detailsList = new ArrayList<>();
+            ReferenceResolver<Furniture> furnitureResolver = new ReferenceResolver<>(furnitureRepository::getFurnitureByIds);
+            
+            try {
+                // Try to find by furniture ID
+                ObjectId furnitureId = new ObjectId(searchText);
+                detailsList = furnitureDetailsRepository.getFurnitureDetailsSummariesByFurnitureIds(Collections.singletonList(furnitureId));
+            } catch (Exception e) {
+                // Try to find by furniture name
+                List<Furniture> furnitureList = furnitureRepository.findFurnitureByName(searchText);
+                List<ObjectId> furnitureIds = new ArrayList<>();
+                for (Furniture furniture : furnitureList) {
+                    furnitureIds.add(furniture.getId());
+                    // The furniture is already loaded, no need to query it again for the table
+                    furnitureResolver.put(furniture.getId(), furniture);
                 }
+                detailsList = furnitureDetailsRepository.getFurnitureDetailsSummariesByFurnitureIds(furnitureIds);
             }
-        }
+            
+            emitFurnitureDetailsRows(detailsList, furnitureResolver, sink);
+        });
     }
     
     @Override
@@ -252,11 +269,11 @@ public class FurnitureDetailsPanel extends EntityPanel {
                 materialUsages
             );
             
-            boolean success = furnitureDetailsRepository.addFurnitureDetails(details);
+            FurnitureDetails added = furnitureDetailsRepository.addFurnitureDetails(details);
             
-            if (success) {
+            if (added != null) {
                 dialog.dispose();
-                refreshData();
+                rowInserted(added.getId(), furnitureDetailsToRow(added));
             } else {
                 JOptionPane.showMessageDialog(dialog, "Failed to add furniture details!", "Error", JOptionPane.ERROR_MESSAGE);
             }
@@ -276,8 +293,7 @@ public class FurnitureDetailsPanel extends EntityPanel {
             return;
         }
         
-        String idString = (String) tableModel.getValueAt(selectedRow, 0);
-        ObjectId id = new ObjectId(idString);
+        ObjectId id = tableModel.getId(selectedRow);
         
         int confirm = JOptionPane.showConfirmDialog(this, 
                 "Вы уверены, что хотите удалить эти детали мебели?", 
@@ -288,43 +304,62 @@ public class FurnitureDetailsPanel extends EntityPanel {
             boolean success = furnitureDetailsRepository.deleteFurnitureDetails(id);
             
             if (success) {
-                refreshData();
+                rowDeleted(id);
             } else {
                 JOptionPane.showMessageDialog(this, "Не удалось удалить детали мебели!", "Ошибка", JOptionPane.ERROR_MESSAGE);
             }
         }
     }
     
+    @Override
+    protected void watchChanges() {
+        furnitureDetailsRepository.watchFurnitureDetails(liveRows(this::furnitureDetailsToRow));
+    }
+    
     @Override
     protected void sortData() {
-        String sortField = (String) sortFieldComboBox.getSelectedItem();
-        boolean ascending = "Ascending".equals(sortOrderComboBox.getSelectedItem());
-        
-        clearTable();
+        boolean ascending = "По возрастанию".equals(sortOrderComboBox.getSelectedItem());
         
-        // For now, we only sort by weight
-        List<FurnitureDetails> detailsList = furnitureDetailsRepository.getSortedFurnitureDetails("weight", ascending);
+        // Weight is the only sort field
+        sortRows(3, ascending, () -> loadRows(LoadKind.SORT, sink -> forEachChunk(
+                (Consumer<FurnitureDetailsSummary> action) -> furnitureDetailsRepository.forEachSortedFurnitureDetailsSummary("weight", ascending, action),
+                chunk -> emitFurnitureDetailsRows(chunk, sink))));
+    }
+    
+    private void emitFurnitureDetailsRows(List<FurnitureDetailsSummary> detailsList, Consumer<Object[]> sink) {
+        emitFurnitureDetailsRows(detailsList, new ReferenceResolver<>(furnitureRepository::getFurnitureByIds), sink);
+    }
+    
+    private void emitFurnitureDetailsRows(List<FurnitureDetailsSummary> detailsList, ReferenceResolver<Furniture> furnitureResolver,
+                                          Consumer<Object[]> sink) {
+        // Resolve all referenced furniture up front instead of one lookup per row
+        furnitureResolver.prefetch(detailsList, FurnitureDetailsSummary::getFurnitureId);
         
-        for (FurnitureDetails details : detailsList) {
-            addFurnitureDetailsToTable(details);
+        for (FurnitureDetailsSummary details : detailsList) {
+            sink.accept(furnitureDetailsToRow(details, furnitureResolver));
         }
     }
     
-    private void addFurnitureDetailsToTable(FurnitureDetails details) {
+    // A single entry, e.g. one just added or changed, with its furniture looked up on its own
+    private Object[] furnitureDetailsToRow(FurnitureDetails details) {
+        return furnitureDetailsToRow(FurnitureDetailsSummary.from(details), new ReferenceResolver<>(furnitureRepository::getFurnitureByIds));
+    }
+    
+    private Object[] furnitureDetailsToRow(FurnitureDetailsSummary details, ReferenceResolver<Furniture> furnitureResolver) {
         // Get furniture name
         String furnitureName = "Unknown";
-        Furniture furniture = furnitureRepository.getFurnitureById(details.getFurnitureId());
+        Furniture furniture = furnitureResolver.resolve(details.getFurnitureId());
         if (furniture != null) {
             furnitureName = furniture.getName();
         }
         
         Object[] rowData = {
-            details.getId().toString(),
+            details.getId(),
             furnitureName,
             details.getDimensions(),
-            details.getWeight() + " kg",
-            details.getMaterialUsages() != null ? details.getMaterialUsages().size() + " materials" : "0 materials"
+            details.getWeight(),
+            details.getMaterialCount()
         };
-        tableModel.addRow(rowData);
+        return rowData;
     }
 } 
\ No newline at end of file
@@ -1,27 +1,40 @@
 package com.furniture.ui.panels;
 
+import com.furniture.io.Exports;
+import com.furniture.io.FurnitureRecordMapper;
 import com.furniture.model.Furniture;
+import com.furniture.planning.CostRollupService;
 import com.furniture.repository.FurnitureRepository;
 import org.bson.types.ObjectId;
 
 import javax.swing.*;
 import java.awt.*;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class FurniturePanel extends EntityPanel {
-    private static final String[] COLUMN_NAMES = {"ID", "Название", "Категория", "Цена", "Наличие"};
-    private static final String[] SEARCH_FIELDS = {"Название", "Категория"};
+    private static final String[] COLUMN_NAMES = {"ID", "Название", "Категория", "Цена", "Наличие", "Себестоимость", "Маржа"};
+    private static final ColumnType[] COLUMN_TYPES = {
+        ColumnType.ID, ColumnType.TEXT, ColumnType.TEXT, ColumnType.MONEY, ColumnType.INTEGER, ColumnType.MONEY, ColumnType.PERCENT
+    };
+    private static final String[] SEARCH_FIELDS = {"Название", "Категория", "Слова"};
     private static final String[] SORT_FIELDS = {"Название", "Цена", "Наличие"};
     private static final String[] FURNITURE_CATEGORIES = {
         "Стол", "Стул", "Диван", "Кровать", "Шкаф", "Книжная полка", "Письменный стол", "Шкафчик", "Другое"
     };
     
     private FurnitureRepository furnitureRepository;
+    private CostRollupService costRollupService;
     
     public FurniturePanel() {
         super();
         furnitureRepository = new FurnitureRepository();
+        costRollupService = new CostRollupService(this::repriceRows);
+        enableImport(new FurnitureRecordMapper(), furnitureRepository::addAll);
+        enableExport(Exports.furniture(furnitureRepository));
     }
     
     @Override
@@ -29,6 +42,11 @@ public class FurniturePanel extends EntityPanel {
         return COLUMN_NAMES;
     }
     
+    @Override
+    protected ColumnType[] getColumnTypes() {
+        return COLUMN_TYPES;
+    }
+    
     @Override
     protected String[] getSearchFieldNames() {
         return SEARCH_FIELDS;
@@ -41,12 +59,15 @@ public class FurniturePanel extends EntityPanel {
     
     @Override
     protected void refreshData() {
-        clearTable();
-        List<Furniture> furnitureList = furnitureRepository.getAllFurniture();
-        
-        for (Furniture furniture : furnitureList) {
-            addFurnitureToTable(furniture);
-        }
+        loadRows(LoadKind.REFRESH, sink -> {
+            costRollupService.reload();
+            furnitureRepository.forEachFurniture(furniture -> sink.accept(furnitureToRow(furniture)));
+        });
+    }
+    
+    @Override
+    protected int getPrefixSearchColumn(String searchType, String searchText) {
+        return "Название".equals(searchType) ? 1 : -1;
     }
     
     @Override
@@ -57,19 +78,22 @@ public class FurniturePanel extends EntityPanel {
             return;
         }
         
-        clearTable();
-        List<Furniture> furnitureList;
-        
         String searchType = (String) searchTypeComboBox.getSelectedItem();
-        if ("Название".equals(searchType)) {
-            furnitureList = furnitureRepository.findFurnitureByName(searchText);
-        } else { // Категория
-            furnitureList = furnitureRepository.findFurnitureByCategory(searchText);
-        }
-        
-        for (Furniture furniture : furnitureList) {
-            addFurnitureToTable(furniture);
-        }
+        loadRows(LoadKind.SEARCH, sink -> {
+            costRollupService.ensureLoaded();
+            List<Furniture> furnitureList;
+            if ("Название".equals(searchType)) {
+                furnitureList = furnitureRepository.findFurnitureByName(searchText);
+            } else if ("Категория".equals(searchType)) {
+                furnitureList = furnitureRepository.findFurnitureByCategory(searchText);
+            } else { // Слова
+                furnitureList = furnitureRepository.searchFurniture(searchText);
+            }
+            
+            for (Furniture furniture : furnitureList) {
+                sink.accept(furnitureToRow(furniture));
+            }
+        });
     }
     
     @Override
@@ -126,11 +150,11 @@ public class FurniturePanel extends EntityPanel {
             }
             
             Furniture furniture = new Furniture(name, category, price, stockQuantity);
-            boolean success = furnitureRepository.addFurniture(furniture);
+            Furniture added = furnitureRepository.addFurniture(furniture);
             
-            if (success) {
+            if (added != null) {
                 dialog.dispose();
-                refreshData();
+                rowInserted(added.getId(), furnitureToRow(added));
             } else {
                 JOptionPane.showMessageDialog(dialog, "Не удалось добавить мебель!", "Ошибка", JOptionPane.ERROR_MESSAGE);
             }
@@ -151,8 +175,7 @@ public class FurniturePanel extends EntityPanel {
             return;
         }
         
-        String idString = (String) tableModel.getValueAt(selectedRow, 0);
-        ObjectId id = new ObjectId(idString);
+        ObjectId id = tableModel.getId(selectedRow);
         
         int confirm = JOptionPane.showConfirmDialog(this, 
                 "Вы уверены, что хотите удалить эту мебель?", 
@@ -163,44 +186,67 @@ public class FurniturePanel extends EntityPanel {
             boolean success = furnitureRepository.deleteFurniture(id);
             
             if (success) {
-                refreshData();
+                rowDeleted(id);
             } else {
                 JOptionPane.showMessageDialog(this, "Не удалось удалить мебель!", "Ошибка", JOptionPane.ERROR_MESSAGE);
             }
         }
     }
     
+    @Override
+    protected void watchChanges() {
+        furnitureRepository.watchFurniture(liveRows(this::furnitureToRow));
+    }
+    
     @Override
     protected void sortData() {
         String sortField = (String) sortFieldComboBox.getSelectedItem();
         boolean ascending = "По возрастанию".equals(sortOrderComboBox.getSelectedItem());
         
-        clearTable();
-        
         String fieldName;
+        int column;
         if ("Название".equals(sortField)) {
             fieldName = "name";
+            column = 1;
         } else if ("Цена".equals(sortField)) {
             fieldName = "price";
+            column = 3;
         } else { // Наличие
             fieldName = "stockQuantity";
+            column = 4;
         }
         
-        List<Furniture> furnitureList = furnitureRepository.getSortedFurniture(fieldName, ascending);
-        
-        for (Furniture furniture : furnitureList) {
-            addFurnitureToTable(furniture);
+        sortRows(column, ascending, () -> loadRows(LoadKind.SORT, sink -> {
+            costRollupService.ensureLoaded();
+            furnitureRepository.forEachSortedFurniture(fieldName, ascending, furniture -> sink.accept(furnitureToRow(furniture)));
+        }));
+    }
+    
+    /**
+     * Called on a change stream thread with the items whose material cost changed.
+     */
+    private void repriceRows(Set<ObjectId> furnitureIds) {
+        Map<ObjectId, Object[]> rows = new HashMap<>();
+        for (Furniture furniture : furnitureRepository.getFurnitureByIds(furnitureIds).values()) {
+            rows.put(furniture.getId(), furnitureToRow(furniture));
         }
+        SwingUtilities.invokeLater(() -> updateRows(rows));
     }
     
-    private void addFurnitureToTable(Furniture furniture) {
+    private Object[] furnitureToRow(Furniture furniture) {
+        Double unitCost = costRollupService.getUnitCost(furniture.getId());
         Object[] rowData = {
-            furniture.getId().toString(),
+            furniture.getId(),
             furniture.getName(),
             furniture.getCategory(),
-            String.format("$%.2f", furniture.getPrice()),
-            furniture.getStockQuantity()
+            furniture.getPrice(),
+            furniture.getStockQuantity(),
+            unitCost,
+            // Missing values are shown as a dash by the renderer
+            unitCost != null && furniture.getPrice() > 0
+                    ? (furniture.getPrice() - unitCost) / furniture.getPrice() * 100
+                    : null
         };
-        tableModel.addRow(rowData);
+        return rowData;
     }
 } 
\ No newline at end of file
@@ -1,16 +1,33 @@
 package com.furniture.ui.panels;
 
+import com.furniture.io.Exports;
+import com.furniture.io.MaterialRecordMapper;
+import com.furniture.model.Furniture;
 import com.furniture.model.Material;
+import com.furniture.planning.MaterialRequirement;
+import com.furniture.planning.MrpEngine;
+import com.furniture.planning.PlanningDataLoader;
+import com.furniture.planning.ShortageReport;
+import com.furniture.repository.FurnitureDetailsRepository;
+import com.furniture.repository.FurnitureRepository;
 import com.furniture.repository.MaterialRepository;
 import org.bson.types.ObjectId;
 
 import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
 import java.awt.*;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
 
 public class MaterialsPanel extends EntityPanel {
     private static final String[] COLUMN_NAMES = {"ID", "Название", "Тип", "Цена за единицу", "Единица измерения", "Наличие"};
-    private static final String[] SEARCH_FIELDS = {"Название", "Тип"};
+    private static final ColumnType[] COLUMN_TYPES = {
+        ColumnType.ID, ColumnType.TEXT, ColumnType.TEXT, ColumnType.MONEY, ColumnType.TEXT, ColumnType.INTEGER
+    };
+    private static final String[] SEARCH_FIELDS = {"Название", "Тип", "Слова"};
     private static final String[] SORT_FIELDS = {"Название", "Тип", "Цена", "Наличие"};
     private static final String[] MATERIAL_TYPES = {
         "Дерево", "Металл", "Ткань", "Пластик", "Стекло", "Кожа", "Другое"
@@ -20,10 +37,24 @@ public class MaterialsPanel extends EntityPanel {
     };
     
     private MaterialRepository materialRepository;
+    private FurnitureDetailsRepository furnitureDetailsRepository;
+    private FurnitureRepository furnitureRepository;
     
     public MaterialsPanel() {
         super();
         materialRepository = new MaterialRepository();
+        furnitureDetailsRepository = new FurnitureDetailsRepository();
+        furnitureRepository = new FurnitureRepository();
+        enableImport(new MaterialRecordMapper(), materialRepository::addAll);
+        enableExport(Exports.materials(materialRepository));
+        
+        JButton requirementsButton = new JButton("Потребность...");
+        requirementsButton.addActionListener(e -> showRequirements());
+        addToolbarButton(requirementsButton);
+        
+        JButton whereUsedButton = new JButton("Где используется...");
+        whereUsedButton.addActionListener(e -> showWhereUsed());
+        addToolbarButton(whereUsedButton);
     }
     
     @Override
@@ -31,6 +62,11 @@ public class MaterialsPanel extends EntityPanel {
         return COLUMN_NAMES;
     }
     
+    @Override
+    protected ColumnType[] getColumnTypes() {
+        return COLUMN_TYPES;
+    }
+    
     @Override
     protected String[] getSearchFieldNames() {
         return SEARCH_FIELDS;
@@ -43,12 +79,13 @@ public class MaterialsPanel extends EntityPanel {
     
     @Override
     protected void refreshData() {
-        clearTable();
-        List<Material> materials = materialRepository.getAllMaterials();
-        
-        for (Material material : materials) {
-            addMaterialToTable(material);
-        }
+        loadRows(LoadKind.REFRESH, sink ->
+                materialRepository.forEachMaterial(material -> sink.accept(materialToRow(material))));
+    }
+    
+    @Override
+    protected int getPrefixSearchColumn(String searchType, String searchText) {
+        return "Название".equals(searchType) ? 1 : -1;
     }
     
     @Override
@@ -59,19 +96,21 @@ public class MaterialsPanel extends EntityPanel {
             return;
         }
         
-        clearTable();
-        List<Material> materials;
-        
         String searchType = (String) searchTypeComboBox.getSelectedItem();
-        if ("Название".equals(searchType)) {
-            materials = materialRepository.findMaterialsByName(searchText);
-        } else { // Тип
-            materials = materialRepository.findMaterialsByType(searchText);
-        }
-        
-        for (Material material : materials) {
-            addMaterialToTable(material);
-        }
+        loadRows(LoadKind.SEARCH, sink -> {
+            List<Material> materials;
+            if ("Название".equals(searchType)) {
+                materials = materialRepository.findMaterialsByName(searchText);
+            } else if ("Тип".equals(searchType)) {
+                materials = materialRepository.findMaterialsByType(searchText);
+            } else { // Слова
+                materials = materialRepository.searchMaterials(searchText);
+            }
+            
+            for (Material material : materials) {
+                sink.accept(materialToRow(material));
+            }
+        });
     }
     
     @Override
@@ -132,11 +171,11 @@ public class MaterialsPanel extends EntityPanel {
             }
             
             Material material = new Material(name, type, costPerUnit, unit, stockQuantity);
-            boolean success = materialRepository.addMaterial(material);
+            Material added = materialRepository.addMaterial(material);
             
-            if (success) {
+            if (added != null) {
                 dialog.dispose();
-                refreshData();
+                rowInserted(added.getId(), materialToRow(added));
             } else {
                 JOptionPane.showMessageDialog(dialog, "Не удалось добавить материал!", "Ошибка", JOptionPane.ERROR_MESSAGE);
             }
@@ -157,8 +196,7 @@ public class MaterialsPanel extends EntityPanel {
             return;
         }
         
-        String idString = (String) tableModel.getValueAt(selectedRow, 0);
-        ObjectId id = new ObjectId(idString);
+        ObjectId id = tableModel.getId(selectedRow);
         
         int confirm = JOptionPane.showConfirmDialog(this, 
                 "Вы уверены, что хотите удалить этот материал?", 
@@ -169,47 +207,192 @@ public class MaterialsPanel extends EntityPanel {
             boolean success = materialRepository.deleteMaterial(id);
             
             if (success) {
-                refreshData();
+                rowDeleted(id);
             } else {
                 JOptionPane.showMessageDialog(this, "Не удалось удалить материал!", "Ошибка", JOptionPane.ERROR_MESSAGE);
             }
         }
     }
     
+    @Override
+    protected void watchChanges() {
+        materialRepository.watchMaterials(liveRows(this::materialToRow));
+    }
+    
     @Override
     protected void sortData() {
         String sortField = (String) sortFieldComboBox.getSelectedItem();
-        boolean ascending = "Ascending".equals(sortOrderComboBox.getSelectedItem());
-        
-        clearTable();
+        boolean ascending = "По возрастанию".equals(sortOrderComboBox.getSelectedItem());
         
         String fieldName;
+        int column;
         if ("Название".equals(sortField)) {
             fieldName = "name";
+            column = 1;
         } else if ("Тип".equals(sortField)) {
             fieldName = "type";
+            column = 2;
         } else if ("Цена".equals(sortField)) {
             fieldName = "costPerUnit";
+            column = 3;
         } else { // Наличие
             fieldName = "stockQuantity";
+            column = 5;
         }
         
-        List<Material> materials = materialRepository.getSortedMaterials(fieldName, ascending);
-        
-        for (Material material : materials) {
-            addMaterialToTable(material);
-        }
+        sortRows(column, ascending, () -> loadRows(LoadKind.SORT, sink ->
+                materialRepository.forEachSortedMaterial(fieldName, ascending, material -> sink.accept(materialToRow(material)))));
     }
     
-    private void addMaterialToTable(Material material) {
+    private Object[] materialToRow(Material material) {
         Object[] rowData = {
-            material.getId().toString(),
+            material.getId(),
             material.getName(),
             material.getType(),
-            String.format("$%.2f", material.getCostPerUnit()),
+            material.getCostPerUnit(),
             material.getUnit(),
             material.getStockQuantity()
         };
-        tableModel.addRow(rowData);
+        return rowData;
+    }
+    
+    /**
+     * Explodes the open orders through the bills of materials in the background
+     * and shows how much of each material they need compared with the stock.
+     */
+    private void showRequirements() {
+        loadingLabel.setText("Расчёт потребности...");
+        new SwingWorker<ShortageReport, Void>() {
+            @Override
+            protected ShortageReport doInBackground() {
+                return new MrpEngine().plan(new PlanningDataLoader().load());
+            }
+            
+            @Override
+            protected void done() {
+                loadingLabel.setText("");
+                try {
+                    ShortageReport report = get();
+                    System.out.println(report);
+                    showRequirementsDialog(report);
+                } catch (InterruptedException | ExecutionException e) {
+                    System.err.println("Error planning material requirements: " + e.getMessage());
+                    JOptionPane.showMessageDialog(MaterialsPanel.this, "Не удалось рассчитать потребность!", "Ошибка", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+    
+    private void showRequirementsDialog(ShortageReport report) {
+        JDialog dialog = new JDialog((Frame) SwingUtilities.getWindowAncestor(this), "Потребность в материалах", true);
+        dialog.setLayout(new BorderLayout());
+        dialog.setSize(700, 500);
+        
+        DefaultTableModel model = new DefaultTableModel(
+                new String[]{"Материал", "Единица измерения", "Требуется", "Наличие", "Дефицит"}, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        for (MaterialRequirement requirement : report.getRequirements()) {
+            model.addRow(new Object[]{
+                requirement.getName(),
+                requirement.getUnit(),
+                String.format("%.2f", requirement.getRequired()),
+                String.format("%.0f", requirement.getInStock()),
+                requirement.isShort() ? String.format("%.2f", requirement.getShortage()) : ""
+            });
+        }
+        
+        JLabel summaryLabel = new JLabel(String.format(
+                "Открытых заказов: %d, позиций: %d, без спецификации: %d, материалов с дефицитом: %d",
+                report.getOrderCount(), report.getLineCount(), report.getUnplannedLines(), report.getShortCount()));
+        summaryLabel.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
+        
+        JButton closeButton = new JButton("Закрыть");
+        closeButton.addActionListener(e -> dialog.dispose());
+        JPanel buttonPanel = new JPanel();
+        buttonPanel.add(closeButton);
+        
+        dialog.add(summaryLabel, BorderLayout.NORTH);
+        dialog.add(new JScrollPane(new JTable(model)), BorderLayout.CENTER);
+        dialog.add(buttonPanel, BorderLayout.SOUTH);
+        dialog.setLocationRelativeTo(this);
+        dialog.setVisible(true);
+    }
+    
+    private void showWhereUsed() {
+        int selectedRow = getSelectedRow();
+        if (selectedRow == -1) {
+            JOptionPane.showMessageDialog(this, "Пожалуйста, выберите материал.", "Нет выбора", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        ObjectId materialId = tableModel.getId(selectedRow);
+        String materialName = (String) tableModel.getValueAt(selectedRow, 1);
+        String unit = (String) tableModel.getValueAt(selectedRow, 4);
+        
+        loadingLabel.setText("Поиск изделий...");
+        new SwingWorker<List<Object[]>, Void>() {
+            @Override
+            protected List<Object[]> doInBackground() {
+                Map<ObjectId, Double> whereUsed = furnitureDetailsRepository.getWhereUsed(materialId);
+                Map<ObjectId, Furniture> furniture = furnitureRepository.getFurnitureByIds(whereUsed.keySet());
+                
+                List<Object[]> rows = new ArrayList<>();
+                for (Map.Entry<ObjectId, Double> entry : whereUsed.entrySet()) {
+                    Furniture item = furniture.get(entry.getKey());
+                    rows.add(new Object[]{
+                        item != null ? item.getName() : entry.getKey().toString(),
+                        item != null ? item.getCategory() : "",
+                        String.format("%.2f", entry.getValue())
+                    });
+                }
+                rows.sort(Comparator.comparing(row -> (String) row[0], String.CASE_INSENSITIVE_ORDER));
+                return rows;
+            }
+            
+            @Override
+            protected void done() {
+                loadingLabel.setText("");
+                try {
+                    showWhereUsedDialog(materialName, unit, get());
+                } catch (InterruptedException | ExecutionException e) {
+                    System.err.println("Error finding where material is used: " + e.getMessage());
+                    JOptionPane.showMessageDialog(MaterialsPanel.this, "Не удалось найти изделия!", "Ошибка", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+    
+    private void showWhereUsedDialog(String materialName, String unit, List<Object[]> rows) {
+        JDialog dialog = new JDialog((Frame) SwingUtilities.getWindowAncestor(this), "Где используется: " + materialName, true);
+        dialog.setLayout(new BorderLayout());
+        dialog.setSize(600, 400);
+        
+        DefaultTableModel model = new DefaultTableModel(
+                new String[]{"Мебель", "Категория", "Количество на изделие, " + unit}, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        for (Object[] row : rows) {
+            model.addRow(row);
+        }
+        
+        JLabel summaryLabel = new JLabel("Изделий с этим материалом: " + rows.size());
+        summaryLabel.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
+        
+        JButton closeButton = new JButton("Закрыть");
+        closeButton.addActionListener(e -> dialog.dispose());
+        JPanel buttonPanel = new JPanel();
+        buttonPanel.add(closeButton);
+        
+        dialog.add(summaryLabel, BorderLayout.NORTH);
+        dialog.add(new JScrollPane(new JTable(model)), BorderLayout.CENTER);
+        dialog.add(buttonPanel, BorderLayout.SOUTH);
+        dialog.setLocationRelativeTo(this);
+        dialog.setVisible(true);
     }
-} 
\ No newline at end of file
+}
\ No newline at end of file
@@ -1,24 +1,32 @@
 package com.furniture.ui.panels;
 
+import com.furniture.db.KeysetCursor;
+import com.furniture.db.KeysetPage;
+import com.furniture.io.Exports;
 import com.furniture.model.Customer;
 import com.furniture.model.Furniture;
-import com.furniture.model.Order;
 import com.furniture.model.Order.OrderItem;
+import com.furniture.model.Order;
+import com.furniture.model.OrderSummary;
 import com.furniture.repository.CustomerRepository;
 import com.furniture.repository.FurnitureRepository;
 import com.furniture.repository.OrderRepository;
+import com.furniture.repository.ReferenceResolver;
 import org.bson.types.ObjectId;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.function.Consumer;
 
 public class OrdersPanel extends EntityPanel {
     private static final String[] COLUMN_NAMES = {"ID", "Клиент", "Дата", "Статус", "Общая стоимость"};
+    private static final ColumnType[] COLUMN_TYPES = {
+        ColumnType.ID, ColumnType.TEXT, ColumnType.DATE, ColumnType.TEXT, ColumnType.MONEY
+    };
     private static final String[] SEARCH_FIELDS = {"Клиент", "Статус"};
     private static final String[] SORT_FIELDS = {"Дата", "Статус", "Общая стоимость"};
     private static final String[] ORDER_STATUS = {"Ожидается", "В процессе", "Завершен", "Отменен"};
@@ -32,6 +40,7 @@ public class OrdersPanel extends EntityPanel {
         orderRepository = new OrderRepository();
         customerRepository = new CustomerRepository();
         furnitureRepository = new FurnitureRepository();
+        enableExport(Exports.orders(orderRepository, customerRepository));
     }
     
     @Override
@@ -39,6 +48,11 @@ public class OrdersPanel extends EntityPanel {
         return COLUMN_NAMES;
     }
     
+    @Override
+    protected ColumnType[] getColumnTypes() {
+        return COLUMN_TYPES;
+    }
+    
     @Override
     protected String[] getSearchFieldNames() {
         return SEARCH_FIELDS;
@@ -51,12 +65,14 @@ public class OrdersPanel extends EntityPanel {
     
     @Override
     protected void refreshData() {
-        clearTable();
-        List<Order> orders = orderRepository.getAllOrders();
-        
-        for (Order order : orders) {
-            addOrderToTable(order);
-        }
+        // The orders collection is the largest one, so it is only read page by page
+        showPagedData(ordersPageLoader("_id", true));
+    }
+    
+    @Override
+    protected int getPrefixSearchColumn(String searchType, String searchText) {
+        // A valid id is looked up as a customer id rather than a name prefix
+        return "Клиент".equals(searchType) && !ObjectId.isValid(searchText) ? 1 : -1;
     }
     
     @Override
@@ -67,29 +83,30 @@ public class OrdersPanel extends EntityPanel {
             return;
         }
         
-        clearTable();
-        List<Order> orders = new ArrayList<>();
-        
         String searchType = (String) searchTypeComboBox.getSelectedItem();
-        if ("Статус".equals(searchType)) {
-            orders = orderRepository.getOrdersByStatus(searchText);
-        } else if ("Клиент".equals(searchType)) {
-            try {
-                // Try first by ID
-                ObjectId customerId = new ObjectId(searchText);
-                orders = orderRepository.getOrdersByCustomerId(customerId);
-            } catch (Exception e) {
-                // Then try by name
-                List<Customer> customers = customerRepository.findCustomersByName(searchText);
-                for (Customer customer : customers) {
-                    orders.addAll(orderRepository.getOrdersByCustomerId(customer.getId()));
+        loadRows(LoadKind.SEARCH, sink -> {
+            List<OrderSummary> orders = new ArrayList<>();
+            ReferenceResolver<Customer> customers = new ReferenceResolver<>(customerRepository::getCustomersByIds);
+            if ("Статус".equals(searchType)) {
+                orders = orderRepository.getOrderSummariesByStatus(searchText);
+            } else if ("Клиент".equals(searchType)) {
+                try {
+                    // Try first by ID
+                    ObjectId customerId = new ObjectId(searchText);
+                    orders = orderRepository.getOrderSummariesByCustomerId(customerId);
+                } catch (Exception e) {
+                    // Then try by name, with one $in query for the orders of all matching customers
+                    List<ObjectId> customerIds = new ArrayList<>();
+                    for (Customer customer : customerRepository.findCustomersByName(searchText)) {
+                        customerIds.add(customer.getId());
+                        customers.put(customer.getId(), customer);
+                    }
+                    orders = orderRepository.getOrderSummariesByCustomerIds(customerIds);
                 }
             }
-        }
-        
-        for (Order order : orders) {
-            addOrderToTable(order);
-        }
+            
+            emitOrderRows(orders, customers, sink);
+        });
     }
     
     @Override
@@ -220,11 +237,11 @@ public class OrdersPanel extends EntityPanel {
             double totalPrice = Double.parseDouble(totalPriceField.getText());
             
             Order order = new Order(selectedCustomer.getId(), new Date(), status, totalPrice, orderItems);
-            boolean success = orderRepository.addOrder(order);
+            Order added = orderRepository.addOrder(order);
             
-            if (success) {
+            if (added != null) {
                 dialog.dispose();
-                refreshData();
+                rowInserted(added.getId(), orderToRow(added));
             } else {
                 JOptionPane.showMessageDialog(dialog, "Не удалось добавить заказ!", "Ошибка", JOptionPane.ERROR_MESSAGE);
             }
@@ -252,8 +269,10 @@ public class OrdersPanel extends EntityPanel {
             return;
         }
         
-        String idString = (String) tableModel.getValueAt(selectedRow, 0);
-        ObjectId id = new ObjectId(idString);
+        ObjectId id = getSelectedId();
+        if (id == null) {
+            return;
+        }
         
         int confirm = JOptionPane.showConfirmDialog(this, 
                 "Вы уверены, что хотите удалить этот заказ?", 
@@ -264,54 +283,87 @@ public class OrdersPanel extends EntityPanel {
             boolean success = orderRepository.deleteOrder(id);
             
             if (success) {
-                refreshData();
+                rowDeleted(id);
             } else {
                 JOptionPane.showMessageDialog(this, "Не удалось удалить заказ!", "Ошибка", JOptionPane.ERROR_MESSAGE);
             }
         }
     }
     
+    @Override
+    protected void watchChanges() {
+        orderRepository.watchOrders(liveRows(this::orderToRow));
+    }
+    
     @Override
     protected void sortData() {
         String sortField = (String) sortFieldComboBox.getSelectedItem();
         boolean ascending = "По возрастанию".equals(sortOrderComboBox.getSelectedItem());
         
-        clearTable();
-        
         String fieldName;
+        int column;
         if ("Дата".equals(sortField)) {
             fieldName = "orderDate";
+            column = 2;
         } else if ("Статус".equals(sortField)) {
             fieldName = "status";
+            column = 3;
         } else { // Общая стоимость
             fieldName = "totalPrice";
+            column = 4;
         }
         
-        List<Order> orders = orderRepository.getSortedOrders(fieldName, ascending);
+        // All orders are paged and sorted by the server, search results are sorted in memory
+        sortRows(column, ascending, () -> showPagedData(ordersPageLoader(fieldName, ascending)));
+    }
+    
+    private PagingTableModel.PageLoader ordersPageLoader(String sortField, boolean ascending) {
+        return new PagingTableModel.PageLoader() {
+            @Override
+            public long count() {
+                return orderRepository.countOrders();
+            }
+            
+            @Override
+            public KeysetPage<Object[]> load(KeysetCursor after, long skip, int pageSize) {
+                KeysetPage<OrderSummary> page = orderRepository.getOrderSummariesPage(sortField, ascending, after, skip, pageSize);
+                // One customer lookup per page
+                ReferenceResolver<Customer> customers = new ReferenceResolver<>(customerRepository::getCustomersByIds);
+                customers.prefetch(page.getItems(), OrderSummary::getCustomerId);
+                return page.map(order -> orderToRow(order, customers));
+            }
+        };
+    }
+    
+    private void emitOrderRows(List<OrderSummary> orders, ReferenceResolver<Customer> customers, Consumer<Object[]> sink) {
+        // Resolve all referenced customers up front instead of one lookup per row
+        customers.prefetch(orders, OrderSummary::getCustomerId);
         
-        for (Order order : orders) {
-            addOrderToTable(order);
+        for (OrderSummary order : orders) {
+            sink.accept(orderToRow(order, customers));
         }
     }
     
-    private void addOrderToTable(Order order) {
-        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
-        String dateStr = order.getOrderDate() != null ? dateFormat.format(order.getOrderDate()) : "";
-        
+    // A single order, e.g. one just added or changed, with its customer looked up on its own
+    private Object[] orderToRow(Order order) {
+        return orderToRow(OrderSummary.from(order), new ReferenceResolver<>(customerRepository::getCustomersByIds));
+    }
+    
+    private Object[] orderToRow(OrderSummary order, ReferenceResolver<Customer> customers) {
         // Get customer name
         String customerName = "Unknown";
-        Customer customer = customerRepository.getCustomerById(order.getCustomerId());
+        Customer customer = customers.resolve(order.getCustomerId());
         if (customer != null) {
             customerName = customer.getName();
         }
         
         Object[] rowData = {
-            order.getId().toString(),
+            order.getId(),
             customerName,
-            dateStr,
+            order.getOrderDate(),
             order.getStatus(),
-            String.format("$%.2f", order.getTotalPrice())
+            order.getTotalPrice()
         };
-        tableModel.addRow(rowData);
+        return rowData;
     }
 } 
\ No newline at end of file
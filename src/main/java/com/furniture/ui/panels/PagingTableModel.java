@@ -0,0 +1,195 @@
+package com.furniture.ui.panels;
+
+import com.furniture.db.KeysetCursor;
+import com.furniture.db.KeysetPage;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Read-only table model that fetches rows page by page as the table asks for them.
+ *
+ * Only the pages the user has scrolled to are requested, and at most
+ * {@link #MAX_CACHED_PAGES} of them are kept in memory, so the heap used by the
+ * table does not depend on the size of the collection. Pages are loaded on the
+ * given executor; until a page arrives its cells show a placeholder.
+ *
+ * The end cursor of every loaded page is remembered, so scrolling forward uses
+ * keyset pagination. Jumping to a page whose predecessor was never loaded falls
+ * back to an offset query.
+ */
+public class PagingTableModel extends AbstractTableModel {
+    public static final String LOADING_PLACEHOLDER = "…";
+    private static final int DEFAULT_PAGE_SIZE = 200;
+    private static final int MAX_CACHED_PAGES = 10;
+    
+    public interface PageLoader {
+        long count();
+        
+        KeysetPage<Object[]> load(KeysetCursor after, long skip, int pageSize);
+    }
+    
+    private final String[] columnNames;
+    private final PageLoader loader;
+    private final Executor executor;
+    private final int pageSize;
+    
+    // All fields below are only touched on the Event Dispatch Thread
+    private final Map<Integer, List<Object[]>> pages = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<Object[]>> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+    private final Map<Integer, KeysetCursor> pageStarts = new HashMap<>();
+    private final Set<Integer> pendingPages = new HashSet<>();
+    private int rowCount;
+    private boolean disposed;
+    // Bumped by reload(), so pages requested before it are dropped when they arrive
+    private int generation;
+    
+    public PagingTableModel(String[] columnNames, PageLoader loader, Executor executor) {
+        this(columnNames, loader, executor, DEFAULT_PAGE_SIZE);
+    }
+    
+    public PagingTableModel(String[] columnNames, PageLoader loader, Executor executor, int pageSize) {
+        this.columnNames = columnNames;
+        this.loader = loader;
+        this.executor = executor;
+        this.pageSize = pageSize;
+    }
+    
+    /**
+     * Counts the rows in the background and then lets the table request the visible pages.
+     */
+    public void load() {
+        executor.execute(() -> {
+            long count = loader.count();
+            SwingUtilities.invokeLater(() -> {
+                if (disposed) {
+                    return;
+                }
+                rowCount = (int) Math.min(count, Integer.MAX_VALUE);
+                fireTableDataChanged();
+            });
+        });
+    }
+    
+    /**
+     * Drops the loaded pages and counts again, e.g. after the collection changed.
+     * The visible pages are fetched anew as soon as the table repaints.
+     */
+    public void reload() {
+        if (disposed) {
+            return;
+        }
+        generation++;
+        pages.clear();
+        pageStarts.clear();
+        pendingPages.clear();
+        load();
+    }
+    
+    /**
+     * Stops delivering pages to the table, pending loads are dropped when they complete.
+     */
+    public void dispose() {
+        disposed = true;
+        pages.clear();
+        pageStarts.clear();
+        pendingPages.clear();
+    }
+    
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+    
+    @Override
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+    
+    @Override
+    public String getColumnName(int column) {
+        return columnNames[column];
+    }
+    
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+    
+    @Override
+    public Object getValueAt(int row, int column) {
+        int pageIndex = row / pageSize;
+        List<Object[]> page = pages.get(pageIndex);
+        if (page == null) {
+            requestPage(pageIndex);
+            return LOADING_PLACEHOLDER;
+        }
+        
+        int offset = row % pageSize;
+        // A page may come back shorter if rows were deleted after counting
+        return offset < page.size() ? page.get(offset)[column] : null;
+    }
+    
+    public boolean isRowLoaded(int row) {
+        return pages.containsKey(row / pageSize);
+    }
+    
+    private void requestPage(int pageIndex) {
+        if (disposed || !pendingPages.add(pageIndex)) {
+            return;
+        }
+        
+        KeysetCursor after = pageStarts.get(pageIndex);
+        long skip = (long) pageIndex * pageSize;
+        int requestGeneration = generation;
+        executor.execute(() -> {
+            try {
+                KeysetPage<Object[]> page = loader.load(after, skip, pageSize);
+                SwingUtilities.invokeLater(() -> pageLoaded(requestGeneration, pageIndex, page));
+            } catch (RuntimeException e) {
+                System.err.println("Error loading page " + pageIndex + ": " + e.getMessage());
+                SwingUtilities.invokeLater(() -> pageFailed(requestGeneration, pageIndex));
+            }
+        });
+    }
+    
+    /**
+     * Forgets the request, so the page is asked for again the next time the table paints
+     * its rows, e.g. on scrolling or a refresh. No event is fired, which would repaint and
+     * retry against a failing server right away.
+     */
+    private void pageFailed(int requestGeneration, int pageIndex) {
+        if (disposed || requestGeneration != generation) {
+            return;
+        }
+        pendingPages.remove(pageIndex);
+    }
+    
+    private void pageLoaded(int requestGeneration, int pageIndex, KeysetPage<Object[]> page) {
+        if (disposed || requestGeneration != generation) {
+            return;
+        }
+        pendingPages.remove(pageIndex);
+        pages.put(pageIndex, page.getItems());
+        if (page.hasMore()) {
+            pageStarts.put(pageIndex + 1, page.getNextCursor());
+        }
+        
+        int firstRow = pageIndex * pageSize;
+        int lastRow = Math.min(firstRow + pageSize, rowCount) - 1;
+        if (firstRow <= lastRow) {
+            fireTableRowsUpdated(firstRow, lastRow);
+        }
+    }
+}
\ No newline at end of file
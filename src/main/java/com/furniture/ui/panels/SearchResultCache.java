@@ -0,0 +1,114 @@
+package com.furniture.ui.panels;
+
+import com.furniture.db.SearchText;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rows of the most recent searches of a panel, so that typing a longer prefix
+ * or going back to an earlier one does not query the database again.
+ *
+ * An entry remembers the column that all its rows start with the search text
+ * in, if there is one. A search for a longer text of the same type is then
+ * answered by filtering those rows, since its results are a subset of them.
+ * Entries expire after a short time, and the panel clears the cache whenever
+ * the data may have changed. Only used on the Event Dispatch Thread.
+ */
+class SearchResultCache {
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final Map<String, Entry> entries;
+    
+    SearchResultCache(int maxEntries, long ttlMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttlMillis * 1_000_000;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+    
+    /**
+     * Returns the rows for the search, from an exact entry or filtered from the entry
+     * of the longest cached prefix, or null if the database has to be queried.
+     */
+    List<Object[]> get(String searchType, String searchText, int prefixColumn) {
+        evictExpired();
+        Entry exact = entries.get(key(searchType, searchText));
+        if (exact != null) {
+            return exact.rows;
+        }
+        if (prefixColumn < 0) {
+            return null;
+        }
+        
+        String normalized = SearchText.normalize(searchText);
+        Entry superset = null;
+        for (Entry entry : entries.values()) {
+            if (entry.searchType.equals(searchType) && entry.prefixColumn == prefixColumn
+                    && normalized.startsWith(entry.normalizedText)
+                    && (superset == null || entry.normalizedText.length() > superset.normalizedText.length())) {
+                superset = entry;
+            }
+        }
+        if (superset == null) {
+            return null;
+        }
+        
+        List<Object[]> rows = new ArrayList<>();
+        for (Object[] row : superset.rows) {
+            Object value = row[prefixColumn];
+            if (value != null && SearchText.normalize(value.toString()).startsWith(normalized)) {
+                rows.add(row);
+            }
+        }
+        // Expires with the rows it was filtered from
+        store(searchType, searchText, prefixColumn, rows, superset.expiresAt);
+        return rows;
+    }
+    
+    void put(String searchType, String searchText, int prefixColumn, List<Object[]> rows) {
+        store(searchType, searchText, prefixColumn, rows, System.nanoTime() + ttlNanos);
+    }
+    
+    void clear() {
+        entries.clear();
+    }
+    
+    private void store(String searchType, String searchText, int prefixColumn, List<Object[]> rows, long expiresAt) {
+        entries.put(key(searchType, searchText),
+                new Entry(searchType, SearchText.normalize(searchText), prefixColumn, rows, expiresAt));
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (entries.size() > maxEntries && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+    
+    private void evictExpired() {
+        long now = System.nanoTime();
+        entries.values().removeIf(entry -> now - entry.expiresAt > 0);
+    }
+    
+    // Exact hits use the text as typed, e.g. a status is matched case-sensitively
+    private static String key(String searchType, String searchText) {
+        return searchType + '\u0000' + searchText;
+    }
+    
+    private static class Entry {
+        private final String searchType;
+        private final String normalizedText;
+        private final int prefixColumn;
+        private final List<Object[]> rows;
+        private final long expiresAt;
+        
+        Entry(String searchType, String normalizedText, int prefixColumn, List<Object[]> rows, long expiresAt) {
+            this.searchType = searchType;
+            this.normalizedText = normalizedText;
+            this.prefixColumn = prefixColumn;
+            this.rows = rows;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,22 @@
+package com.furniture.ui.panels;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableCellRenderer;
+
+/**
+ * Renders the typed values of a column, formatting them only for the cells being painted.
+ * Numbers are right-aligned.
+ */
+public class TypedCellRenderer extends DefaultTableCellRenderer {
+    private final ColumnType type;
+    
+    public TypedCellRenderer(ColumnType type) {
+        this.type = type;
+        setHorizontalAlignment(type.isNumeric() ? SwingConstants.RIGHT : SwingConstants.LEFT);
+    }
+    
+    @Override
+    protected void setValue(Object value) {
+        setText(type.format(value));
+    }
+}
\ No newline at end of file